@@ -21,9 +21,12 @@ dependencies {
         create("IC", "2024.2.5")
         testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
 
-        // Add necessary plugin dependencies for compilation here, example:
-        // bundledPlugin("com.intellij.java")
+        // plugin.xml depends on the Kotlin plugin, so tests need it loaded
+        bundledPlugin("org.jetbrains.kotlin")
     }
+
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("org.opentest4j:opentest4j:1.3.0")
 }
 
 intellijPlatform {
@@ -47,4 +50,11 @@ tasks {
     withType<org.jetbrains.kotlin.gradle.tasks.KotlinCompile> {
         kotlinOptions.jvmTarget = "21"
     }
+
+    // Lets the load test pick its baseline, or record a new one, from -P flags
+    test {
+        listOf("todo.loadBaseline", "todo.recordLoadBaseline").forEach { name ->
+            providers.gradleProperty(name).orNull?.let { systemProperty(name, it) }
+        }
+    }
 }
@@ -0,0 +1,42 @@
+package com.abcd.todoplugin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Comment syntax of the file types supported out of the box: Kotlin, Java, Groovy and
+ * Gradle scripts, XML and YAML. Also used by the headless tools, which have no extension points.
+ */
+public class BuiltinCommentSyntaxProvider implements TodoCommentSyntaxProvider {
+
+    public static final BuiltinCommentSyntaxProvider INSTANCE = new BuiltinCommentSyntaxProvider();
+
+    private static final Map<String, TodoCommentSyntax> SYNTAX_BY_EXTENSION;
+
+    static {
+        Map<String, TodoCommentSyntax> syntax = new LinkedHashMap<String, TodoCommentSyntax>();
+        syntax.put("kt", TodoCommentSyntax.C_STYLE);
+        syntax.put("kts", TodoCommentSyntax.C_STYLE);
+        syntax.put("java", TodoCommentSyntax.C_STYLE);
+        syntax.put("groovy", TodoCommentSyntax.C_STYLE);
+        syntax.put("gradle", TodoCommentSyntax.C_STYLE);
+        syntax.put("xml", TodoCommentSyntax.XML);
+        syntax.put("yaml", TodoCommentSyntax.HASH);
+        syntax.put("yml", TodoCommentSyntax.HASH);
+        SYNTAX_BY_EXTENSION = Collections.unmodifiableMap(syntax);
+    }
+
+    @Override
+    public TodoCommentSyntax getSyntax(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? SYNTAX_BY_EXTENSION.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+    }
+
+    @Override
+    public Collection<String> getFileExtensions() {
+        return SYNTAX_BY_EXTENSION.keySet();
+    }
+}
@@ -14,6 +14,7 @@ import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,7 +25,7 @@ public class KotlinTodoAnnotator implements Annotator {
 
     private static final TextAttributesKey TODO_ATTRIBUTES = DefaultLanguageHighlighterColors.LINE_COMMENT;
     private static final Pattern TODO_PATTERN = Pattern.compile(
-            "//\\s*(TODO|FIXME|HACK|NOTE|BUG)\\s*:?\\s*(.*)",
+            "//\\s*(TODO|FIXME|HACK|NOTE|BUG)\\b\\s*:?\\s*(.*)",
             Pattern.CASE_INSENSITIVE
     );
 
@@ -50,7 +51,7 @@ public class KotlinTodoAnnotator implements Annotator {
         for (String line : lines) {
             Matcher matcher = TODO_PATTERN.matcher(line);
             if (matcher.find()) {
-                String todoType = matcher.group(1).toUpperCase();
+                String todoType = matcher.group(1).toUpperCase(Locale.ROOT);
                 int lineStartOffset = currentOffset + matcher.start();
                 int lineEndOffset = currentOffset + matcher.end();
 
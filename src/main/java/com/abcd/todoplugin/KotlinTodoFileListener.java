@@ -18,9 +18,9 @@ public class KotlinTodoFileListener implements FileEditorManagerListener {
     public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
         try {
             Project project = source.getProject();
-            if (project != null && KotlinTodoScanner.isKotlinFile(file)) {
+            if (project != null && KotlinTodoScanner.isSupportedFile(file)) {
                 KotlinTodoService service = project.getService(KotlinTodoService.class);
-                if (service != null) {
+                if (service != null && service.getScanScope() == TodoScanScope.CURRENT_FILE) {
                     service.scanFile(file);
                 }
             }
@@ -33,11 +33,11 @@ public class KotlinTodoFileListener implements FileEditorManagerListener {
     public void selectionChanged(@NotNull FileEditorManagerEvent event) {
         try {
             VirtualFile newFile = event.getNewFile();
-            if (newFile != null && KotlinTodoScanner.isKotlinFile(newFile)) {
+            if (newFile != null && KotlinTodoScanner.isSupportedFile(newFile)) {
                 FileEditorManager manager = event.getManager();
                 Project project = manager.getProject();
                 KotlinTodoService service = project.getService(KotlinTodoService.class);
-                if (service != null) {
+                if (service != null && service.getScanScope() == TodoScanScope.CURRENT_FILE) {
                     service.scanFile(newFile);
                 }
             }
@@ -49,11 +49,11 @@ public class KotlinTodoFileListener implements FileEditorManagerListener {
     @Override
     public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
         try {
-            // When a Kotlin file is closed, scan the next active file
+            // When a supported file is closed, scan the next active file
             Project project = source.getProject();
-            if (project != null && KotlinTodoScanner.isKotlinFile(file)) {
+            if (project != null && KotlinTodoScanner.isSupportedFile(file)) {
                 KotlinTodoService service = project.getService(KotlinTodoService.class);
-                if (service != null) {
+                if (service != null && service.getScanScope() == TodoScanScope.CURRENT_FILE) {
                     // Scan current file after a short delay to ensure UI is updated
                     javax.swing.SwingUtilities.invokeLater(() -> {
                         service.scanCurrentFile();
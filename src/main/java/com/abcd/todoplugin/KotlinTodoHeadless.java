@@ -0,0 +1,222 @@
+package com.abcd.todoplugin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command-line entry point to the scanner core, for CI and other tooling that runs
+ * without an IDE. Only uses classes that do not depend on the IntelliJ platform.
+ * <pre>
+ * snapshot &lt;sourceRoot&gt; &lt;output&gt;   scan a source tree and write a TODO snapshot
+ * blame &lt;file&gt;                       list a file's TODOs with the author and age of their lines
+ * export &lt;sourceRoot&gt; &lt;output&gt; [jsonl|csv|sarif]   scan a source tree and stream its TODOs to a file
+ * daemon &lt;sourceRoot&gt; &lt;socket&gt;     keep an index of a source tree and answer queries on a Unix socket
+ * </pre>
+ */
+public final class KotlinTodoHeadless {
+
+    public static final List<String> DEFAULT_EXCLUDED_DIRECTORIES = Collections.unmodifiableList(
+            Arrays.asList("build", "out", "generated", "node_modules", ".gradle", ".git", ".idea"));
+
+    private KotlinTodoHeadless() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && "snapshot".equals(args[0])) {
+            Path root = Paths.get(args[1]);
+            int files = writeSnapshot(root, Paths.get(args[2]));
+            System.out.println("Wrote snapshot of " + files + " files to " + args[2]);
+            return;
+        }
+        if (args.length == 2 && "blame".equals(args[0])) {
+            printBlame(Paths.get(args[1]));
+            return;
+        }
+        if ((args.length == 3 || args.length == 4) && "export".equals(args[0])) {
+            TodoExporter.Format format = TodoExporter.Format.fromFileName(args.length == 4 ? args[3] : args[2]);
+            if (format == null) {
+                System.err.println("Unknown export format; use jsonl, csv or sarif");
+                System.exit(2);
+            }
+            long count = exportTree(Paths.get(args[1]), Paths.get(args[2]), format);
+            System.out.println("Exported " + count + " TODOs to " + args[2]);
+            return;
+        }
+        if (args.length == 3 && "daemon".equals(args[0])) {
+            TodoDaemon daemon = new TodoDaemon(Paths.get(args[1]),
+                    (path, e) -> System.err.println("TODO daemon could not index " + path + ": " + e));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    daemon.close();
+                } catch (IOException e) {
+                    // Exiting anyway
+                }
+            }));
+            System.out.println("Serving TODOs of " + args[1] + " on " + args[2]);
+            daemon.run(Paths.get(args[2]));
+            return;
+        }
+
+        System.err.println("Usage: KotlinTodoHeadless snapshot <sourceRoot> <output>");
+        System.err.println("       KotlinTodoHeadless blame <file>");
+        System.err.println("       KotlinTodoHeadless export <sourceRoot> <output> [jsonl|csv|sarif]");
+        System.err.println("       KotlinTodoHeadless daemon <sourceRoot> <socket>");
+        System.exit(2);
+    }
+
+    /**
+     * Scans a source tree and writes a TODO snapshot of it
+     * @param root the source root; snapshot paths are relative to it
+     * @param output the snapshot file to write
+     * @return the number of files in the snapshot
+     * @throws IOException if a file cannot be read or the snapshot cannot be written
+     */
+    public static int writeSnapshot(Path root, Path output) throws IOException {
+        TodoSnapshot.Writer writer = new TodoSnapshot.Writer();
+        List<Path> files = findSourceFiles(root);
+
+        for (Path file : files) {
+            byte[] bytes = Files.readAllBytes(file);
+            List<TodoSnapshot.Entry> todos = new ArrayList<TodoSnapshot.Entry>();
+            TodoTextScanner.scan(new String(bytes, StandardCharsets.UTF_8), getSyntax(file),
+                    (lineNumber, startOffset, tag, content, priority) ->
+                            todos.add(new TodoSnapshot.Entry(lineNumber, startOffset, tag, content)));
+            writer.addFile(relativePath(root, file), TodoSnapshot.contentHash(bytes), todos);
+        }
+
+        writer.write(output);
+        return files.size();
+    }
+
+    /**
+     * Scans a source tree and streams its TODOs to an export file. Files are visited and
+     * scanned one at a time, so memory use does not grow with the number of results.
+     * @param root the source root; exported paths are relative to it
+     * @param output the file to write
+     * @param format the export format
+     * @return the number of TODOs exported
+     * @throws IOException if a file cannot be read or the export cannot be written
+     */
+    public static long exportTree(Path root, Path output, TodoExporter.Format format) throws IOException {
+        try (TodoExporter exporter = TodoExporter.create(format, Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            visitSourceFiles(root, file -> {
+                String path = relativePath(root, file);
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    TodoTextScanner.scan(reader, getSyntax(file), (lineNumber, startOffset, tag, content, priority) -> {
+                        try {
+                            exporter.write(path, lineNumber, tag, priority, content);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            });
+            return exporter.getCount();
+        }
+    }
+
+    /**
+     * Prints the TODOs of a file with the author and age of their lines
+     * @param file a supported file inside a git work tree
+     * @throws IOException if the file cannot be read or git fails
+     */
+    public static void printBlame(Path file) throws IOException {
+        TodoCommentSyntax syntax = getSyntax(file);
+        if (syntax == null) {
+            throw new IOException("Unsupported file type: " + file.getFileName());
+        }
+        Map<Integer, TodoBlame.Line> blame = TodoBlame.blame(file);
+        long now = System.currentTimeMillis();
+
+        TodoTextScanner.scan(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), syntax,
+                (lineNumber, startOffset, tag, content, priority) -> {
+                    TodoBlame.Line line = blame.get(lineNumber);
+                    String authorship = line != null ? line.getAuthor() + ", " + line.formatAge(now) : "unknown";
+                    System.out.println(lineNumber + ": " + tag + ": " + content + " (" + authorship + ")");
+                });
+    }
+
+    /**
+     * Finds the supported source files under a root, skipping build output and tool directories
+     * @param root the directory to walk
+     * @return the source files, in walk order
+     * @throws IOException if the tree cannot be walked
+     */
+    public static List<Path> findSourceFiles(Path root) throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        visitSourceFiles(root, files::add);
+        return files;
+    }
+
+    /**
+     * Visits the supported source files under a root as they are found, skipping build output and tool directories
+     * @param root the directory to walk
+     * @param visitor called for each source file
+     * @throws IOException if the tree cannot be walked or the visitor fails
+     */
+    public static void visitSourceFiles(Path root, SourceFileVisitor visitor) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                Path name = dir.getFileName();
+                if (!dir.equals(root) && name != null
+                        && DEFAULT_EXCLUDED_DIRECTORIES.contains(name.toString().toLowerCase(Locale.ROOT))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && getSyntax(file) != null) {
+                    visitor.visit(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Gets the comment syntax of a file from the built-in provider; extension points are not
+     * available without the IDE
+     * @param file the file
+     * @return the syntax, or null if the file type is not supported
+     */
+    public static TodoCommentSyntax getSyntax(Path file) {
+        Path name = file.getFileName();
+        return name != null ? BuiltinCommentSyntaxProvider.INSTANCE.getSyntax(name.toString()) : null;
+    }
+
+    /**
+     * Receives source files found by {@link #visitSourceFiles}
+     */
+    public interface SourceFileVisitor {
+        void visit(Path file) throws IOException;
+    }
+
+    /**
+     * Gets the portable, '/'-separated path of a file relative to a root
+     * @param root the root directory
+     * @param file a file under the root
+     * @return the relative path
+     */
+    public static String relativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,241 @@
+package com.abcd.todoplugin;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiComment;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reports TODO comments as inspection problems, so project-wide TODO audits can run through
+ * Inspect Code and offline inspections, which spread files across cores and run headless.
+ * Results held by the project service are reused when they were computed from the same
+ * content; otherwise the file is scanned once and the shared results are updated.
+ * <p>
+ * Problems are reported at the severity set in the inspection profile. Editors already
+ * highlight TODOs through {@link KotlinTodoAnnotator}, so on-the-fly runs report nothing.
+ */
+public class KotlinTodoInspection extends LocalInspectionTool {
+
+    private static final LocalQuickFix REMOVE_COMMENT = new RemoveTodoCommentFix();
+    private static final LocalQuickFix ESCALATE_TO_FIXME = new EscalateToFixmeFix();
+
+    @Override
+    public ProblemDescriptor[] checkFile(@NotNull PsiFile psiFile, @NotNull InspectionManager manager, boolean isOnTheFly) {
+        VirtualFile file = psiFile.getVirtualFile();
+        if (isOnTheFly || file == null || !KotlinTodoScanner.isSupportedFile(file)) {
+            return null;
+        }
+
+        Document document = PsiDocumentManager.getInstance(psiFile.getProject()).getDocument(psiFile);
+        if (document == null) {
+            return null;
+        }
+
+        List<TodoItem> todos = getTodos(psiFile.getProject(), file, document);
+        List<ProblemDescriptor> problems = new ArrayList<ProblemDescriptor>(todos.size());
+        for (TodoItem todo : todos) {
+            TextRange range = getRange(document, todo);
+            if (range == null) {
+                continue;
+            }
+            LocalQuickFix[] fixes = todo.getPriority() == TodoItem.Priority.HIGH
+                    ? new LocalQuickFix[]{REMOVE_COMMENT}
+                    : new LocalQuickFix[]{REMOVE_COMMENT, ESCALATE_TO_FIXME};
+            problems.add(manager.createProblemDescriptor(psiFile, range, todo.getText(),
+                    ProblemHighlightType.GENERIC_ERROR_OR_WARNING, isOnTheFly, fixes));
+        }
+        return problems.toArray(new ProblemDescriptor[0]);
+    }
+
+    /**
+     * Gets the TODOs of a file from the shared results if they match the document, or scans it
+     */
+    private static List<TodoItem> getTodos(Project project, VirtualFile file, Document document) {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        long stamp = document.getModificationStamp();
+        if (service != null) {
+            List<TodoItem> current = service.getResultStore().getIfCurrent(file.getPath(), stamp);
+            if (current != null) {
+                return current;
+            }
+        }
+
+        List<TodoItem> todos = KotlinTodoScanner.scanDocumentForTodos(document, file);
+        return service != null ? service.publishResults(file, todos, stamp) : todos;
+    }
+
+    /**
+     * Gets the range from the comment marker to the end of the TODO's line, or null if
+     * the TODO does not fit the document
+     */
+    private static TextRange getRange(Document document, TodoItem todo) {
+        int line = todo.getLineNumber() - 1;
+        int start = todo.getStartOffset();
+        if (line < 0 || line >= document.getLineCount() || start >= document.getTextLength()
+                || document.getLineNumber(start) != line) {
+            return null;
+        }
+        int end = document.getLineEndOffset(line);
+        return end > start ? new TextRange(start, end) : null;
+    }
+
+    /**
+     * Gets the start of a problem's range in its file
+     */
+    private static int getStartOffset(ProblemDescriptor descriptor) {
+        PsiElement element = descriptor.getPsiElement();
+        TextRange range = descriptor.getTextRangeInElement();
+        if (element == null || range == null) {
+            return -1;
+        }
+        return element.getTextRange().getStartOffset() + range.getStartOffset();
+    }
+
+    /**
+     * Deletes the TODO: the whole comment when the TODO is all it says, otherwise only the
+     * TODO's line, so the rest of e.g. a KDoc or Javadoc comment is kept
+     */
+    private static class RemoveTodoCommentFix implements LocalQuickFix {
+        // Comment markers skipped to find where the TODO's text starts
+        private static final String MARKER_CHARS = "/*#!<-";
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return "Remove TODO comment";
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            int offset = getStartOffset(descriptor);
+            if (offset < 0) {
+                return;
+            }
+            PsiFile file = descriptor.getPsiElement().getContainingFile();
+            PsiComment comment = PsiTreeUtil.getParentOfType(file.findElementAt(offset), PsiComment.class, false);
+            PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+            Document document = documentManager.getDocument(file);
+            if (comment == null || document == null) {
+                return;
+            }
+
+            TextRange range = getTodoRange(document.getCharsSequence(), comment.getTextRange(),
+                    document.getLineStartOffset(document.getLineNumber(offset)),
+                    document.getLineEndOffset(document.getLineNumber(offset)), offset);
+            if (range == null) {
+                comment.delete();
+            } else {
+                document.deleteString(range.getStartOffset(), range.getEndOffset());
+                documentManager.commitDocument(document);
+            }
+        }
+
+        /**
+         * Gets the part of a comment to delete to remove a TODO
+         * @param text the document text
+         * @param comment the range of the comment holding the TODO
+         * @param lineStart the start of the TODO's line
+         * @param lineEnd the end of the TODO's line, before the line break
+         * @param offset the TODO's comment marker, or its first character on a continuation line
+         * @return the range to delete, or null if the TODO is all the comment says
+         */
+        static TextRange getTodoRange(CharSequence text, TextRange comment, int lineStart, int lineEnd, int offset) {
+            int commentStart = comment.getStartOffset();
+            int commentEnd = comment.getEndOffset();
+            int todoEnd = Math.min(lineEnd, commentEnd);
+            if (!hasContent(text, commentStart, offset) && !hasContent(text, todoEnd, commentEnd)) {
+                return null;
+            }
+
+            if (lineStart > commentStart && lineEnd < commentEnd) {
+                // A continuation line: drop it with its line break
+                return new TextRange(lineStart, lineEnd + 1);
+            }
+
+            int start = offset;
+            if (lineStart <= commentStart) {
+                // The first line: keep the opening marker
+                while (start < todoEnd && (Character.isWhitespace(text.charAt(start))
+                        || MARKER_CHARS.indexOf(text.charAt(start)) >= 0)) {
+                    start++;
+                }
+                while (start > offset && Character.isWhitespace(text.charAt(start - 1))) {
+                    start--;
+                }
+            }
+            int end = todoEnd;
+            if (lineEnd >= commentEnd) {
+                // The last line: keep the closing marker
+                while (end > start && MARKER_CHARS.indexOf(text.charAt(end - 1)) >= 0) {
+                    end--;
+                }
+                while (end > start && Character.isWhitespace(text.charAt(end - 1)) && start > offset) {
+                    end--;
+                }
+            }
+            return end > start ? new TextRange(start, end) : null;
+        }
+
+        /**
+         * Checks whether a part of a comment has text other than comment markers
+         */
+        private static boolean hasContent(CharSequence text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (Character.isLetterOrDigit(text.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Changes a TODO, NOTE or HACK tag to FIXME, raising the TODO to high priority
+     */
+    private static class EscalateToFixmeFix implements LocalQuickFix {
+        private static final Pattern TAG = Pattern.compile("\\b(TODO|NOTE|HACK)\\b", Pattern.CASE_INSENSITIVE);
+
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return "Escalate to FIXME";
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            int offset = getStartOffset(descriptor);
+            if (offset < 0) {
+                return;
+            }
+            PsiFile file = descriptor.getPsiElement().getContainingFile();
+            PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+            Document document = documentManager.getDocument(file);
+            if (document == null) {
+                return;
+            }
+
+            int lineEnd = document.getLineEndOffset(document.getLineNumber(offset));
+            Matcher matcher = TAG.matcher(document.getCharsSequence().subSequence(offset, lineEnd));
+            if (matcher.find()) {
+                document.replaceString(offset + matcher.start(), offset + matcher.end(), "FIXME");
+                documentManager.commitDocument(document);
+            }
+        }
+    }
+}
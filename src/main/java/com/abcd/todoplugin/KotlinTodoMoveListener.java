@@ -0,0 +1,66 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Listens for moved and renamed files and directories, so their TODOs keep their ids
+ * and metadata without waiting for a rescan, and for deleted ones, so their results and
+ * ids are dropped
+ */
+public class KotlinTodoMoveListener implements BulkFileListener {
+    private static final Logger LOG = Logger.getInstance(KotlinTodoMoveListener.class);
+
+    private final Project project;
+
+    public KotlinTodoMoveListener(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        KotlinTodoService service = null;
+        for (VFileEvent event : events) {
+            String oldPath;
+            String newPath;
+            if (event instanceof VFileDeleteEvent) {
+                oldPath = event.getPath();
+                newPath = null;
+            } else if (event instanceof VFileMoveEvent) {
+                oldPath = ((VFileMoveEvent) event).getOldPath();
+                newPath = ((VFileMoveEvent) event).getNewPath();
+            } else if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                oldPath = ((VFilePropertyChangeEvent) event).getOldPath();
+                newPath = ((VFilePropertyChangeEvent) event).getNewPath();
+            } else {
+                continue;
+            }
+
+            VirtualFile file = event.getFile();
+            if (file == null || !file.isDirectory() && !KotlinTodoScanner.isSupportedFile(file)) {
+                continue;
+            }
+            try {
+                if (service == null) {
+                    service = project.getService(KotlinTodoService.class);
+                }
+                if (newPath != null) {
+                    service.fileMoved(oldPath, newPath);
+                } else {
+                    service.fileDeleted(oldPath);
+                }
+            } catch (Exception e) {
+                LOG.warn("Error handling move or deletion of " + oldPath, e);
+            }
+        }
+    }
+}
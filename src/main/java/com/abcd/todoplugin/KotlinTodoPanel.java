@@ -1,14 +1,29 @@
 package com.abcd.todoplugin;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
 import com.intellij.ui.components.JBList;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTextField;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
@@ -16,76 +31,178 @@ import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 
-public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoStateListener {
+public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoStateListener, Disposable {
     private static final Logger LOG = Logger.getInstance(KotlinTodoPanel.class);
 
+    // Number of ranked results shown in fuzzy mode
+    private static final int FUZZY_RESULT_LIMIT = 200;
+
+    private static final long SNOOZE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
     private final Project project;
     private final JBTextField filterField;
+    private final JCheckBox fuzzyCheckBox;
+    private final JComboBox<TodoSortOrder> sortComboBox;
+    private final JComboBox<TodoGroupBy> groupComboBox;
+    private final JComboBox<TodoScanScope> scopeComboBox;
+    private final JButton scanButton;
     private final JBList<TodoItem> todoList;
     private final DefaultListModel<TodoItem> listModel;
     private final JLabel statusLabel;
+    private final JLabel statsLabel;
+    private final TodoPreviewPane previewPane;
 
     private List<TodoItem> allTodos = new ArrayList<>();
+    private TodoIndex todoIndex = new TodoIndex(allTodos);
+    private TodoScanReport scanReport = TodoScanReport.EMPTY;
     private String currentFilter = "";
+    private final AtomicBoolean blameRefreshQueued = new AtomicBoolean();
+
+    // TODOs of closed tickets, resolved in the background while grouping by closed tickets
+    private Map<String, List<TodoItem>> closedTicketTodos = Collections.emptyMap();
+    private final AtomicBoolean closedTicketRefreshQueued = new AtomicBoolean();
+
+    // Size of the duplicate group of each shown TODO, when grouping by duplicates
+    private final Map<TodoItem, String> groupPrefixes = new HashMap<>();
+    private int groupCount;
+    private int snoozedCount;
 
     public KotlinTodoPanel(Project project) {
         this.project = project;
         this.listModel = new DefaultListModel<>();
         this.todoList = new JBList<>(listModel);
         this.filterField = new JBTextField();
+        this.fuzzyCheckBox = new JCheckBox("Fuzzy");
+        this.sortComboBox = new JComboBox<>(TodoSortOrder.values());
+        this.groupComboBox = new JComboBox<>(TodoGroupBy.values());
+        this.scopeComboBox = new JComboBox<>(TodoScanScope.values());
+        this.scanButton = new JButton("Scan");
         this.statusLabel = new JLabel("No TODOs found");
+        this.statsLabel = new JLabel();
+        this.previewPane = new TodoPreviewPane(project);
+        Disposer.register(this, previewPane);
 
         initializeUI();
         setupEventHandlers();
 
-        // Register for state changes
-        KotlinTodoState.getInstance().addStateListener(this);
+        // Register for this project's state changes until the panel is disposed
+        KotlinTodoProjectState projectState = KotlinTodoProjectState.getInstance(project);
+        projectState.addStateListener(this, this);
 
         // Restore filter from previous session
-        String savedFilter = KotlinTodoState.getInstance().getLastFilterKeyword();
+        String savedFilter = projectState.getLastFilterKeyword();
         if (!savedFilter.isEmpty()) {
             filterField.setText(savedFilter);
             currentFilter = savedFilter;
         }
+        fuzzyCheckBox.setSelected(projectState.isFuzzySearch());
+        sortComboBox.setSelectedItem(projectState.getSortOrder());
+        groupComboBox.setSelectedItem(projectState.getGroupBy());
     }
 
     private void initializeUI() {
         setLayout(new BorderLayout());
 
-        // Create filter panel
-        JPanel filterPanel = createFilterPanel();
-        add(filterPanel, BorderLayout.NORTH);
+        // Create scope and filter panels
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(createScopePanel(), BorderLayout.NORTH);
+        northPanel.add(createFilterPanel(), BorderLayout.SOUTH);
+        add(northPanel, BorderLayout.NORTH);
 
         // Configure the list
         todoList.setCellRenderer(new TodoListCellRenderer());
         todoList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
-        // Create scroll pane for the list
+        // Create scroll pane for the list, with the context preview below it
         JBScrollPane scrollPane = new JBScrollPane(todoList);
         scrollPane.setPreferredSize(new Dimension(300, 400));
-        add(scrollPane, BorderLayout.CENTER);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, scrollPane, previewPane);
+        splitPane.setResizeWeight(0.7);
+        add(splitPane, BorderLayout.CENTER);
 
-        // Status panel
-        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        // Status panel with directory statistics below the scan status
+        JPanel statusPanel = new JPanel(new GridLayout(2, 1));
+        statusPanel.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
         statusPanel.add(statusLabel);
+        statusPanel.add(statsLabel);
         add(statusPanel, BorderLayout.SOUTH);
     }
 
+    private JPanel createScopePanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 0, 0, 0));
+
+        JLabel scopeLabel = new JLabel("Scope:");
+        scopeLabel.setLabelFor(scopeComboBox);
+
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service != null) {
+            scopeComboBox.setSelectedItem(service.getScanScope());
+        }
+        scanButton.addActionListener(e -> runScopedScan());
+
+        JButton exportButton = new JButton("Export...");
+        exportButton.setToolTipText("Export TODOs as JSON Lines, CSV or SARIF");
+        exportButton.addActionListener(e -> exportTodos());
+
+        panel.add(scopeLabel);
+        panel.add(scopeComboBox);
+        panel.add(scanButton);
+        panel.add(exportButton);
+        return panel;
+    }
+
     private JPanel createFilterPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
 
         JLabel filterLabel = new JLabel("Filter:");
         filterLabel.setLabelFor(filterField);
+        filterField.setToolTipText("Keyword, or a query such as: tag:FIXME priority:high file:*Repository.kt "
+                + "text:\"retry\" (use -term to negate, OR to combine)");
 
         panel.add(filterLabel, BorderLayout.WEST);
         panel.add(filterField, BorderLayout.CENTER);
 
+        // Fuzzy ranking toggle
+        fuzzyCheckBox.setToolTipText("Rank TODOs by fuzzy similarity (tolerates typos and word order)");
+        fuzzyCheckBox.addActionListener(e -> {
+            applyFilter();
+            KotlinTodoProjectState.getInstance(project).setFuzzySearch(fuzzyCheckBox.isSelected());
+        });
+
+        // Sort order; oldest first uses the line ages filled in by the blame enricher
+        sortComboBox.setToolTipText("Oldest first sorts by when each TODO line was last changed in git");
+        sortComboBox.addActionListener(e -> {
+            applyFilter();
+            KotlinTodoProjectState.getInstance(project).setSortOrder(getSortOrder());
+        });
+
+        // Grouping of near-duplicate TODOs
+        groupComboBox.setToolTipText("Duplicates shows only TODOs with near-identical text elsewhere, grouped; "
+                + "Closed tickets shows TODOs whose tickets the tracker reports as closed");
+        groupComboBox.addActionListener(e -> {
+            applyFilter();
+            refreshClosedTickets();
+            KotlinTodoProjectState.getInstance(project).setGroupBy(getGroupBy());
+        });
+
         // Add clear button
         JButton clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> {
@@ -93,7 +210,13 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
             currentFilter = "";
             applyFilter();
         });
-        panel.add(clearButton, BorderLayout.EAST);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttonPanel.add(groupComboBox);
+        buttonPanel.add(sortComboBox);
+        buttonPanel.add(fuzzyCheckBox);
+        buttonPanel.add(clearButton);
+        panel.add(buttonPanel, BorderLayout.EAST);
 
         return panel;
     }
@@ -125,6 +248,24 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
                     navigateToSelectedTodo();
                 }
             }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showTodoMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showTodoMenu(e);
+            }
+        });
+
+        // Show the context and the directory statistics of the selected TODO
+        todoList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                previewPane.showTodo(todoList.getSelectedValue());
+                updateStatsLabel();
+            }
         });
 
         // List enter key handler
@@ -138,27 +279,92 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
         });
     }
 
+    /**
+     * Shows the snooze and assign menu for the TODO under the mouse
+     */
+    private void showTodoMenu(MouseEvent e) {
+        if (!e.isPopupTrigger()) {
+            return;
+        }
+        int index = todoList.locationToIndex(e.getPoint());
+        if (index < 0) {
+            return;
+        }
+        todoList.setSelectedIndex(index);
+        TodoItem todo = listModel.getElementAt(index);
+        if (todo.getId() == null) {
+            return;
+        }
+
+        KotlinTodoProjectState projectState = KotlinTodoProjectState.getInstance(project);
+        JPopupMenu menu = new JPopupMenu();
+
+        JMenuItem snoozeItem = new JMenuItem("Snooze for a Week");
+        snoozeItem.addActionListener(event -> {
+            projectState.snooze(todo, System.currentTimeMillis() + SNOOZE_MILLIS);
+            applyFilter();
+        });
+        menu.add(snoozeItem);
+
+        JMenuItem assignItem = new JMenuItem("Assign To...");
+        assignItem.addActionListener(event -> {
+            KotlinTodoProjectState.TodoMetadata metadata = projectState.getMetadata(todo);
+            String assignee = Messages.showInputDialog(project, "Assignee:", "Assign TODO", null,
+                    metadata != null ? metadata.getAssignee() : "", null);
+            if (assignee != null) {
+                projectState.setAssignee(todo, assignee);
+                todoList.repaint();
+            }
+        });
+        menu.add(assignItem);
+
+        JMenuItem clearItem = new JMenuItem("Clear Snooze and Assignee");
+        clearItem.setEnabled(projectState.getMetadata(todo) != null);
+        clearItem.addActionListener(event -> {
+            projectState.clearMetadata(todo);
+            applyFilter();
+        });
+        menu.add(clearItem);
+
+        menu.show(todoList, e.getX(), e.getY());
+    }
+
     private void updateFilter() {
         SwingUtilities.invokeLater(() -> {
+            long start = System.nanoTime();
             currentFilter = filterField.getText();
             applyFilter();
+            recordMetric(TodoScanMetrics.FILTER, System.nanoTime() - start);
 
             // Save filter to state
-            KotlinTodoState.getInstance().setLastFilterKeyword(currentFilter);
+            KotlinTodoProjectState.getInstance(project).setLastFilterKeyword(currentFilter);
         });
     }
 
     private void applyFilter() {
         try {
-            listModel.clear();
-
-            List<TodoItem> filtered = KotlinTodoScanner.filterTodos(allTodos, currentFilter);
-
-            for (TodoItem todo : filtered) {
-                listModel.addElement(todo);
+            List<TodoItem> filtered = isFuzzyActive()
+                    ? TodoFuzzyMatcher.topMatches(allTodos, currentFilter, FUZZY_RESULT_LIMIT)
+                    : KotlinTodoScanner.filterTodos(todoIndex, currentFilter);
+            filtered = removeSnoozed(filtered);
+            if (getSortOrder() == TodoSortOrder.OLDEST_FIRST) {
+                filtered = sortOldestFirst(filtered);
+            }
+            groupPrefixes.clear();
+            groupCount = 0;
+            if (getGroupBy() == TodoGroupBy.DUPLICATES) {
+                filtered = groupDuplicates(filtered);
+            } else if (getGroupBy() == TodoGroupBy.TICKET) {
+                filtered = groupByTicket(filtered);
+            } else if (getGroupBy() == TodoGroupBy.CLOSED_TICKETS) {
+                filtered = groupByClosedTicket(filtered);
             }
 
+            // Apply as a keyed diff so unchanged rows keep selection and scroll position
+            TodoListDiff.apply(listModel, filtered);
+
             updateStatusLabel(filtered.size(), allTodos.size());
+            updateStatsLabel();
 
         } catch (Exception e) {
             LOG.warn("Error applying filter", e);
@@ -166,9 +372,240 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
         }
     }
 
+    /**
+     * Shows the rolled-up counts of the selected TODO's directory, or of the project
+     */
+    private void updateStatsLabel() {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            statsLabel.setText("");
+            return;
+        }
+
+        TodoItem selected = todoList.getSelectedValue();
+        VirtualFile directory = selected != null && selected.getFile() != null ? selected.getFile().getParent() : null;
+
+        if (directory != null) {
+            TodoStatsTrie.Counts counts = service.getStatsTrie().getCounts(directory.getPath());
+            statsLabel.setText(directory.getName() + "/: " + counts.toSummary());
+        } else if (project.getBasePath() != null) {
+            statsLabel.setText("Project: " + service.getStatsTrie().getCounts(project.getBasePath()).toSummary());
+        } else {
+            statsLabel.setText("");
+        }
+    }
+
+    /**
+     * Sorts TODOs by the age of their line, oldest first; TODOs whose age is not known
+     * yet, or that are uncommitted, keep their order at the end
+     */
+    private List<TodoItem> sortOldestFirst(List<TodoItem> todos) {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            return todos;
+        }
+
+        TodoBlameEnricher enricher = service.getBlameEnricher();
+        List<TodoItem> sorted = new ArrayList<>(todos);
+        sorted.sort(Comparator.comparingLong(todo -> {
+            TodoBlame.Line line = enricher.getBlame(todo);
+            return line != null && line.isCommitted() ? line.getAuthorTimeSeconds() : Long.MAX_VALUE;
+        }));
+        return sorted;
+    }
+
+    /**
+     * Keeps only TODOs that belong to a near-duplicate group of the shown TODOs, with each
+     * group's members listed together, largest group first
+     */
+    private List<TodoItem> groupDuplicates(List<TodoItem> todos) {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            return todos;
+        }
+
+        Set<TodoItem> shown = new HashSet<>(todos);
+        List<TodoItem> grouped = new ArrayList<>();
+        for (List<TodoItem> cluster : service.getClusterIndex().getClusters()) {
+            List<TodoItem> members = new ArrayList<>();
+            for (TodoItem todo : cluster) {
+                if (shown.contains(todo)) {
+                    members.add(todo);
+                }
+            }
+            if (members.size() >= 2) {
+                for (TodoItem todo : members) {
+                    groupPrefixes.put(todo, "(" + members.size() + " similar) ");
+                }
+                grouped.addAll(members);
+                groupCount++;
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Keeps only TODOs that reference a ticket, listed by ticket ID. A TODO that mentions
+     * several tickets is listed under the first ticket in ID order.
+     */
+    private List<TodoItem> groupByTicket(List<TodoItem> todos) {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            return todos;
+        }
+
+        TodoTicketIndex ticketIndex = service.getTicketIndex();
+        Set<TodoItem> shown = new HashSet<>(todos);
+        List<TodoItem> grouped = new ArrayList<>();
+        for (String ticket : ticketIndex.getTickets()) {
+            boolean listed = false;
+            for (TodoItem todo : ticketIndex.getTodos(ticket)) {
+                if (shown.contains(todo) && !groupPrefixes.containsKey(todo)) {
+                    groupPrefixes.put(todo, "[" + ticket + "] ");
+                    grouped.add(todo);
+                    listed = true;
+                }
+            }
+            if (listed) {
+                groupCount++;
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Keeps only TODOs that reference a closed ticket, listed by ticket ID, as of the last
+     * background resolution
+     */
+    private List<TodoItem> groupByClosedTicket(List<TodoItem> todos) {
+        Set<TodoItem> shown = new HashSet<>(todos);
+        List<TodoItem> grouped = new ArrayList<>();
+        for (Map.Entry<String, List<TodoItem>> entry : closedTicketTodos.entrySet()) {
+            boolean listed = false;
+            for (TodoItem todo : entry.getValue()) {
+                if (shown.contains(todo) && !groupPrefixes.containsKey(todo)) {
+                    groupPrefixes.put(todo, "[" + entry.getKey() + " closed] ");
+                    grouped.add(todo);
+                    listed = true;
+                }
+            }
+            if (listed) {
+                groupCount++;
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Resolves ticket statuses in the background when grouping by closed tickets. The
+     * resolver may block on the network, so bursts of updates share one resolution.
+     */
+    private void refreshClosedTickets() {
+        if (getGroupBy() != TodoGroupBy.CLOSED_TICKETS || !closedTicketRefreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            closedTicketRefreshQueued.set(false);
+            return;
+        }
+
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            closedTicketRefreshQueued.set(false);
+            Map<String, List<TodoItem>> closed;
+            try {
+                closed = service.findTodosOfClosedTickets();
+            } catch (Exception e) {
+                LOG.warn("Error resolving ticket statuses", e);
+                return;
+            }
+            ApplicationManager.getApplication().invokeLater(() -> {
+                closedTicketTodos = closed;
+                if (getGroupBy() == TodoGroupBy.CLOSED_TICKETS) {
+                    applyFilter();
+                }
+            }, project.getDisposed());
+        });
+    }
+
+    private TodoGroupBy getGroupBy() {
+        TodoGroupBy grouping = (TodoGroupBy) groupComboBox.getSelectedItem();
+        return grouping != null ? grouping : TodoGroupBy.NONE;
+    }
+
+    private TodoSortOrder getSortOrder() {
+        TodoSortOrder order = (TodoSortOrder) sortComboBox.getSelectedItem();
+        return order != null ? order : TodoSortOrder.DEFAULT;
+    }
+
+    /**
+     * Called from a background thread when more blame results are available. Bursts are
+     * coalesced into one repaint, or one re-sort when sorting by age.
+     */
+    private void onBlameUpdated() {
+        if (blameRefreshQueued.compareAndSet(false, true)) {
+            ApplicationManager.getApplication().invokeLater(() -> {
+                blameRefreshQueued.set(false);
+                if (getSortOrder() == TodoSortOrder.OLDEST_FIRST) {
+                    applyFilter();
+                } else {
+                    todoList.repaint();
+                }
+            }, project.getDisposed());
+        }
+    }
+
+    /**
+     * Leaves out snoozed TODOs, counting them for the status line
+     */
+    private List<TodoItem> removeSnoozed(List<TodoItem> todos) {
+        KotlinTodoProjectState projectState = KotlinTodoProjectState.getInstance(project);
+        long now = System.currentTimeMillis();
+        List<TodoItem> shown = new ArrayList<>(todos.size());
+        snoozedCount = 0;
+        for (TodoItem todo : todos) {
+            if (projectState.isSnoozed(todo, now)) {
+                snoozedCount++;
+            } else {
+                shown.add(todo);
+            }
+        }
+        return shown;
+    }
+
+    private boolean isFuzzyActive() {
+        return fuzzyCheckBox.isSelected() && !currentFilter.trim().isEmpty();
+    }
+
     private void updateStatusLabel(int filteredCount, int totalCount) {
+        setStatusText(filteredCount, totalCount);
+        if (snoozedCount > 0) {
+            statusLabel.setText(statusLabel.getText() + " (" + snoozedCount + " snoozed)");
+        }
+
+        // Report files the scan policy skipped
+        String skipped = scanReport.getSkippedSummary();
+        if (!skipped.isEmpty()) {
+            statusLabel.setText(statusLabel.getText() + " (" + skipped + ")");
+        }
+        statusLabel.setToolTipText(skipped.isEmpty() ? null : skipped);
+    }
+
+    private void setStatusText(int filteredCount, int totalCount) {
         if (totalCount == 0) {
             statusLabel.setText("No TODOs found");
+        } else if (getGroupBy() == TodoGroupBy.DUPLICATES) {
+            statusLabel.setText(String.format("%d of %d TODO%s in %d duplicate group%s",
+                    filteredCount, totalCount, totalCount == 1 ? "" : "s", groupCount, groupCount == 1 ? "" : "s"));
+        } else if (getGroupBy() == TodoGroupBy.TICKET) {
+            statusLabel.setText(String.format("%d of %d TODO%s referencing %d ticket%s",
+                    filteredCount, totalCount, totalCount == 1 ? "" : "s", groupCount, groupCount == 1 ? "" : "s"));
+        } else if (getGroupBy() == TodoGroupBy.CLOSED_TICKETS) {
+            statusLabel.setText(String.format("%d of %d TODO%s referencing %d closed ticket%s",
+                    filteredCount, totalCount, totalCount == 1 ? "" : "s", groupCount, groupCount == 1 ? "" : "s"));
+        } else if (isFuzzyActive()) {
+            statusLabel.setText(String.format("Top %d of %d TODO%s (fuzzy)",
+                    filteredCount, totalCount, totalCount == 1 ? "" : "s"));
         } else if (currentFilter.trim().isEmpty()) {
             statusLabel.setText(String.format("%d TODO%s found",
                     totalCount, totalCount == 1 ? "" : "s"));
@@ -178,6 +615,147 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
         }
     }
 
+    /**
+     * Runs a scan for the scope selected in the combo box
+     */
+    private void runScopedScan() {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            return;
+        }
+
+        TodoScanScope scope = (TodoScanScope) scopeComboBox.getSelectedItem();
+        if (scope == null) {
+            return;
+        }
+
+        switch (scope) {
+            case MODULE:
+                chooseModule(service);
+                break;
+            case DIRECTORY:
+                VirtualFile directory = FileChooser.chooseFile(
+                        FileChooserDescriptorFactory.createSingleFolderDescriptor().withTitle("Select Directory to Scan"),
+                        project, null);
+                if (directory != null) {
+                    service.scanDirectory(directory);
+                }
+                break;
+            case CHANGED_FILES:
+                service.scanChangedFiles();
+                break;
+            case PROJECT:
+                service.scanAllFiles();
+                break;
+            case CURRENT_FILE:
+            default:
+                service.scanCurrentFile();
+                break;
+        }
+    }
+
+    /**
+     * Asks what to export and where, then streams the export to the file in the background.
+     * The format follows the file extension.
+     */
+    private void exportTodos() {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            return;
+        }
+
+        int choice = Messages.showDialog(project,
+                "Export the TODOs shown in the list, or scan the whole project for the export?",
+                "Export TODOs",
+                new String[]{"Shown TODOs", "Full Project Scan", Messages.getCancelButton()},
+                0, Messages.getQuestionIcon());
+        if (choice != 0 && choice != 1) {
+            return;
+        }
+        boolean fullScan = choice == 1;
+        // Taken now, so the export matches the list as it is filtered, grouped and snoozed
+        List<TodoItem> shown = fullScan ? Collections.<TodoItem>emptyList() : Collections.list(listModel.elements());
+
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export TODOs",
+                "JSON Lines (.jsonl), CSV (.csv) or SARIF (.sarif)", "jsonl", "csv", "sarif");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save(null, "todos.jsonl");
+        if (target == null) {
+            return;
+        }
+
+        File file = target.getFile();
+        TodoExporter.Format format = TodoExporter.Format.fromFileName(file.getName());
+        TodoExporter.Format exportFormat = format != null ? format : TodoExporter.Format.JSONL;
+
+        new Task.Backgroundable(project, "Exporting TODOs", true) {
+            private long exported = -1;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try (TodoExporter exporter = TodoExporter.create(exportFormat,
+                        Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+                    if (fullScan) {
+                        service.exportProjectScan(exporter, indicator);
+                    } else {
+                        service.exportTodos(shown, exporter);
+                    }
+                    exported = exporter.getCount();
+                } catch (IOException e) {
+                    LOG.warn("Could not export TODOs to " + file, e);
+                    ApplicationManager.getApplication().invokeLater(() ->
+                            Messages.showErrorDialog(project, "Could not export TODOs: " + e.getMessage(), "Export TODOs"));
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (exported < 0) {
+                    return;
+                }
+                statusLabel.setText(String.format("Exported %d TODO%s to %s", exported, exported == 1 ? "" : "s",
+                        file.getName()));
+            }
+        }.queue();
+    }
+
+    /**
+     * Scans the module of the active editor, or lets the user pick a module
+     */
+    private void chooseModule(KotlinTodoService service) {
+        VirtualFile currentFile = service.getCurrentKotlinFile();
+        Module currentModule = currentFile != null ? ModuleUtilCore.findModuleForFile(currentFile, project) : null;
+
+        Module[] modules = ModuleManager.getInstance(project).getModules();
+        if (modules.length == 1) {
+            service.scanModule(modules[0]);
+            return;
+        }
+
+        List<String> moduleNames = new ArrayList<>();
+        if (currentModule != null) {
+            moduleNames.add(currentModule.getName());
+        }
+        for (Module module : modules) {
+            if (module != currentModule) {
+                moduleNames.add(module.getName());
+            }
+        }
+
+        JBPopupFactory.getInstance()
+                .createPopupChooserBuilder(moduleNames)
+                .setTitle("Select Module to Scan")
+                .setItemChosenCallback(name -> {
+                    Module module = ModuleManager.getInstance(project).findModuleByName(name);
+                    if (module != null) {
+                        service.scanModule(module);
+                    }
+                })
+                .createPopup()
+                .showUnderneathOf(scanButton);
+    }
+
     private void navigateToSelectedTodo() {
         TodoItem selected = todoList.getSelectedValue();
         if (selected == null) {
@@ -204,12 +782,42 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
     }
 
     public void updateTodos(List<TodoItem> todos) {
+        updateTodos(todos, TodoScanReport.EMPTY);
+    }
+
+    public void updateTodos(List<TodoItem> todos, TodoScanReport report) {
         SwingUtilities.invokeLater(() -> {
+            long start = System.nanoTime();
             this.allTodos = new ArrayList<>(todos);
+            this.scanReport = report != null ? report : TodoScanReport.EMPTY;
+            this.todoIndex = new TodoIndex(allTodos);
             applyFilter();
+            recordMetric(TodoScanMetrics.EDT_UPDATE, System.nanoTime() - start);
+
+            KotlinTodoService service = project.getService(KotlinTodoService.class);
+            if (service != null) {
+                service.getBlameEnricher().enrich(allTodos, this::onBlameUpdated);
+            }
+            refreshClosedTickets();
         });
     }
 
+    /**
+     * Replaces the filter text as if the user typed it. Used by the load test
+     * to drive keystrokes; must be called on the EDT.
+     * @param text the new filter text
+     */
+    void setFilterText(String text) {
+        filterField.setText(text);
+    }
+
+    private void recordMetric(String operation, long nanos) {
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service != null) {
+            service.getMetrics().record(operation, nanos);
+        }
+    }
+
     public void refreshTodos() {
         // This will be called by the file listener when files change
         // For now, we'll just reapply the current filter
@@ -220,16 +828,39 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
     public void onStateChanged() {
         // React to state changes if needed
         SwingUtilities.invokeLater(() -> {
-            String savedFilter = KotlinTodoState.getInstance().getLastFilterKeyword();
+            KotlinTodoProjectState projectState = KotlinTodoProjectState.getInstance(project);
+            String savedFilter = projectState.getLastFilterKeyword();
             if (!savedFilter.equals(filterField.getText())) {
                 filterField.setText(savedFilter);
                 currentFilter = savedFilter;
                 applyFilter();
             }
+            boolean fuzzy = projectState.isFuzzySearch();
+            if (fuzzy != fuzzyCheckBox.isSelected()) {
+                fuzzyCheckBox.setSelected(fuzzy);
+                applyFilter();
+            }
+            TodoSortOrder order = projectState.getSortOrder();
+            if (order != getSortOrder()) {
+                // Selecting the item fires the combo box listener, which reapplies the filter
+                sortComboBox.setSelectedItem(order);
+            }
+            TodoGroupBy grouping = projectState.getGroupBy();
+            if (grouping != getGroupBy()) {
+                groupComboBox.setSelectedItem(grouping);
+            }
         });
     }
 
-    private static class TodoListCellRenderer extends DefaultListCellRenderer {
+    @Override
+    public void dispose() {
+        // State listener registrations are tied to this disposable; drop the TODO list as well
+        allTodos = new ArrayList<>();
+        todoIndex = new TodoIndex(allTodos);
+        listModel.clear();
+    }
+
+    private class TodoListCellRenderer extends DefaultListCellRenderer {
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value, int index,
                                                       boolean isSelected, boolean cellHasFocus) {
@@ -237,11 +868,28 @@ public class KotlinTodoPanel extends JPanel implements KotlinTodoState.TodoState
 
             if (value instanceof TodoItem) {
                 TodoItem todo = (TodoItem) value;
-                setText(todo.getDisplayText());
+                setText(groupPrefixes.getOrDefault(todo, "") + todo.getDisplayText() + formatAssignee(todo)
+                        + formatBlame(todo));
                 setToolTipText(todo.getText());
             }
 
             return this;
         }
+
+        private String formatAssignee(TodoItem todo) {
+            KotlinTodoProjectState.TodoMetadata metadata = KotlinTodoProjectState.getInstance(project).getMetadata(todo);
+            return metadata != null && !metadata.getAssignee().isEmpty() ? " @" + metadata.getAssignee() : "";
+        }
+
+        private String formatBlame(TodoItem todo) {
+            KotlinTodoService service = project.getService(KotlinTodoService.class);
+            TodoBlame.Line line = service != null ? service.getBlameEnricher().getBlame(todo) : null;
+            if (line == null) {
+                return "";
+            }
+            return line.isCommitted()
+                    ? " - " + line.getAuthor() + ", " + line.formatAge(System.currentTimeMillis())
+                    : " - uncommitted";
+        }
     }
 }
\ No newline at end of file
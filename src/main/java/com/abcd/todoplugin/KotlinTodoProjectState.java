@@ -0,0 +1,420 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.PersistentStateComponentWithModificationTracker;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.Alarm;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Per-project panel state (filter, sorting and grouping) and per-TODO metadata (snoozes and
+ * assignees), stored in the workspace file so that each open project keeps its own filter
+ * and only notifies its own panel. Metadata is keyed by the stable TODO id and carries the
+ * anchor needed to find the TODO again in the next session.
+ * <p>
+ * Changes are applied to the fields immediately but committed in batches: listeners are
+ * notified, the recent keyword is recorded and the modification count (which gates
+ * persistence) is bumped once per quiet period rather than on every keystroke.
+ */
+@State(name = "KotlinTodoProjectState", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public class KotlinTodoProjectState
+        implements PersistentStateComponentWithModificationTracker<KotlinTodoProjectState>, Disposable {
+
+    // Quiet period after the last change before it is committed
+    private static final int COMMIT_DELAY_MS = 400;
+
+    public String lastFilterKeyword = "";
+    public boolean fuzzySearch = false;
+    public String sortOrder = TodoSortOrder.DEFAULT.name();
+    public String groupBy = TodoGroupBy.NONE.name();
+
+    // Replaced rather than modified, so saving never sees a list that is being changed
+    public List<TodoMetadata> todoMetadata = new ArrayList<>();
+
+    // Transient fields (not persisted)
+    private final transient List<KotlinTodoState.TodoStateListener> listeners = new CopyOnWriteArrayList<>();
+    private final transient Alarm commitAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
+    private transient long modificationCount;
+    private transient List<TodoMetadata> indexedMetadata;
+    private final transient Map<String, TodoMetadata> metadataById = new HashMap<>();
+    private final transient Map<String, List<TodoMetadata>> metadataByPath = new HashMap<>();
+
+    /**
+     * Snooze and assignee of one TODO, with the anchor that identifies it across sessions
+     */
+    public static class TodoMetadata {
+        public String id = "";
+        public String path = "";
+        public long fingerprint;
+        public int contextHash;
+        public String text = "";
+        public long snoozedUntil;
+        public String assignee = "";
+
+        public TodoMetadata() {
+        }
+
+        TodoMetadata(TodoMetadata other) {
+            this.id = other.id;
+            this.path = other.path;
+            this.fingerprint = other.fingerprint;
+            this.contextHash = other.contextHash;
+            this.text = other.text;
+            this.snoozedUntil = other.snoozedUntil;
+            this.assignee = other.assignee;
+        }
+
+        public String getAssignee() {
+            return assignee != null ? assignee : "";
+        }
+
+        public boolean isSnoozed(long now) {
+            return snoozedUntil > now;
+        }
+
+        boolean isEmpty() {
+            return snoozedUntil <= 0 && getAssignee().isEmpty();
+        }
+    }
+
+    public static KotlinTodoProjectState getInstance(Project project) {
+        return project.getService(KotlinTodoProjectState.class);
+    }
+
+    @Nullable
+    @Override
+    public KotlinTodoProjectState getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull KotlinTodoProjectState state) {
+        XmlSerializerUtil.copyBean(state, this);
+    }
+
+    @Override
+    public long getStateModificationCount() {
+        return modificationCount;
+    }
+
+    @Override
+    public void dispose() {
+        listeners.clear();
+    }
+
+    public void setLastFilterKeyword(String keyword) {
+        String newKeyword = keyword != null ? keyword : "";
+        if (newKeyword.equals(lastFilterKeyword)) {
+            return;
+        }
+        this.lastFilterKeyword = newKeyword;
+        scheduleCommit();
+    }
+
+    public String getLastFilterKeyword() {
+        return lastFilterKeyword != null ? lastFilterKeyword : "";
+    }
+
+    public void setFuzzySearch(boolean fuzzy) {
+        if (fuzzy == fuzzySearch) {
+            return;
+        }
+        this.fuzzySearch = fuzzy;
+        scheduleCommit();
+    }
+
+    public boolean isFuzzySearch() {
+        return fuzzySearch;
+    }
+
+    public void setSortOrder(TodoSortOrder order) {
+        String name = (order != null ? order : TodoSortOrder.DEFAULT).name();
+        if (name.equals(sortOrder)) {
+            return;
+        }
+        this.sortOrder = name;
+        scheduleCommit();
+    }
+
+    public TodoSortOrder getSortOrder() {
+        try {
+            return sortOrder != null ? TodoSortOrder.valueOf(sortOrder) : TodoSortOrder.DEFAULT;
+        } catch (IllegalArgumentException e) {
+            return TodoSortOrder.DEFAULT;
+        }
+    }
+
+    public void setGroupBy(TodoGroupBy grouping) {
+        String name = (grouping != null ? grouping : TodoGroupBy.NONE).name();
+        if (name.equals(groupBy)) {
+            return;
+        }
+        this.groupBy = name;
+        scheduleCommit();
+    }
+
+    public TodoGroupBy getGroupBy() {
+        try {
+            return groupBy != null ? TodoGroupBy.valueOf(groupBy) : TodoGroupBy.NONE;
+        } catch (IllegalArgumentException e) {
+            return TodoGroupBy.NONE;
+        }
+    }
+
+    /**
+     * Gets the metadata of a TODO
+     * @param todo the TODO
+     * @return the metadata, or null if the TODO has none or no id
+     */
+    public synchronized TodoMetadata getMetadata(TodoItem todo) {
+        return todo.getId() != null ? index().get(todo.getId()) : null;
+    }
+
+    /**
+     * Checks whether a TODO is snoozed
+     * @param todo the TODO
+     * @param now the current time in milliseconds
+     * @return true if the TODO is snoozed until after now
+     */
+    public synchronized boolean isSnoozed(TodoItem todo, long now) {
+        TodoMetadata metadata = getMetadata(todo);
+        return metadata != null && metadata.isSnoozed(now);
+    }
+
+    /**
+     * Hides a TODO from the panel until the given time
+     * @param todo the TODO, which must have an id
+     * @param untilMillis the end of the snooze, or 0 to end it
+     */
+    public void snooze(TodoItem todo, long untilMillis) {
+        updateMetadata(todo, metadata -> metadata.snoozedUntil = untilMillis);
+    }
+
+    /**
+     * Assigns a TODO to someone
+     * @param todo the TODO, which must have an id
+     * @param assignee the assignee, or empty to unassign
+     */
+    public void setAssignee(TodoItem todo, String assignee) {
+        updateMetadata(todo, metadata -> metadata.assignee = assignee != null ? assignee.trim() : "");
+    }
+
+    /**
+     * Ends the snooze of a TODO and unassigns it
+     * @param todo the TODO
+     */
+    public void clearMetadata(TodoItem todo) {
+        updateMetadata(todo, metadata -> {
+            metadata.snoozedUntil = 0;
+            metadata.assignee = "";
+        });
+    }
+
+    /**
+     * Tells whether a TODO id has metadata, in any file
+     * @param id the TODO id
+     * @return true if metadata is stored for the id
+     */
+    public synchronized boolean hasMetadata(String id) {
+        return index().containsKey(id);
+    }
+
+    /**
+     * Gets the anchors of the TODOs of a file that have metadata, so they keep their ids
+     * when the file is first scanned in a session
+     * @param path the file path
+     * @return the anchors, empty if none
+     */
+    public synchronized List<TodoIdentityTracker.Anchor> getAnchors(String path) {
+        List<TodoMetadata> entries = index(path);
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<TodoIdentityTracker.Anchor> anchors = new ArrayList<>(entries.size());
+        for (TodoMetadata metadata : entries) {
+            anchors.add(new TodoIdentityTracker.Anchor(metadata.id, metadata.fingerprint, metadata.contextHash,
+                    metadata.text));
+        }
+        return anchors;
+    }
+
+    /**
+     * Brings the anchors of a file's metadata up to date with a scan of the file, and drops
+     * the metadata of TODOs that are gone
+     * @param path the file path
+     * @param todos the identified TODOs of the file
+     */
+    public void refreshAnchors(String path, List<TodoItem> todos) {
+        synchronized (this) {
+            List<TodoMetadata> entries = index(path);
+            if (entries.isEmpty()) {
+                return;
+            }
+            Map<String, TodoItem> todosById = new HashMap<>();
+            for (TodoItem todo : todos) {
+                if (todo.getId() != null) {
+                    todosById.put(todo.getId(), todo);
+                }
+            }
+
+            List<TodoMetadata> updated = new ArrayList<>(todoMetadata.size());
+            boolean changed = false;
+            for (TodoMetadata metadata : todoMetadata) {
+                if (!path.equals(metadata.path)) {
+                    updated.add(metadata);
+                    continue;
+                }
+                TodoItem todo = todosById.get(metadata.id);
+                if (todo == null) {
+                    changed = true;
+                    continue;
+                }
+                long fingerprint = TodoIdentityTracker.fingerprint(todo.getText());
+                // TODOs restored from the scan snapshot have no context; keep the stored one
+                int contextHash = todo.getContextHash() != TodoIdentityTracker.UNKNOWN_CONTEXT
+                        ? todo.getContextHash() : metadata.contextHash;
+                if (fingerprint != metadata.fingerprint || contextHash != metadata.contextHash) {
+                    TodoMetadata copy = new TodoMetadata(metadata);
+                    copy.fingerprint = fingerprint;
+                    copy.contextHash = contextHash;
+                    copy.text = todo.getText();
+                    metadata = copy;
+                    changed = true;
+                }
+                updated.add(metadata);
+            }
+            if (!changed) {
+                return;
+            }
+            todoMetadata = updated;
+        }
+        scheduleCommit();
+    }
+
+    /**
+     * Follows a moved or renamed file or directory
+     * @param oldPath the previous path
+     * @param newPath the new path
+     */
+    public void moveMetadata(String oldPath, String newPath) {
+        synchronized (this) {
+            String oldPrefix = oldPath + '/';
+            List<TodoMetadata> updated = new ArrayList<>(todoMetadata.size());
+            boolean changed = false;
+            for (TodoMetadata metadata : todoMetadata) {
+                if (metadata.path.equals(oldPath) || metadata.path.startsWith(oldPrefix)) {
+                    metadata = new TodoMetadata(metadata);
+                    metadata.path = newPath + metadata.path.substring(oldPath.length());
+                    changed = true;
+                }
+                updated.add(metadata);
+            }
+            if (!changed) {
+                return;
+            }
+            todoMetadata = updated;
+        }
+        scheduleCommit();
+    }
+
+    private void updateMetadata(TodoItem todo, Consumer<TodoMetadata> change) {
+        if (todo.getId() == null) {
+            return;
+        }
+        synchronized (this) {
+            TodoMetadata existing = index().get(todo.getId());
+            TodoMetadata metadata = existing != null ? new TodoMetadata(existing) : new TodoMetadata();
+            metadata.id = todo.getId();
+            metadata.path = todo.getFilePath();
+            metadata.fingerprint = TodoIdentityTracker.fingerprint(todo.getText());
+            metadata.contextHash = todo.getContextHash();
+            metadata.text = todo.getText();
+            change.accept(metadata);
+
+            List<TodoMetadata> updated = new ArrayList<>(todoMetadata);
+            updated.remove(existing);
+            if (!metadata.isEmpty()) {
+                updated.add(metadata);
+            }
+            todoMetadata = updated;
+        }
+        scheduleCommit();
+    }
+
+    /**
+     * Gets the metadata by id, reindexing after the list was replaced or loaded
+     */
+    private Map<String, TodoMetadata> index() {
+        List<TodoMetadata> current = todoMetadata != null ? todoMetadata : Collections.<TodoMetadata>emptyList();
+        if (current != indexedMetadata) {
+            metadataById.clear();
+            metadataByPath.clear();
+            for (TodoMetadata metadata : current) {
+                metadataById.put(metadata.id, metadata);
+                metadataByPath.computeIfAbsent(metadata.path, k -> new ArrayList<>()).add(metadata);
+            }
+            indexedMetadata = current;
+        }
+        return metadataById;
+    }
+
+    private List<TodoMetadata> index(String path) {
+        index();
+        List<TodoMetadata> entries = metadataByPath.get(path);
+        return entries != null ? entries : Collections.<TodoMetadata>emptyList();
+    }
+
+    /**
+     * Registers a listener that is removed automatically when the parent is disposed
+     * @param listener the listener to notify of state changes
+     * @param parentDisposable controls the lifetime of the registration
+     */
+    public void addStateListener(KotlinTodoState.TodoStateListener listener, Disposable parentDisposable) {
+        listeners.add(listener);
+        Disposer.register(parentDisposable, () -> listeners.remove(listener));
+    }
+
+    /**
+     * Restarts the quiet period; the pending changes are committed once it elapses
+     */
+    private void scheduleCommit() {
+        if (commitAlarm.isDisposed()) {
+            return;
+        }
+        commitAlarm.cancelAllRequests();
+        commitAlarm.addRequest(this::commit, COMMIT_DELAY_MS);
+    }
+
+    private void commit() {
+        modificationCount++;
+
+        // Only keywords the user settled on are recorded; recent keywords are shared across projects
+        KotlinTodoState.getInstance().addRecentKeyword(getLastFilterKeyword());
+
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        for (KotlinTodoState.TodoStateListener listener : listeners) {
+            try {
+                listener.onStateChanged();
+            } catch (Exception e) {
+                // Log but don't let one bad listener break others
+            }
+        }
+    }
+}
@@ -1,28 +1,37 @@
 package com.abcd.todoplugin;
 
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.IndexNotReadyException;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.openapi.vfs.VfsUtilCore;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Set;
 
 /**
- * Scanner for finding TODO comments in Kotlin files
+ * Scanner for finding TODO comments in Kotlin files and the other file types
+ * that a {@link TodoCommentSyntaxProvider} describes
  */
 public class KotlinTodoScanner {
 
-    // Regex patterns for different TODO types
-    private static final Pattern TODO_PATTERN = Pattern.compile(
-            "//\\s*(TODO|FIXME|HACK|NOTE|BUG)\\s*:?\\s*(.*)",
-            Pattern.CASE_INSENSITIVE
-    );
+    /**
+     * Comment syntax providers; the built-in provider is registered last
+     */
+    public static final ExtensionPointName<TodoCommentSyntaxProvider> COMMENT_SYNTAX_EP =
+            ExtensionPointName.create("com.abcd.TODOPlugin.commentSyntaxProvider");
 
     /**
      * Checks if a file is a Kotlin file
@@ -33,10 +42,49 @@ public class KotlinTodoScanner {
         if (file == null) {
             return false;
         }
-        String name = file.getName().toLowerCase();
+        String name = file.getName().toLowerCase(Locale.ROOT);
         return name.endsWith(".kt") || name.endsWith(".kts");
     }
 
+    /**
+     * Checks if a file has a known comment syntax and can be scanned
+     * @param file the virtual file to check
+     * @return true if some provider describes the file's comment syntax
+     */
+    public static boolean isSupportedFile(VirtualFile file) {
+        return getCommentSyntax(file) != null;
+    }
+
+    /**
+     * Gets the comment syntax of a file from the first provider that recognizes it
+     * @param file the virtual file
+     * @return the syntax, or null if the file is not supported
+     */
+    public static TodoCommentSyntax getCommentSyntax(VirtualFile file) {
+        if (file == null || file.isDirectory()) {
+            return null;
+        }
+        for (TodoCommentSyntaxProvider provider : COMMENT_SYNTAX_EP.getExtensionList()) {
+            TodoCommentSyntax syntax = provider.getSyntax(file.getName());
+            if (syntax != null) {
+                return syntax;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the modification stamp of a file's current content: the document's if one is
+     * loaded, otherwise the file's. A document starts out with its file's stamp, so results
+     * computed from either can be matched against the other. Must be called in a read action.
+     * @param file the virtual file
+     * @return the content stamp
+     */
+    public static long getContentStamp(VirtualFile file) {
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        return document != null ? document.getModificationStamp() : file.getModificationStamp();
+    }
+
     /**
      * Scans a document for TODO comments
      * @param document the document to scan
@@ -46,63 +94,142 @@ public class KotlinTodoScanner {
     public static List<TodoItem> scanDocumentForTodos(Document document, VirtualFile file) {
         List<TodoItem> todos = new ArrayList<TodoItem>();
 
-        if (document == null || file == null) {
+        TodoCommentSyntax syntax = getCommentSyntax(file);
+        if (document == null || syntax == null) {
             return todos;
         }
 
-        String text = document.getText();
-        String[] lines = text.split("\n");
+        TodoTextScanner.scan(document.getCharsSequence(), syntax, collector(file, todos));
 
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
-            Matcher matcher = TODO_PATTERN.matcher(line);
+        return todos;
+    }
 
-            if (matcher.find()) {
-                String type = matcher.group(1).toUpperCase();
-                String content = matcher.group(2);
+    /**
+     * Scans a file by streaming its contents from disk in chunks, without loading
+     * a document. Used for files too large to scan through the document cache.
+     * @param file the virtual file to scan
+     * @return list of TodoItem objects found in the file
+     * @throws IOException if the file cannot be read
+     */
+    public static List<TodoItem> scanFileStreaming(VirtualFile file) throws IOException {
+        List<TodoItem> todos = new ArrayList<TodoItem>();
 
-                TodoItem.Priority priority = determinePriority(type);
+        TodoCommentSyntax syntax = getCommentSyntax(file);
+        if (syntax == null) {
+            return todos;
+        }
+
+        try (Reader reader = new InputStreamReader(file.getInputStream(), file.getCharset())) {
+            TodoTextScanner.scan(reader, syntax, collector(file, todos));
+        }
 
-                TodoItem todo = new TodoItem(
+        return todos;
+    }
+
+    private static TodoTextScanner.MatchConsumer collector(VirtualFile file, List<TodoItem> todos) {
+        return new TodoTextScanner.MatchConsumer() {
+            @Override
+            public void onTodo(int lineNumber, int startOffset, String tag, String content, TodoItem.Priority priority) {
+                onTodo(lineNumber, startOffset, tag, content, priority, 0);
+            }
+
+            @Override
+            public void onTodo(int lineNumber, int startOffset, String tag, String content, TodoItem.Priority priority,
+                               int contextHash) {
+                todos.add(new TodoItem(
                         file,
-                        i + 1, // Line numbers are 1-based
-                        type + ": " + content.trim(),
-                        priority
-                );
+                        lineNumber,
+                        startOffset,
+                        tag + ": " + content,
+                        tag,
+                        priority,
+                        contextHash
+                ));
+            }
+        };
+    }
+
+    /**
+     * Creates TODO items from snapshot entries of a file
+     * @param file the virtual file the entries belong to
+     * @param entries the entries decoded from a snapshot
+     * @return list of TodoItem objects
+     */
+    public static List<TodoItem> fromSnapshot(VirtualFile file, List<TodoSnapshot.Entry> entries) {
+        List<TodoItem> todos = new ArrayList<TodoItem>(entries.size());
+        for (TodoSnapshot.Entry entry : entries) {
+            todos.add(new TodoItem(
+                    file,
+                    entry.getLineNumber(),
+                    entry.getStartOffset(),
+                    entry.getTag() + ": " + entry.getContent(),
+                    entry.getTag(),
+                    TodoTextScanner.determinePriority(entry.getTag())
+            ));
+        }
+        return todos;
+    }
+
+    /**
+     * Finds all supported source files in the project
+     * @param project the project to search
+     * @return list of virtual files with a known comment syntax
+     * @throws IndexNotReadyException if called while indexing
+     */
+    public static List<VirtualFile> findAllSourceFilesInProject(Project project) {
+        return findSourceFilesInScope(project, GlobalSearchScope.projectScope(project));
+    }
+
+    /**
+     * Finds the supported source files within a search scope, such as a module or directory.
+     * Files of every registered type are collected in one pass, so mixed-language modules
+     * share a single scan.
+     * @param project the project to search
+     * @param scope the scope to restrict the search to
+     * @return list of virtual files with a known comment syntax in the scope
+     * @throws IndexNotReadyException if called while indexing, rather than returning an incomplete list
+     */
+    public static List<VirtualFile> findSourceFilesInScope(Project project, GlobalSearchScope scope) {
+        List<VirtualFile> sourceFiles = new ArrayList<VirtualFile>();
 
-                todos.add(todo);
+        for (String extension : getSupportedExtensions()) {
+            for (VirtualFile file : FilenameIndex.getAllFilesByExt(project, extension, scope)) {
+                if (isSupportedFile(file)) {
+                    sourceFiles.add(file);
+                }
             }
         }
 
-        return todos;
+        return sourceFiles;
     }
 
     /**
-     * Finds all Kotlin files in the project
+     * Finds the supported source files in the local VCS change lists
      * @param project the project to search
-     * @return list of Kotlin virtual files
+     * @return list of changed virtual files with a known comment syntax
      */
-    public static List<VirtualFile> findAllKotlinFilesInProject(Project project) {
-        List<VirtualFile> kotlinFiles = new ArrayList<VirtualFile>();
+    public static List<VirtualFile> findChangedSourceFiles(Project project) {
+        List<VirtualFile> sourceFiles = new ArrayList<VirtualFile>();
 
         try {
-            // Search for .kt files
-            Collection<VirtualFile> ktFiles = FilenameIndex.getAllFilesByExt(
-                    project, "kt", GlobalSearchScope.projectScope(project)
-            );
-            kotlinFiles.addAll(ktFiles);
-
-            // Search for .kts files (Kotlin script files)
-            Collection<VirtualFile> ktsFiles = FilenameIndex.getAllFilesByExt(
-                    project, "kts", GlobalSearchScope.projectScope(project)
-            );
-            kotlinFiles.addAll(ktsFiles);
-
+            for (VirtualFile file : ChangeListManager.getInstance(project).getAffectedFiles()) {
+                if (file.isValid() && isSupportedFile(file)) {
+                    sourceFiles.add(file);
+                }
+            }
         } catch (Exception e) {
             // Fallback: empty list if there's an error
         }
 
-        return kotlinFiles;
+        return sourceFiles;
+    }
+
+    private static Set<String> getSupportedExtensions() {
+        Set<String> extensions = new LinkedHashSet<String>();
+        for (TodoCommentSyntaxProvider provider : COMMENT_SYNTAX_EP.getExtensionList()) {
+            extensions.addAll(provider.getFileExtensions());
+        }
+        return extensions;
     }
 
     /**
@@ -123,7 +250,12 @@ public class KotlinTodoScanner {
             return new ArrayList<TodoItem>(todos);
         }
 
-        String lowerCaseFilter = filterKeyword.toLowerCase().trim();
+        // Structured queries (tag:, priority:, file:, text:, OR, negation) go through the planner
+        if (TodoQuery.isStructured(filterKeyword)) {
+            return TodoQuery.parse(filterKeyword).execute(new TodoIndex(todos));
+        }
+
+        String lowerCaseFilter = filterKeyword.toLowerCase(Locale.ROOT).trim();
 
         for (TodoItem todo : todos) {
             if (todo != null && matchesTodo(todo, lowerCaseFilter)) {
@@ -134,47 +266,48 @@ public class KotlinTodoScanner {
         return filtered;
     }
 
+    /**
+     * Filters an indexed list of TODOs based on a search keyword or structured query.
+     * Prefer this over {@link #filterTodos(List, String)} when the same TODOs are
+     * filtered repeatedly, since the index is built only once.
+     * @param index the index over the TODOs to filter
+     * @param filterKeyword the keyword or query to filter by
+     * @return filtered list of TODOs in their original order
+     */
+    public static List<TodoItem> filterTodos(TodoIndex index, String filterKeyword) {
+        if (index == null) {
+            return new ArrayList<TodoItem>();
+        }
+
+        if (filterKeyword != null && TodoQuery.isStructured(filterKeyword)) {
+            return TodoQuery.parse(filterKeyword).execute(index);
+        }
+
+        return filterTodos(index.getTodos(), filterKeyword);
+    }
+
     /**
      * Helper method to check if a TODO item matches the filter criteria
      * @param todo the TODO item to check
      * @param filterKeyword the lowercase filter keyword
      * @return true if the TODO matches the filter, false otherwise
      */
-    private static boolean matchesTodo(TodoItem todo, String filterKeyword) {
+    static boolean matchesTodo(TodoItem todo, String filterKeyword) {
         // Check if the TODO text contains the filter keyword
-        if (todo.getText() != null && todo.getText().toLowerCase().contains(filterKeyword)) {
+        if (todo.getText() != null && todo.getText().toLowerCase(Locale.ROOT).contains(filterKeyword)) {
             return true;
         }
 
         // Check if the file name contains the filter keyword
-        if (todo.getFile() != null && todo.getFile().getName().toLowerCase().contains(filterKeyword)) {
+        if (todo.getFile() != null && todo.getFile().getName().toLowerCase(Locale.ROOT).contains(filterKeyword)) {
             return true;
         }
 
         // Check if the display text contains the filter keyword
-        if (todo.getDisplayText() != null && todo.getDisplayText().toLowerCase().contains(filterKeyword)) {
+        if (todo.getDisplayText() != null && todo.getDisplayText().toLowerCase(Locale.ROOT).contains(filterKeyword)) {
             return true;
         }
 
         return false;
     }
-
-    /**
-     * Determines the priority of a TODO based on its type
-     * @param type the TODO type (TODO, FIXME, etc.)
-     * @return the priority level
-     */
-    private static TodoItem.Priority determinePriority(String type) {
-        switch (type.toUpperCase()) {
-            case "FIXME":
-            case "BUG":
-                return TodoItem.Priority.HIGH;
-            case "HACK":
-                return TodoItem.Priority.MEDIUM;
-            case "TODO":
-            case "NOTE":
-            default:
-                return TodoItem.Priority.LOW;
-        }
-    }
 }
\ No newline at end of file
@@ -1,42 +1,167 @@
 package com.abcd.todoplugin;
 
+import com.intellij.ide.projectView.ProjectView;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopes;
+import com.intellij.util.concurrency.AppExecutorUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing TODO scanning and file monitoring
  */
 @Service(Service.Level.PROJECT)
-public final class KotlinTodoService {
+public final class KotlinTodoService implements Disposable {
     private static final Logger LOG = Logger.getInstance(KotlinTodoService.class);
 
+    /**
+     * Ticket status lookups; the first registered resolver is used
+     */
+    public static final ExtensionPointName<TodoTicketResolver> TICKET_RESOLVER_EP =
+            ExtensionPointName.create("com.abcd.TODOPlugin.ticketResolver");
+
+    // Partial results of a running scan are published at most this often
+    private static final long PUBLISH_INTERVAL_NANOS = 150_000_000L;
+
     private final Project project;
-    private KotlinTodoPanel todoPanel;
-    private List<TodoItem> currentTodos = new ArrayList<>();
+    private volatile KotlinTodoPanel todoPanel;
+    private volatile List<TodoItem> currentTodos = new ArrayList<>();
+    private final TodoScanMetrics metrics = new TodoScanMetrics();
+
+    // Latest results per file, and statistics maintained from per-file deltas
+    private final TodoResultStore resultStore = new TodoResultStore();
+    private final TodoStatsTrie statsTrie = new TodoStatsTrie();
+    private final TodoClusterIndex clusterIndex = new TodoClusterIndex();
+    private final TodoTicketIndex ticketIndex = new TodoTicketIndex(TodoTicketIndex.compile(null));
+
+    // Stable TODO ids, seeded from the anchors of TODOs with persisted metadata
+    private final TodoIdentityTracker identityTracker;
+
+    // Author and age of TODO lines, filled in lazily for the panel
+    private final TodoBlameEnricher blameEnricher;
+
+    // Warm-start snapshot and the modification time it was loaded at
+    private TodoSnapshot snapshot;
+    private long snapshotModified = -1;
+
+    // Last scan scope, so refresh() repeats the same kind of scan
+    private volatile TodoScanScope scanScope = TodoScanScope.CURRENT_FILE;
+    private volatile Module lastModule;
+    private volatile VirtualFile lastDirectory;
+
+    // Scoped scans run one at a time off the EDT; starting a new one cancels the running one.
+    // Each scan fans its files out to the worker pool as far as the throttle allows.
+    private final ExecutorService scanExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Kotlin TODO Scan", 1);
+    private final ExecutorService workerExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+            "Kotlin TODO Scan Worker", TodoScanThrottle.MAX_CONCURRENCY);
+    private final TodoScanThrottle scanThrottle;
+    private final AtomicInteger scanGeneration = new AtomicInteger();
+    private volatile Future<?> currentScan;
+
+    // History of per-file TODO counts, appended off the scan threads after each scan
+    private final TodoTrendLog trendLog;
+    private final ExecutorService trendExecutor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Kotlin TODO Trend Log", 1);
+    private final AtomicBoolean trendFlushQueued = new AtomicBoolean();
 
     public KotlinTodoService(Project project) {
         this.project = project;
+        this.scanThrottle = new TodoScanThrottle(project);
+        this.blameEnricher = new TodoBlameEnricher(project);
+        this.identityTracker = new TodoIdentityTracker(path -> KotlinTodoProjectState.getInstance(project).getAnchors(path),
+                id -> KotlinTodoProjectState.getInstance(project).hasMetadata(id));
+        Disposer.register(this, blameEnricher);
+        resultStore.addListener(statsTrie);
+        resultStore.addListener(clusterIndex);
+        resultStore.addListener(ticketIndex);
+
+        this.trendLog = new TodoTrendLog(Paths.get(PathManager.getSystemPath(), "kotlin-todo", "trends",
+                project.getLocationHash() + ".log"));
+        resultStore.addListener((path, oldTodos, newTodos) -> trendLog.record(projectRelativePath(path), newTodos));
     }
 
+    /**
+     * Attaches the panel that displays scan results. The reference is dropped when the
+     * panel is disposed, so a closed tool window does not keep its TODO list alive.
+     */
     public void setTodoPanel(KotlinTodoPanel panel) {
         this.todoPanel = panel;
+        if (panel != null) {
+            Disposer.register(panel, () -> {
+                if (todoPanel == panel) {
+                    todoPanel = null;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void dispose() {
+        scanGeneration.incrementAndGet();
+        scanExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+        // Let the last changes reach the trend log
+        scheduleTrendFlush();
+        trendExecutor.shutdown();
+        todoPanel = null;
+        currentTodos = new ArrayList<>();
+        lastModule = null;
+        lastDirectory = null;
     }
 
     /**
      * Scans the currently active file for TODOs
      */
     public void scanCurrentFile() {
+        scanScope = TodoScanScope.CURRENT_FILE;
+        scanGeneration.incrementAndGet();
         ApplicationManager.getApplication().runReadAction(() -> {
             try {
                 VirtualFile currentFile = getCurrentKotlinFile();
@@ -56,58 +181,622 @@ public final class KotlinTodoService {
      * Scans a specific file for TODOs
      */
     public void scanFile(VirtualFile file) {
-        if (file == null || !KotlinTodoScanner.isKotlinFile(file)) {
+        if (file == null || !KotlinTodoScanner.isSupportedFile(file)) {
             updateTodoPanel(new ArrayList<>());
             return;
         }
 
+        syncTicketPattern();
         ApplicationManager.getApplication().runReadAction(() -> {
+            long start = System.nanoTime();
             try {
-                Document document = FileDocumentManager.getInstance().getDocument(file);
-                if (document != null) {
-                    List<TodoItem> todos = KotlinTodoScanner.scanDocumentForTodos(document, file);
-                    updateTodoPanel(todos);
-                } else {
+                // Explicitly opened files are only subject to the size limits
+                TodoScanPolicy policy = TodoScanPolicy.fromState(KotlinTodoState.getInstance());
+                TodoScanReport report = new TodoScanReport();
+                List<TodoItem> todos = scanWithPolicy(file, policy.evaluateSize(file), report);
+                if (report.getScannedFiles() == 0 && report.getSnapshotFiles() == 0 && report.getSkippedFiles() == 0) {
                     LOG.warn("Could not get document for file: " + file.getName());
-                    updateTodoPanel(new ArrayList<>());
                 }
+                updateTodoPanel(todos, report);
+                scheduleTrendFlush();
             } catch (Exception e) {
                 LOG.error("Error scanning file: " + file.getName(), e);
                 updateTodoPanel(new ArrayList<>());
+            } finally {
+                metrics.record(TodoScanMetrics.SCAN_FILE, System.nanoTime() - start);
             }
         });
     }
 
     /**
-     * Scans all Kotlin files in the project for TODOs
+     * Scans all supported source files in the project for TODOs
      */
     public void scanAllFiles() {
-        ApplicationManager.getApplication().runReadAction(() -> {
+        scanScope = TodoScanScope.PROJECT;
+        submitScan(() -> KotlinTodoScanner.findAllSourceFilesInProject(project), true);
+    }
+
+    /**
+     * Scans the source files of a single module for TODOs
+     * @param module the module to scan
+     */
+    public void scanModule(Module module) {
+        if (module == null) {
+            return;
+        }
+        scanScope = TodoScanScope.MODULE;
+        lastModule = module;
+        submitScan(() -> KotlinTodoScanner.findSourceFilesInScope(project, GlobalSearchScope.moduleScope(module)), false);
+    }
+
+    /**
+     * Scans the source files under a directory (recursively) for TODOs
+     * @param directory the root of the subtree to scan
+     */
+    public void scanDirectory(VirtualFile directory) {
+        if (directory == null || !directory.isDirectory()) {
+            return;
+        }
+        scanScope = TodoScanScope.DIRECTORY;
+        lastDirectory = directory;
+        submitScan(() -> KotlinTodoScanner.findSourceFilesInScope(
+                project, GlobalSearchScopes.directoryScope(project, directory, true)), false);
+    }
+
+    /**
+     * Scans the source files in the local VCS change lists for TODOs
+     */
+    public void scanChangedFiles() {
+        scanScope = TodoScanScope.CHANGED_FILES;
+        submitScan(() -> KotlinTodoScanner.findChangedSourceFiles(project), false);
+    }
+
+    /**
+     * Starts a background scan of the files found by the supplier, cancelling any scan still running
+     * @param fileSupplier finds the files to scan; called inside a read action once indexing has finished,
+     *                     since file listings come from the indexes
+     * @param completeListing whether the supplier lists every source file of the project, so results of
+     *                        files it does not list can be dropped; such a supplier must throw rather than
+     *                        return a partial list
+     */
+    private void submitScan(Supplier<List<VirtualFile>> fileSupplier, boolean completeListing) {
+        int generation = scanGeneration.incrementAndGet();
+        TodoScanScope scope = scanScope;
+        try {
+            currentScan = scanExecutor.submit(() -> {
+                if (generation == scanGeneration.get()) {
+                    // A failed listing throws here, so it never reaches scanFiles and drops no results
+                    List<VirtualFile> files = DumbService.getInstance(project).runReadActionInSmartMode(fileSupplier::get);
+                    if (generation == scanGeneration.get()) {
+                        scanFiles(files, scope, completeListing, generation);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The service is being disposed
+        }
+    }
+
+    /**
+     * Waits for the running scoped scan, if any, to finish
+     * @param timeoutMillis the maximum time to wait
+     * @return true if no scan is running anymore
+     */
+    boolean waitForScan(long timeoutMillis) throws InterruptedException {
+        Future<?> scan = currentScan;
+        if (scan == null) {
+            return true;
+        }
+        try {
+            scan.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Scans the given files in priority order and publishes their combined TODOs, with partial
+     * results published as the scan progresses. Files are scanned in rounds sized by the throttle;
+     * within a round, workers claim batches from a shared cursor and read each file in its own
+     * short read action so the scan does not hold off writes. Stops early if a newer scan was started.
+     * When the files are a complete listing of the project and all of them were scanned, results and
+     * trend history of files that are not listed are dropped.
+     */
+    private void scanFiles(List<VirtualFile> files, TodoScanScope scope, boolean completeListing, int generation) {
+        long start = System.nanoTime();
+        syncTicketPattern();
+        try {
+            List<VirtualFile> ordered = ReadAction.compute(() -> TodoScanScheduler.order(project, files));
+            TodoScanPolicy policy = TodoScanPolicy.fromState(KotlinTodoState.getInstance());
+            TodoScanReport report = new TodoScanReport();
+            long deadline = policy.deadlineFromNow();
+            long nextPublish = System.nanoTime() + PUBLISH_INTERVAL_NANOS;
+
+            // Results in scan order, so priority files stay at the top of the list
+            AtomicReferenceArray<List<TodoItem>> results = new AtomicReferenceArray<>(ordered.size());
+            int position = 0;
+
+            while (position < ordered.size()) {
+                if (generation != scanGeneration.get() || project.isDisposed()) {
+                    return;
+                }
+                if (System.nanoTime() > deadline) {
+                    report.budgetExceeded(ordered.size() - position);
+                    break;
+                }
+
+                TodoScanThrottle.Round round = scanThrottle.nextRound();
+                if (round.getPauseMillis() > 0) {
+                    // Time spent yielding to the IDE does not count against the budget
+                    Thread.sleep(round.getPauseMillis());
+                    deadline += round.getPauseMillis() * 1_000_000L;
+                }
+
+                int end = Math.min(ordered.size(), position + round.getConcurrency() * round.getBatchSize());
+                long roundStart = System.nanoTime();
+                scanRound(ordered, position, end, round, policy, report, results, generation);
+                scanThrottle.roundCompleted(round, end - position, System.nanoTime() - roundStart);
+                position = end;
+
+                if (System.nanoTime() >= nextPublish) {
+                    updateTodoPanel(collectResults(results, position), report);
+                    nextPublish = System.nanoTime() + PUBLISH_INTERVAL_NANOS;
+                }
+            }
+
+            // A complete project scan also drops results of files that no longer exist
+            if (completeListing && !report.isBudgetExceeded()) {
+                Set<String> scannedPaths = new HashSet<>();
+                for (VirtualFile file : ordered) {
+                    scannedPaths.add(file.getPath());
+                }
+                resultStore.retainOnly(scannedPaths);
+
+                Set<String> trendPaths = new HashSet<>();
+                for (String path : scannedPaths) {
+                    trendPaths.add(projectRelativePath(path));
+                }
+                try {
+                    trendLog.retainOnly(trendPaths);
+                } catch (IOException e) {
+                    LOG.warn("Could not read TODO trend log", e);
+                }
+            }
+            refreshProjectView();
+
+            updateTodoPanel(collectResults(results, position), report);
+            scheduleTrendFlush();
+        } catch (InterruptedException e) {
+            // The service is being disposed
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error("Error scanning files in scope " + scope, e);
+            updateTodoPanel(new ArrayList<>());
+        } finally {
+            metrics.record(TodoScanMetrics.SCAN_FILES, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Scans files {@code from} (inclusive) to {@code to} (exclusive) with the round's number of
+     * workers, each claiming the next batch until none are left, and waits for all of them
+     */
+    private void scanRound(List<VirtualFile> ordered, int from, int to, TodoScanThrottle.Round round,
+                           TodoScanPolicy policy, TodoScanReport report,
+                           AtomicReferenceArray<List<TodoItem>> results, int generation)
+            throws InterruptedException, ExecutionException {
+        AtomicInteger cursor = new AtomicInteger(from);
+        int batchSize = round.getBatchSize();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < round.getConcurrency(); w++) {
+            workers.add(workerExecutor.submit(() -> {
+                int batchStart;
+                while ((batchStart = cursor.getAndAdd(batchSize)) < to) {
+                    for (int i = batchStart; i < Math.min(batchStart + batchSize, to); i++) {
+                        if (generation != scanGeneration.get()) {
+                            return;
+                        }
+                        results.set(i, scanScheduledFile(ordered.get(i), policy, report));
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+    }
+
+    /**
+     * Scans one file of a scoped scan in its own read action. A file that cannot be read or
+     * scanned is recorded as skipped, so one bad file does not end the whole scan.
+     */
+    private List<TodoItem> scanScheduledFile(VirtualFile file, TodoScanPolicy policy, TodoScanReport report) {
+        try {
+            return ReadAction.compute(() -> file.isValid()
+                    ? scanWithPolicy(file, policy.evaluate(file, project), report)
+                    : Collections.<TodoItem>emptyList());
+        } catch (IOException e) {
+            LOG.warn("Could not read file: " + file.getName(), e);
+            report.fileSkipped("unreadable");
+            return Collections.emptyList();
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            LOG.warn("Could not scan file: " + file.getName(), e);
+            report.fileSkipped("scan error");
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Concatenates the results of the first {@code count} files in scan order
+     */
+    private static List<TodoItem> collectResults(AtomicReferenceArray<List<TodoItem>> results, int count) {
+        List<TodoItem> todos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<TodoItem> fileTodos = results.get(i);
+            if (fileTodos != null) {
+                todos.addAll(fileTodos);
+            }
+        }
+        return todos;
+    }
+
+    /**
+     * Scans one file according to the policy decision for it, recording the outcome in the report.
+     * Files over the streaming threshold are read from disk in chunks unless they have unsaved
+     * changes, in which case their in-memory document is scanned.
+     */
+    private List<TodoItem> scanWithPolicy(VirtualFile file, TodoScanPolicy.Decision decision,
+                                          TodoScanReport report) throws IOException {
+        if (decision.isSkipped()) {
+            report.fileSkipped(decision.getReason());
+            resultStore.remove(file.getPath());
+            return Collections.emptyList();
+        }
+
+        FileDocumentManager documentManager = FileDocumentManager.getInstance();
+        boolean stream = decision == TodoScanPolicy.Decision.STREAM && !documentManager.isFileModified(file);
+        long stamp = KotlinTodoScanner.getContentStamp(file);
+
+        List<TodoItem> todos = null;
+        if (documentManager.getCachedDocument(file) == null) {
             try {
-                List<TodoItem> allTodos = new ArrayList<>();
-                List<VirtualFile> kotlinFiles = KotlinTodoScanner.findAllKotlinFilesInProject(project);
+                todos = loadFromSnapshot(file, stream);
+            } catch (RuntimeException e) {
+                // Never lose the file over the snapshot; scan it instead
+                LOG.warn("Could not take " + file.getName() + " from the TODO snapshot", e);
+            }
+        }
+        if (todos != null) {
+            report.fileFromSnapshot();
+        } else if (stream) {
+            todos = KotlinTodoScanner.scanFileStreaming(file);
+            report.fileScanned(true);
+        } else {
+            Document document = documentManager.getDocument(file);
+            if (document == null) {
+                return Collections.emptyList();
+            }
+            todos = KotlinTodoScanner.scanDocumentForTodos(document, file);
+            report.fileScanned(false);
+        }
+
+        return publishResults(file, todos, stamp);
+    }
+
+    /**
+     * Gives freshly scanned TODOs their stable ids and makes them the file's current results
+     * @param file the scanned file
+     * @param todos the TODOs found in it
+     * @param stamp the modification stamp of the scanned content, or -1 if unknown
+     * @return the identified TODOs
+     */
+    public List<TodoItem> publishResults(VirtualFile file, List<TodoItem> todos, long stamp) {
+        List<TodoItem> identified = identityTracker.assign(file.getPath(), todos);
+        KotlinTodoProjectState.getInstance(project).refreshAnchors(file.getPath(), identified);
+        resultStore.update(file.getPath(), identified, stamp);
+        return identified;
+    }
+
+    /**
+     * Carries results, ids and metadata of a moved or renamed file or directory over to its new path
+     * @param oldPath the previous path
+     * @param newPath the new path
+     */
+    public void fileMoved(String oldPath, String newPath) {
+        identityTracker.move(oldPath, newPath);
+        KotlinTodoProjectState.getInstance(project).moveMetadata(oldPath, newPath);
+
+        String oldPrefix = oldPath + '/';
+        for (String path : resultStore.getPaths()) {
+            if (path.equals(oldPath) || path.startsWith(oldPrefix)) {
+                resultStore.move(path, newPath + path.substring(oldPath.length()));
+            }
+        }
+    }
+
+    /**
+     * Drops the results and ids of a deleted file or directory. Metadata is kept, so the
+     * TODOs get their ids back if the deletion is undone.
+     * @param path the deleted path
+     */
+    public void fileDeleted(String path) {
+        identityTracker.forget(path);
+
+        String prefix = path + '/';
+        for (String resultPath : resultStore.getPaths()) {
+            if (resultPath.equals(path) || resultPath.startsWith(prefix)) {
+                resultStore.remove(resultPath);
+            }
+        }
+    }
 
-                for (VirtualFile file : kotlinFiles) {
-                    Document document = FileDocumentManager.getInstance().getDocument(file);
+    /**
+     * Writes TODOs to an exporter with their project-relative paths
+     * @param todos the TODOs to export, e.g. the ones the panel shows
+     * @param exporter receives the TODOs
+     * @throws IOException if the export cannot be written
+     */
+    public void exportTodos(List<TodoItem> todos, TodoExporter exporter) throws IOException {
+        for (TodoItem todo : todos) {
+            if (todo.getFile() != null) {
+                exporter.write(todo, projectRelativePath(todo.getFile().getPath()));
+            }
+        }
+    }
+
+    /**
+     * Scans every supported file in the project and streams the TODOs straight to an exporter.
+     * Nothing is retained between files, so memory use does not grow with the number of
+     * results; the result store and the panel are left untouched.
+     * @param exporter receives the TODOs
+     * @param indicator reports progress and allows cancelling
+     * @throws IOException if the export cannot be written
+     */
+    public void exportProjectScan(TodoExporter exporter, ProgressIndicator indicator) throws IOException {
+        List<VirtualFile> files = DumbService.getInstance(project)
+                .runReadActionInSmartMode(() -> KotlinTodoScanner.findAllSourceFilesInProject(project));
+        TodoScanPolicy policy = TodoScanPolicy.fromState(KotlinTodoState.getInstance());
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                indicator.checkCanceled();
+                indicator.setFraction((double) i / files.size());
+
+                VirtualFile file = files.get(i);
+                String exportPath = projectRelativePath(file.getPath());
+                TodoTextScanner.MatchConsumer writer = (lineNumber, startOffset, tag, content, priority) -> {
+                    try {
+                        exporter.write(exportPath, lineNumber, tag, priority, content);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+
+                ReadAction.run(() -> {
+                    TodoCommentSyntax syntax = KotlinTodoScanner.getCommentSyntax(file);
+                    if (syntax == null || !file.isValid() || policy.evaluate(file, project).isSkipped()) {
+                        return;
+                    }
+
+                    // Unsaved changes are exported as they are in the editor; everything else is streamed from disk
+                    FileDocumentManager documentManager = FileDocumentManager.getInstance();
+                    Document document = documentManager.isFileModified(file) ? documentManager.getCachedDocument(file) : null;
                     if (document != null) {
-                        List<TodoItem> fileTodos = KotlinTodoScanner.scanDocumentForTodos(document, file);
-                        allTodos.addAll(fileTodos);
+                        TodoTextScanner.scan(document.getCharsSequence(), syntax, writer);
+                    } else {
+                        try (Reader reader = new InputStreamReader(file.getInputStream(), file.getCharset())) {
+                            TodoTextScanner.scan(reader, syntax, writer);
+                        }
                     }
+                });
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Gets TODO counts per module over time from the trend log, without rescanning. Reads
+     * the log, so call it off the EDT.
+     * @param fromMillis the start of the first bucket
+     * @param toMillis the end of the last bucket
+     * @param buckets the number of equal-width buckets
+     * @param tag only count this tag (e.g. "FIXME"), or null for all tags
+     * @return per module name, the count at the end of each bucket
+     * @throws IOException if the log cannot be read
+     */
+    public Map<String, int[]> getModuleTrend(long fromMillis, long toMillis, int buckets, String tag)
+            throws IOException {
+        return trendLog.trend(fromMillis, toMillis, buckets, tag, path -> ReadAction.compute(() -> moduleName(path)));
+    }
+
+    /**
+     * Gets the module of a trend log path. Files that no longer exist are attributed to
+     * the module of their nearest remaining directory.
+     */
+    private String moduleName(String path) {
+        String basePath = project.getBasePath();
+        String fullPath = basePath != null && !Paths.get(path).isAbsolute() ? basePath + "/" + path : path;
+
+        LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+        VirtualFile file = fileSystem.findFileByPath(fullPath);
+        while (file == null && fullPath.lastIndexOf('/') > 0) {
+            fullPath = fullPath.substring(0, fullPath.lastIndexOf('/'));
+            file = fileSystem.findFileByPath(fullPath);
+        }
+
+        Module module = file != null ? ModuleUtilCore.findModuleForFile(file, project) : null;
+        return module != null ? module.getName() : "(no module)";
+    }
+
+    /**
+     * Appends the changes since the last flush to the trend log; bursts are coalesced
+     */
+    private void scheduleTrendFlush() {
+        if (!trendFlushQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            trendExecutor.execute(() -> {
+                trendFlushQueued.set(false);
+                try {
+                    trendLog.flush(System.currentTimeMillis());
+                } catch (IOException e) {
+                    LOG.warn("Could not write TODO trend log", e);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            // The service is disposed
+            trendFlushQueued.set(false);
+        }
+    }
 
-                updateTodoPanel(allTodos);
-            } catch (Exception e) {
-                LOG.error("Error scanning all files", e);
-                updateTodoPanel(new ArrayList<>());
+    /**
+     * Gets a path relative to the project root where possible, as recorded in exports
+     * and the trend log
+     */
+    private String projectRelativePath(String path) {
+        String basePath = project.getBasePath();
+        return basePath != null && path.startsWith(basePath + "/") ? path.substring(basePath.length() + 1) : path;
+    }
+
+    /**
+     * Takes a file's TODOs from the warm-start snapshot if its content hash still matches
+     * @param streamed true to hash the file by streaming instead of loading it at once
+     * @return the TODOs, or null if the file has to be scanned
+     */
+    private List<TodoItem> loadFromSnapshot(VirtualFile file, boolean streamed) throws IOException {
+        TodoSnapshot current = getSnapshot();
+        String basePath = project.getBasePath();
+        if (current == null || basePath == null || !file.getPath().startsWith(basePath + "/")) {
+            return null;
+        }
+
+        String relativePath = file.getPath().substring(basePath.length() + 1);
+        Long storedHash = current.getContentHash(relativePath);
+        if (storedHash == null) {
+            return null;
+        }
+
+        long actualHash;
+        if (streamed) {
+            try (InputStream input = file.getInputStream()) {
+                actualHash = TodoSnapshot.contentHash(input);
             }
-        });
+        } else {
+            actualHash = TodoSnapshot.contentHash(file.contentsToByteArray());
+        }
+
+        if (actualHash != storedHash) {
+            return null;
+        }
+        List<TodoSnapshot.Entry> entries;
+        try {
+            entries = current.getTodos(relativePath);
+        } catch (IOException e) {
+            discardSnapshot(current, e);
+            return null;
+        }
+        return KotlinTodoScanner.fromSnapshot(file, entries);
+    }
+
+    /**
+     * Stops using a snapshot found to be corrupt; it is not loaded again until the file changes
+     */
+    private synchronized void discardSnapshot(TodoSnapshot corrupt, IOException e) {
+        if (snapshot == corrupt) {
+            LOG.warn("Ignoring the TODO snapshot until it is rewritten", e);
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Gets the warm-start snapshot, mapping it again if the file changed on disk
+     * @return the snapshot, or null if there is none
+     */
+    private synchronized TodoSnapshot getSnapshot() {
+        String basePath = project.getBasePath();
+        String snapshotPath = KotlinTodoState.getInstance().getSnapshotPath();
+        if (basePath == null || snapshotPath.isEmpty()) {
+            return null;
+        }
+
+        Path path = Paths.get(basePath).resolve(snapshotPath);
+        try {
+            if (!Files.isRegularFile(path)) {
+                snapshot = null;
+                snapshotModified = -1;
+                return null;
+            }
+
+            // A snapshot that failed to load is not retried until the file changes again
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified != snapshotModified) {
+                snapshotModified = modified;
+                snapshot = null;
+                snapshot = TodoSnapshot.open(path);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not load TODO snapshot: " + path, e);
+            snapshot = null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Repaints Project view decorations after the statistics changed
+     */
+    private void refreshProjectView() {
+        if (KotlinTodoState.getInstance().isProjectViewDecorations()) {
+            ApplicationManager.getApplication().invokeLater(
+                    () -> ProjectView.getInstance(project).refresh(), project.getDisposed());
+        }
     }
 
     /**
      * Refreshes the current scan (rescans current file or all files based on last operation)
      */
     public void refresh() {
-        scanCurrentFile(); // Default to current file scan
+        switch (scanScope) {
+            case PROJECT:
+                scanAllFiles();
+                break;
+            case MODULE:
+                if (lastModule != null && !lastModule.isDisposed()) {
+                    scanModule(lastModule);
+                } else {
+                    scanCurrentFile();
+                }
+                break;
+            case DIRECTORY:
+                if (lastDirectory != null && lastDirectory.isValid()) {
+                    scanDirectory(lastDirectory);
+                } else {
+                    scanCurrentFile();
+                }
+                break;
+            case CHANGED_FILES:
+                scanChangedFiles();
+                break;
+            case CURRENT_FILE:
+            default:
+                scanCurrentFile();
+                break;
+        }
+    }
+
+    /**
+     * Gets the scope of the last scan
+     * @return the scan scope
+     */
+    public TodoScanScope getScanScope() {
+        return scanScope;
     }
 
     /**
@@ -152,27 +841,37 @@ public final class KotlinTodoService {
      * Updates the TODO panel with the given list of TODOs
      */
     private void updateTodoPanel(List<TodoItem> todos) {
-        this.currentTodos = new ArrayList<>(todos);
+        updateTodoPanel(todos, TodoScanReport.EMPTY);
+    }
+
+    /**
+     * Updates the TODO panel with the given list of TODOs and the report of the scan that produced them
+     */
+    private void updateTodoPanel(List<TodoItem> todos, TodoScanReport report) {
+        // Copy, since a running scan keeps appending to its list
+        List<TodoItem> published = new ArrayList<>(todos);
+        this.currentTodos = published;
 
-        if (todoPanel != null) {
+        KotlinTodoPanel panel = todoPanel;
+        if (panel != null) {
             // Update on EDT (Event Dispatch Thread) since we're updating UI
             ApplicationManager.getApplication().invokeLater(() -> {
-                todoPanel.updateTodos(todos);
-            });
+                panel.updateTodos(published, report);
+            }, project.getDisposed());
         }
     }
 
     /**
-     * Gets the currently active Kotlin file in the editor
-     * @return the current Kotlin file or null if no Kotlin file is active
+     * Gets the currently active file in the editor if it can be scanned
+     * @return the current file or null if no supported file is active
      */
-    private VirtualFile getCurrentKotlinFile() {
+    public VirtualFile getCurrentKotlinFile() {
         FileEditorManager editorManager = FileEditorManager.getInstance(project);
         VirtualFile[] selectedFiles = editorManager.getSelectedFiles();
 
         if (selectedFiles.length > 0) {
             VirtualFile currentFile = selectedFiles[0];
-            if (KotlinTodoScanner.isKotlinFile(currentFile)) {
+            if (KotlinTodoScanner.isSupportedFile(currentFile)) {
                 return currentFile;
             }
         }
@@ -188,6 +887,88 @@ public final class KotlinTodoService {
         return new ArrayList<>(currentTodos);
     }
 
+    /**
+     * Gets the latency metrics recorded by scans and the panel
+     * @return the metrics
+     */
+    public TodoScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the latest scan results per file
+     * @return the result store
+     */
+    public TodoResultStore getResultStore() {
+        return resultStore;
+    }
+
+    /**
+     * Gets the TODO statistics rolled up by directory
+     * @return the statistics trie
+     */
+    public TodoStatsTrie getStatsTrie() {
+        return statsTrie;
+    }
+
+    /**
+     * Gets the groups of near-duplicate TODOs across the scanned files
+     * @return the cluster index
+     */
+    public TodoClusterIndex getClusterIndex() {
+        return clusterIndex;
+    }
+
+    /**
+     * Gets the inverted index from ticket IDs to the TODOs that mention them
+     * @return the ticket index
+     */
+    public TodoTicketIndex getTicketIndex() {
+        return ticketIndex;
+    }
+
+    /**
+     * Finds the TODOs that mention closed tickets, using the registered ticket resolver.
+     * Resolvers may block on the network, so this must not be called on the EDT.
+     * @return the TODOs by closed ticket, empty if no resolver is registered
+     */
+    public Map<String, List<TodoItem>> findTodosOfClosedTickets() {
+        List<TodoTicketResolver> resolvers = TICKET_RESOLVER_EP.getExtensionList();
+        if (resolvers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return ticketIndex.findByStatus(resolvers.get(0), TodoTicketResolver.Status.CLOSED);
+    }
+
+    /**
+     * Re-indexes tickets if the configured pattern changed since the last scan
+     */
+    private void syncTicketPattern() {
+        String regex = KotlinTodoState.getInstance().getTicketPattern();
+        try {
+            ticketIndex.setPattern(TodoTicketIndex.compile(regex), resultStore);
+        } catch (PatternSyntaxException e) {
+            LOG.warn("Invalid ticket pattern, using the default: " + regex, e);
+            ticketIndex.setPattern(TodoTicketIndex.compile(null), resultStore);
+        }
+    }
+
+    /**
+     * Gets the authorship annotations of TODO lines
+     * @return the blame enricher
+     */
+    public TodoBlameEnricher getBlameEnricher() {
+        return blameEnricher;
+    }
+
+    /**
+     * Gets the panel currently attached to this service
+     * @return the panel, or null if the tool window has not been created
+     */
+    KotlinTodoPanel getTodoPanel() {
+        return todoPanel;
+    }
+
     /**
      * Gets the project associated with this service
      * @return the project instance
@@ -233,9 +1014,9 @@ public final class KotlinTodoService {
             return getCurrentTodos();
         }
 
-        String lowerSearchText = searchText.toLowerCase();
+        String lowerSearchText = searchText.toLowerCase(Locale.ROOT);
         return currentTodos.stream()
-                .filter(todo -> todo.getText().toLowerCase().contains(lowerSearchText))
+                .filter(todo -> todo.getText().toLowerCase(Locale.ROOT).contains(lowerSearchText))
                 .collect(Collectors.toList());
     }
 }
\ No newline at end of file
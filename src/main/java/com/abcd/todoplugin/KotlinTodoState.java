@@ -1,25 +1,49 @@
 package com.abcd.todoplugin;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.PersistentStateComponentWithModificationTracker;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.util.xmlb.XmlSerializerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @State(name = "KotlinTodoState", storages = @Storage("kotlinTodoState.xml"))
-public class KotlinTodoState implements PersistentStateComponent<KotlinTodoState> {
+public class KotlinTodoState implements PersistentStateComponentWithModificationTracker<KotlinTodoState> {
+
+    private static final int MAX_RECENT_KEYWORDS = 10;
 
-    public String lastFilterKeyword = "";
     public boolean toolWindowVisible = true;
+    public boolean projectViewDecorations = true;
     public List<String> recentKeywords = new ArrayList<>();
 
+    // Scan policy settings
+    public int maxFileSizeKb = 8 * 1024;
+    public int streamingThresholdKb = 512;
+    public int scanTimeBudgetMs = 15000;
+    public List<String> excludedDirectoryNames = new ArrayList<>(KotlinTodoHeadless.DEFAULT_EXCLUDED_DIRECTORIES);
+
+    // Ticket IDs in TODO text; group 1 is the ID if the pattern has a group
+    public String ticketPattern = TodoTicketIndex.DEFAULT_PATTERN;
+
+    // Warm-start snapshot, relative to the project base directory
+    public String snapshotPath = ".todo-snapshot.bin";
+
     // Transient fields (not persisted)
-    private transient List<TodoStateListener> listeners = new ArrayList<>();
+    private final transient List<TodoStateListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Recent keywords in access order, oldest first; recentKeywords is its persisted form
+    private final transient LinkedHashSet<String> recentKeywordSet = new LinkedHashSet<>();
+    private transient long modificationCount;
 
     public static KotlinTodoState getInstance() {
         return ApplicationManager.getApplication().getService(KotlinTodoState.class);
@@ -27,42 +51,64 @@ public class KotlinTodoState implements PersistentStateComponent<KotlinTodoState
 
     @Nullable
     @Override
-    public KotlinTodoState getState() {
+    public synchronized KotlinTodoState getState() {
+        // Persist most recent first
+        List<String> keywords = new ArrayList<>(recentKeywordSet);
+        Collections.reverse(keywords);
+        recentKeywords = keywords;
         return this;
     }
 
     @Override
-    public void loadState(@NotNull KotlinTodoState state) {
+    public synchronized void loadState(@NotNull KotlinTodoState state) {
         XmlSerializerUtil.copyBean(state, this);
 
-        // Initialize transient fields
-        if (listeners == null) {
-            listeners = new ArrayList<>();
+        recentKeywordSet.clear();
+        if (recentKeywords != null) {
+            List<String> keywords = new ArrayList<>(recentKeywords);
+            Collections.reverse(keywords);
+            for (String keyword : keywords) {
+                touchRecentKeyword(keyword);
+            }
         }
     }
 
-    public void setLastFilterKeyword(String keyword) {
-        this.lastFilterKeyword = keyword != null ? keyword : "";
-
-        // Add to recent keywords if not empty and not already present
-        if (!keyword.trim().isEmpty() && !recentKeywords.contains(keyword)) {
-            recentKeywords.add(0, keyword);
+    @Override
+    public synchronized long getStateModificationCount() {
+        return modificationCount;
+    }
 
-            // Keep only last 10 keywords
-            if (recentKeywords.size() > 10) {
-                recentKeywords = recentKeywords.subList(0, 10);
-            }
+    /**
+     * Records a filter keyword in the recent keywords shared by all projects.
+     * Moving an existing keyword to the front and evicting the oldest are O(1).
+     * @param keyword the keyword the user filtered by
+     */
+    public synchronized void addRecentKeyword(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return;
         }
 
-        notifyListeners();
+        touchRecentKeyword(keyword);
+        modificationCount++;
     }
 
-    public String getLastFilterKeyword() {
-        return lastFilterKeyword != null ? lastFilterKeyword : "";
+    private void touchRecentKeyword(String keyword) {
+        recentKeywordSet.remove(keyword);
+        recentKeywordSet.add(keyword);
+
+        // Keep only the most recent keywords
+        if (recentKeywordSet.size() > MAX_RECENT_KEYWORDS) {
+            Iterator<String> oldest = recentKeywordSet.iterator();
+            oldest.next();
+            oldest.remove();
+        }
     }
 
     public void setToolWindowVisible(boolean visible) {
-        this.toolWindowVisible = visible;
+        synchronized (this) {
+            this.toolWindowVisible = visible;
+            modificationCount++;
+        }
         notifyListeners();
     }
 
@@ -70,31 +116,64 @@ public class KotlinTodoState implements PersistentStateComponent<KotlinTodoState
         return toolWindowVisible;
     }
 
-    public List<String> getRecentKeywords() {
-        return recentKeywords != null ? new ArrayList<>(recentKeywords) : new ArrayList<>();
+    public boolean isProjectViewDecorations() {
+        return projectViewDecorations;
     }
 
-    public void addStateListener(TodoStateListener listener) {
-        if (listeners == null) {
-            listeners = new ArrayList<>();
-        }
+    /**
+     * Gets the recent filter keywords
+     * @return the keywords, most recent first
+     */
+    public synchronized List<String> getRecentKeywords() {
+        List<String> keywords = new ArrayList<>(recentKeywordSet);
+        Collections.reverse(keywords);
+        return keywords;
+    }
+
+    public int getMaxFileSizeKb() {
+        return maxFileSizeKb;
+    }
+
+    public int getStreamingThresholdKb() {
+        return streamingThresholdKb;
+    }
+
+    public int getScanTimeBudgetMs() {
+        return scanTimeBudgetMs;
+    }
+
+    public List<String> getExcludedDirectoryNames() {
+        return excludedDirectoryNames != null ? new ArrayList<>(excludedDirectoryNames) : new ArrayList<>();
+    }
+
+    public String getTicketPattern() {
+        return ticketPattern != null ? ticketPattern : TodoTicketIndex.DEFAULT_PATTERN;
+    }
+
+    public String getSnapshotPath() {
+        return snapshotPath != null ? snapshotPath : "";
+    }
+
+    /**
+     * Registers a listener that is removed automatically when the parent is disposed
+     * @param listener the listener to notify of state changes
+     * @param parentDisposable controls the lifetime of the registration
+     */
+    public void addStateListener(TodoStateListener listener, Disposable parentDisposable) {
         listeners.add(listener);
+        Disposer.register(parentDisposable, () -> listeners.remove(listener));
     }
 
     public void removeStateListener(TodoStateListener listener) {
-        if (listeners != null) {
-            listeners.remove(listener);
-        }
+        listeners.remove(listener);
     }
 
     private void notifyListeners() {
-        if (listeners != null) {
-            for (TodoStateListener listener : listeners) {
-                try {
-                    listener.onStateChanged();
-                } catch (Exception e) {
-                    // Log but don't let one bad listener break others
-                }
+        for (TodoStateListener listener : listeners) {
+            try {
+                listener.onStateChanged();
+            } catch (Exception e) {
+                // Log but don't let one bad listener break others
             }
         }
     }
@@ -21,6 +21,9 @@ public class KotlinTodoToolWindowFactory implements ToolWindowFactory {
         ContentFactory contentFactory = ContentFactory.getInstance();
         Content content = contentFactory.createContent(todoPanel, "", false);
 
+        // Dispose the panel (and its listener registrations) together with its content
+        content.setDisposer(todoPanel);
+
         // Add content to tool window
         toolWindow.getContentManager().addContent(content);
 
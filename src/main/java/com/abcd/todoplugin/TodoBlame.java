@@ -0,0 +1,254 @@
+package com.abcd.todoplugin;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line authorship from {@code git blame --porcelain}, one process per file. Does not depend
+ * on the IntelliJ platform, so it can be run against any local repository.
+ */
+public final class TodoBlame {
+
+    // Commit id git reports for lines that are not committed yet
+    private static final String UNCOMMITTED = "0000000000000000000000000000000000000000";
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private TodoBlame() {
+    }
+
+    /**
+     * Authorship of one line
+     */
+    public static class Line {
+        private final String commit;
+        private final String author;
+        private final long authorTimeSeconds;
+
+        Line(String commit, String author, long authorTimeSeconds) {
+            this.commit = commit;
+            this.author = author;
+            this.authorTimeSeconds = authorTimeSeconds;
+        }
+
+        public String getCommit() {
+            return commit;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public long getAuthorTimeSeconds() {
+            return authorTimeSeconds;
+        }
+
+        public boolean isCommitted() {
+            return !UNCOMMITTED.equals(commit);
+        }
+
+        /**
+         * Formats the age of the line, e.g. "3 months"
+         * @param nowMillis the current time
+         * @return the age, or "uncommitted"
+         */
+        public String formatAge(long nowMillis) {
+            if (!isCommitted()) {
+                return "uncommitted";
+            }
+
+            long days = Math.max(0, (nowMillis / 1000 - authorTimeSeconds) / 86400);
+            if (days == 0) {
+                return "today";
+            } else if (days < 60) {
+                return days + (days == 1 ? " day" : " days");
+            } else if (days < 730) {
+                return (days / 30) + " months";
+            }
+            return (days / 365) + " years";
+        }
+    }
+
+    /**
+     * Blames a file on disk
+     * @param file the file, inside a git work tree
+     * @return authorship by 1-based line number
+     * @throws IOException if git fails or times out
+     */
+    public static Map<Integer, Line> blame(Path file) throws IOException {
+        return blame(file, null);
+    }
+
+    /**
+     * Blames a file, optionally with contents that differ from the file on disk (e.g. an
+     * unsaved document); changed lines are reported as uncommitted
+     * @param file the file, inside a git work tree
+     * @param contents the contents to blame, or null for the file on disk
+     * @return authorship by 1-based line number
+     * @throws IOException if git fails or times out
+     */
+    public static Map<Integer, Line> blame(Path file, String contents) throws IOException {
+        return blame(file, contents, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Blames a file, optionally with contents that differ from the file on disk (e.g. an
+     * unsaved document); changed lines are reported as uncommitted
+     * @param file the file, inside a git work tree
+     * @param contents the contents to blame, or null for the file on disk
+     * @param charset the file's encoding, so the contents compare equal to the committed bytes
+     * @return authorship by 1-based line number
+     * @throws IOException if git fails or times out
+     */
+    public static Map<Integer, Line> blame(Path file, String contents, Charset charset) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add("git");
+        command.add("blame");
+        command.add("--porcelain");
+        if (contents != null) {
+            command.add("--contents");
+            command.add("-");
+        }
+        command.add("--");
+        command.add(file.getFileName().toString());
+
+        Process process = new ProcessBuilder(command).directory(file.toAbsolutePath().getParent().toFile()).start();
+        try {
+            try (OutputStream stdin = process.getOutputStream()) {
+                if (contents != null) {
+                    stdin.write(contents.getBytes(charset));
+                }
+            }
+
+            // Drain stderr in the background so a chatty git cannot block on a full pipe
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            Thread errorReader = new Thread(() -> copy(process.getErrorStream(), errors), "git blame stderr");
+            errorReader.setDaemon(true);
+            errorReader.start();
+
+            Map<Integer, Line> lines;
+            try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+                lines = parsePorcelain(reader);
+            }
+
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("git blame timed out: " + file);
+            }
+            errorReader.join(1000);
+            if (process.exitValue() != 0) {
+                throw new IOException("git blame failed for " + file + ": "
+                        + errors.toString(StandardCharsets.UTF_8.name()).trim());
+            }
+            return lines;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while blaming " + file, e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Gets the commit a work tree is at
+     * @param workTree a directory inside the work tree
+     * @return the HEAD commit id, or null if it has none (e.g. a new repository)
+     * @throws IOException if git cannot be run
+     */
+    public static String headRevision(Path workTree) throws IOException {
+        Process process = new ProcessBuilder("git", "rev-parse", "--verify", "-q", "HEAD")
+                .directory(workTree.toFile())
+                .redirectErrorStream(true)
+                .start();
+        try {
+            String output;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                output = reader.readLine();
+            }
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                return null;
+            }
+            return output != null ? output.trim() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading HEAD of " + workTree, e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Parses {@code git blame --porcelain} output. Commit details are only printed the first
+     * time a commit appears, so they are remembered for the later lines of the same commit.
+     * @param reader the porcelain output
+     * @return authorship by 1-based final line number
+     * @throws IOException if the output cannot be read
+     */
+    public static Map<Integer, Line> parsePorcelain(Reader reader) throws IOException {
+        Map<Integer, Line> lines = new HashMap<Integer, Line>();
+        Map<String, String> authors = new HashMap<String, String>();
+        Map<String, Long> authorTimes = new HashMap<String, Long>();
+
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String commit = null;
+        int finalLine = 0;
+        String text;
+        while ((text = in.readLine()) != null) {
+            if (text.startsWith("\t")) {
+                // The line's content ends each entry
+                if (commit != null) {
+                    Long time = authorTimes.get(commit);
+                    lines.put(finalLine, new Line(commit, authors.getOrDefault(commit, ""), time != null ? time : 0));
+                }
+                commit = null;
+            } else if (commit == null && isHeader(text)) {
+                // <commit> <original line> <final line> [<lines in group>]
+                String[] parts = text.split(" ");
+                commit = parts[0];
+                finalLine = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+            } else if (commit != null && text.startsWith("author ")) {
+                authors.put(commit, text.substring("author ".length()));
+            } else if (commit != null && text.startsWith("author-time ")) {
+                authorTimes.put(commit, Long.parseLong(text.substring("author-time ".length()).trim()));
+            }
+        }
+        return lines;
+    }
+
+    private static boolean isHeader(String text) {
+        if (text.length() < 40 || (text.length() > 40 && text.charAt(40) != ' ')) {
+            return false;
+        }
+        for (int i = 0; i < 40; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copy(InputStream input, ByteArrayOutputStream output) {
+        byte[] buffer = new byte[4096];
+        try {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // The process ended; what was read so far is enough for an error message
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.AbstractVcs;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Annotates TODOs with the author and age of their line. Each file is blamed once, on a
+ * small background pool, and the result is cached per file revision: the content stamp of
+ * the file plus the HEAD of its repository. Only an edit or a new commit re-blames a file.
+ * Requests that arrive while earlier ones are still being worked through are merged into
+ * one pass.
+ */
+public class TodoBlameEnricher implements Disposable {
+    private static final Logger LOG = Logger.getInstance(TodoBlameEnricher.class);
+
+    private static final int MAX_CONCURRENCY = 2;
+    private static final int CACHE_CAPACITY = 2000;
+
+    // HEAD is read again at most this often per repository
+    private static final long HEAD_TTL_MILLIS = 5000;
+
+    private final Project project;
+    private final ExecutorService pool =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Kotlin TODO Blame", MAX_CONCURRENCY);
+
+    // Latest blame per file path, least recently used evicted first
+    private final Map<String, FileBlame> blameByPath = new LinkedHashMap<String, FileBlame>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileBlame> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Map<String, Head> heads = new ConcurrentHashMap<String, Head>();
+
+    // Files waiting for the next pass, with the callback of the latest request for each
+    private final Map<VirtualFile, Runnable> queued = new LinkedHashMap<VirtualFile, Runnable>();
+    private boolean passScheduled;
+
+    public TodoBlameEnricher(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Gets the authorship of a TODO's line if its file has been blamed
+     * @param todo the TODO
+     * @return the authorship, or null if it is not known (yet)
+     */
+    public TodoBlame.Line getBlame(TodoItem todo) {
+        if (todo.getFile() == null) {
+            return null;
+        }
+        FileBlame blame;
+        synchronized (blameByPath) {
+            blame = blameByPath.get(todo.getFile().getPath());
+        }
+        return blame != null ? blame.lines.get(todo.getLineNumber()) : null;
+    }
+
+    /**
+     * Blames, in the background, the files of the given TODOs whose cached blame is missing
+     * or out of date. Files are queued in list order; files already queued by an earlier
+     * call that has not been worked through yet are not queued again.
+     * @param todos the TODOs to annotate
+     * @param onUpdate called from a background thread each time a file's blame is available
+     */
+    public void enrich(List<TodoItem> todos, Runnable onUpdate) {
+        Set<VirtualFile> files = new LinkedHashSet<VirtualFile>();
+        for (TodoItem todo : todos) {
+            VirtualFile file = todo.getFile();
+            if (file != null && !files.contains(file) && !isUpToDate(file)) {
+                files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+
+        synchronized (queued) {
+            for (VirtualFile file : files) {
+                queued.put(file, onUpdate);
+            }
+            if (passScheduled) {
+                return;
+            }
+            passScheduled = true;
+        }
+        submit(this::runPasses);
+    }
+
+    /**
+     * Works through the queued files until none are left
+     */
+    private void runPasses() {
+        while (!project.isDisposed()) {
+            List<Map.Entry<VirtualFile, Runnable>> batch;
+            synchronized (queued) {
+                if (queued.isEmpty()) {
+                    passScheduled = false;
+                    return;
+                }
+                batch = new ArrayList<Map.Entry<VirtualFile, Runnable>>(queued.entrySet());
+                queued.clear();
+            }
+            for (Map.Entry<VirtualFile, Runnable> entry : batch) {
+                if (project.isDisposed()) {
+                    break;
+                }
+                enrichFile(entry.getKey(), entry.getValue());
+            }
+        }
+        synchronized (queued) {
+            queued.clear();
+            passScheduled = false;
+        }
+    }
+
+    /**
+     * Checks, without running git, whether a file's cached blame still describes it: same
+     * content stamp, and HEAD of its repository read recently and unchanged
+     */
+    private boolean isUpToDate(VirtualFile file) {
+        FileBlame cached;
+        synchronized (blameByPath) {
+            cached = blameByPath.get(file.getPath());
+        }
+        if (cached == null || !file.isValid() || cached.stamp != stampOf(file)) {
+            return false;
+        }
+        Head head = heads.get(cached.rootPath);
+        return head != null && System.currentTimeMillis() - head.readAt <= HEAD_TTL_MILLIS
+                && head.revision.equals(cached.head);
+    }
+
+    private void enrichFile(VirtualFile file, Runnable onUpdate) {
+        FileState state = ReadAction.compute(() -> currentState(file));
+        if (state == null) {
+            return;
+        }
+
+        // HEAD is read outside the read action, since it runs git
+        String head = headOf(state.rootPath);
+        String revision = state.stamp + "@" + head;
+        String path = file.getPath();
+        FileBlame cached;
+        synchronized (blameByPath) {
+            cached = blameByPath.get(path);
+        }
+        if (cached != null && cached.revision.equals(revision) || !pending.add(path + "\n" + revision)) {
+            return;
+        }
+
+        submit(() -> {
+            Map<Integer, TodoBlame.Line> lines;
+            try {
+                lines = TodoBlame.blame(Paths.get(path), state.contents, state.charset);
+            } catch (IOException e) {
+                // Typically an untracked file; remember the failure for this revision
+                LOG.debug("Could not blame " + path, e);
+                lines = Collections.emptyMap();
+            } finally {
+                pending.remove(path + "\n" + revision);
+            }
+
+            synchronized (blameByPath) {
+                blameByPath.put(path, new FileBlame(revision, state.rootPath, state.stamp, head, lines));
+            }
+            onUpdate.run();
+        });
+    }
+
+    /**
+     * Gets what identifies the content a blame would describe; must be called in a read action
+     * @return the state, or null if the file is not in a git repository
+     */
+    private FileState currentState(VirtualFile file) {
+        if (!file.isValid() || !file.isInLocalFileSystem()) {
+            return null;
+        }
+
+        VirtualFile root = findGitRoot(file);
+        if (root == null) {
+            return null;
+        }
+
+        // Unsaved changes are blamed as they are in the editor, so line numbers match the TODOs
+        Document document = unsavedDocument(file);
+        String contents = document != null ? document.getText() : null;
+        return new FileState(root.getPath(), stampOf(file), contents, file.getCharset());
+    }
+
+    /**
+     * Gets the root of the git repository a file belongs to; must be called in a read action
+     * @return the root, or null if the file is not under git
+     */
+    VirtualFile findGitRoot(VirtualFile file) {
+        ProjectLevelVcsManager vcsManager = ProjectLevelVcsManager.getInstance(project);
+        AbstractVcs vcs = vcsManager.getVcsFor(file);
+        VirtualFile root = vcsManager.getVcsRootFor(file);
+        return vcs != null && root != null && "Git".equals(vcs.getName()) ? root : null;
+    }
+
+    private static Document unsavedDocument(VirtualFile file) {
+        FileDocumentManager documentManager = FileDocumentManager.getInstance();
+        return documentManager.isFileModified(file) ? documentManager.getCachedDocument(file) : null;
+    }
+
+    private static long stampOf(VirtualFile file) {
+        Document document = unsavedDocument(file);
+        return document != null ? document.getModificationStamp() : file.getTimeStamp();
+    }
+
+    private String headOf(String rootPath) {
+        long now = System.currentTimeMillis();
+        Head head = heads.get(rootPath);
+        if (head == null || now - head.readAt > HEAD_TTL_MILLIS) {
+            String revision;
+            try {
+                revision = TodoBlame.headRevision(Paths.get(rootPath));
+            } catch (IOException e) {
+                LOG.debug("Could not read HEAD of " + rootPath, e);
+                revision = null;
+            }
+            head = new Head(revision != null ? revision : "", now);
+            heads.put(rootPath, head);
+        }
+        return head.revision;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Disposed
+        }
+    }
+
+    @Override
+    public void dispose() {
+        pool.shutdownNow();
+        synchronized (queued) {
+            queued.clear();
+        }
+        synchronized (blameByPath) {
+            blameByPath.clear();
+        }
+    }
+
+    private static class FileBlame {
+        private final String revision;
+        private final String rootPath;
+        private final long stamp;
+        private final String head;
+        private final Map<Integer, TodoBlame.Line> lines;
+
+        FileBlame(String revision, String rootPath, long stamp, String head, Map<Integer, TodoBlame.Line> lines) {
+            this.revision = revision;
+            this.rootPath = rootPath;
+            this.stamp = stamp;
+            this.head = head;
+            this.lines = lines;
+        }
+    }
+
+    private static class FileState {
+        private final String rootPath;
+        private final long stamp;
+        private final String contents;
+        private final Charset charset;
+
+        FileState(String rootPath, long stamp, String contents, Charset charset) {
+            this.rootPath = rootPath;
+            this.stamp = stamp;
+            this.contents = contents;
+            this.charset = charset;
+        }
+    }
+
+    private static class Head {
+        private final String revision;
+        private final long readAt;
+
+        Head(String revision, long readAt) {
+            this.revision = revision;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups near-duplicate TODOs (e.g. copy-pasted "handle error properly") without comparing
+ * every pair. Each TODO gets a MinHash signature over character shingles of its normalized
+ * text when its file's results change; signatures are split into bands, and TODOs sharing
+ * a band hash land in the same bucket. Only bucket members are compared, and only against
+ * the bucket's first member, so grouping stays near-linear in the number of TODOs.
+ */
+public class TodoClusterIndex implements TodoResultStore.Listener {
+
+    // 8 bands of 4 rows: pairs from roughly 0.6 Jaccard similarity up become candidates
+    private static final int BANDS = 8;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+
+    // Candidates are grouped when their estimated similarity reaches this
+    private static final double SIMILARITY_THRESHOLD = 0.7;
+
+    private static final int SHINGLE_LENGTH = 3;
+
+    private static final long[] SEEDS = new long[SIGNATURE_LENGTH];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+    private final Map<String, List<Integer>> entryIdsByPath = new HashMap<String, List<Integer>>();
+    private final Map<Long, Set<Integer>> buckets = new HashMap<Long, Set<Integer>>();
+    private int nextId;
+
+    // Clusters are assembled on demand and reused until the index changes
+    private long version;
+    private long clustersVersion = -1;
+    private List<List<TodoItem>> clusters = Collections.emptyList();
+
+    @Override
+    public void fileResultsChanged(String path, List<TodoItem> oldTodos, List<TodoItem> newTodos) {
+        // Signatures are computed outside the lock; scan workers report files concurrently
+        List<Entry> added = new ArrayList<Entry>(newTodos.size());
+        for (TodoItem todo : newTodos) {
+            int[] signature = signature(normalize(todo));
+            if (signature != null) {
+                added.add(new Entry(todo, signature));
+            }
+        }
+
+        synchronized (this) {
+            List<Integer> oldIds = entryIdsByPath.remove(path);
+            if (oldIds != null) {
+                for (int id : oldIds) {
+                    removeEntry(id);
+                }
+            }
+
+            if (!added.isEmpty()) {
+                List<Integer> ids = new ArrayList<Integer>(added.size());
+                for (Entry entry : added) {
+                    int id = nextId++;
+                    entries.put(id, entry);
+                    for (int band = 0; band < BANDS; band++) {
+                        buckets.computeIfAbsent(bandKey(entry.signature, band), k -> new LinkedHashSet<Integer>()).add(id);
+                    }
+                    ids.add(id);
+                }
+                entryIdsByPath.put(path, ids);
+            }
+            version++;
+        }
+    }
+
+    /**
+     * Gets the groups of near-duplicate TODOs
+     * @return groups with at least two members, largest first
+     */
+    public synchronized List<List<TodoItem>> getClusters() {
+        if (clustersVersion == version) {
+            return clusters;
+        }
+
+        Map<Integer, Integer> parent = new HashMap<Integer, Integer>();
+        for (Set<Integer> bucket : buckets.values()) {
+            if (bucket.size() < 2) {
+                continue;
+            }
+            Integer representative = null;
+            for (Integer id : bucket) {
+                if (representative == null) {
+                    representative = id;
+                } else if (find(parent, id).intValue() != find(parent, representative).intValue()
+                        && similarity(entries.get(representative).signature, entries.get(id).signature)
+                        >= SIMILARITY_THRESHOLD) {
+                    parent.put(find(parent, id), find(parent, representative));
+                }
+            }
+        }
+
+        // Bucket members that were never merged form single-member groups and are dropped below
+        Map<Integer, List<TodoItem>> groups = new HashMap<Integer, List<TodoItem>>();
+        for (Integer id : new ArrayList<Integer>(parent.keySet())) {
+            groups.computeIfAbsent(find(parent, id), k -> new ArrayList<TodoItem>()).add(entries.get(id).todo);
+        }
+
+        List<List<TodoItem>> result = new ArrayList<List<TodoItem>>();
+        for (List<TodoItem> group : groups.values()) {
+            if (group.size() >= 2) {
+                result.add(Collections.unmodifiableList(group));
+            }
+        }
+        result.sort((a, b) -> Integer.compare(b.size(), a.size()));
+
+        clusters = Collections.unmodifiableList(result);
+        clustersVersion = version;
+        return clusters;
+    }
+
+    /**
+     * Gets the number of indexed TODOs
+     * @return the count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void removeEntry(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(entry.signature, band);
+            Set<Integer> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    private static Integer find(Map<Integer, Integer> parent, Integer id) {
+        Integer root = id;
+        Integer next;
+        while ((next = parent.get(root)) != null && !next.equals(root)) {
+            root = next;
+        }
+        parent.putIfAbsent(root, root);
+        // Path compression
+        Integer current = id;
+        while (!current.equals(root)) {
+            Integer up = parent.get(current);
+            parent.put(current, root);
+            current = up;
+        }
+        return root;
+    }
+
+    /**
+     * Normalizes TODO text for comparison: lower case, tag prefix removed, punctuation and
+     * whitespace runs collapsed to single spaces
+     */
+    static String normalize(TodoItem todo) {
+        String text = todo.getText();
+        String prefix = todo.getTag() + ":";
+        if (text.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            text = text.substring(prefix.length());
+        }
+
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Computes the MinHash signature of a text's character shingles
+     * @return the signature, or null if the text is too short to compare
+     */
+    static int[] signature(String text) {
+        if (text.length() < SHINGLE_LENGTH) {
+            return null;
+        }
+
+        int[] signature = new int[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int i = 0; i + SHINGLE_LENGTH <= text.length(); i++) {
+            long shingle = 0;
+            for (int j = 0; j < SHINGLE_LENGTH; j++) {
+                shingle = shingle * 31 + text.charAt(i + j);
+            }
+            for (int h = 0; h < SIGNATURE_LENGTH; h++) {
+                int value = (int) (mix(shingle ^ SEEDS[h]) >>> 33);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of two shingle sets from their signatures
+     */
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) a.length;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = mix(hash * 31 + signature[row]);
+        }
+        // The band index is folded in so equal rows in different bands do not collide
+        return hash * BANDS + band;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static class Entry {
+        private final TodoItem todo;
+        private final int[] signature;
+
+        Entry(TodoItem todo, int[] signature) {
+            this.todo = todo;
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.abcd.todoplugin;
+
+import java.util.Arrays;
+
+/**
+ * Comment syntax of a file type: line comment prefixes, block comment delimiters and the
+ * string literal delimiters whose contents must not be mistaken for comments.
+ */
+public final class TodoCommentSyntax {
+
+    /**
+     * Kotlin, Java and Groovy (including Gradle scripts): {@code //} and {@code /* *\/} comments,
+     * triple-quoted and single-line strings with backslash escapes
+     */
+    public static final TodoCommentSyntax C_STYLE = new TodoCommentSyntax("C-style",
+            new String[]{"//"},
+            new String[][]{{"/*", "*/"}},
+            new String[]{"\"\"\"", "'''", "\"", "'"},
+            '\\');
+
+    /**
+     * XML and HTML-like markup: {@code <!-- -->} comments only
+     */
+    public static final TodoCommentSyntax XML = new TodoCommentSyntax("XML",
+            new String[0],
+            new String[][]{{"<!--", "-->"}},
+            new String[0],
+            (char) 0);
+
+    /**
+     * YAML, properties and shell-like files: {@code #} comments and double-quoted strings.
+     * Single quotes are not treated as strings, since plain YAML values often contain apostrophes.
+     */
+    public static final TodoCommentSyntax HASH = new TodoCommentSyntax("Hash",
+            new String[]{"#"},
+            new String[0][],
+            new String[]{"\""},
+            '\\');
+
+    private final String name;
+    private final String[] lineCommentPrefixes;
+    private final String[][] blockComments;
+    private final String[] stringDelimiters;
+    private final char escape;
+
+    /**
+     * Describes a comment syntax
+     * @param name a short name for logs and settings
+     * @param lineCommentPrefixes prefixes that start a comment running to the end of the line
+     * @param blockComments start and end delimiter pairs of block comments
+     * @param stringDelimiters string delimiters, longest first; three-character delimiters may span
+     *                         lines, shorter ones end at the end of the line
+     * @param escape the escape character inside single-line strings, or 0 for none
+     */
+    public TodoCommentSyntax(String name, String[] lineCommentPrefixes, String[][] blockComments,
+                             String[] stringDelimiters, char escape) {
+        this.name = name;
+        this.lineCommentPrefixes = lineCommentPrefixes.clone();
+        this.blockComments = blockComments.clone();
+        this.stringDelimiters = stringDelimiters.clone();
+        this.escape = escape;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String[] getLineCommentPrefixes() {
+        return lineCommentPrefixes;
+    }
+
+    String[][] getBlockComments() {
+        return blockComments;
+    }
+
+    String[] getStringDelimiters() {
+        return stringDelimiters;
+    }
+
+    char getEscape() {
+        return escape;
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(lineCommentPrefixes);
+    }
+}
@@ -0,0 +1,24 @@
+package com.abcd.todoplugin;
+
+import java.util.Collection;
+
+/**
+ * Supplies the comment syntax of the file types it knows. Registered through the
+ * {@code com.abcd.TODOPlugin.commentSyntaxProvider} extension point; the first provider
+ * that recognizes a file wins, and the built-in provider comes last.
+ */
+public interface TodoCommentSyntaxProvider {
+
+    /**
+     * Gets the comment syntax of a file
+     * @param fileName the file name, e.g. "build.gradle"
+     * @return the syntax, or null if this provider does not handle the file
+     */
+    TodoCommentSyntax getSyntax(String fileName);
+
+    /**
+     * Gets the file extensions this provider handles, used to find candidate files in the project index
+     * @return lower-case extensions without the dot
+     */
+    Collection<String> getFileExtensions();
+}
@@ -0,0 +1,496 @@
+package com.abcd.todoplugin;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Long-running scanner over a source tree for tools that query TODOs without an IDE.
+ * Keeps an in-memory index current with a {@link WatchService}, rescanning only the files
+ * that changed, and answers queries over a Unix domain socket. Does not depend on the
+ * IntelliJ platform.
+ * <p>
+ * Protocol: one query per line, answered with one JSON object per TODO (the JSON Lines
+ * export format) or a single result line, followed by an empty line:
+ * <pre>
+ * count                 number of TODOs
+ * priority HIGH         TODOs of a priority
+ * tag FIXME             TODOs with a tag
+ * filter retry          TODOs whose text or path contains the keyword (case-insensitive)
+ * files                 number of files with TODOs
+ * </pre>
+ */
+public class TodoDaemon implements Closeable {
+
+    /**
+     * Receives files the daemon could not index; it keeps serving the rest of the tree
+     */
+    public interface ErrorHandler {
+        /**
+         * @param path the file or directory that failed
+         * @param e the failure
+         */
+        void indexFailed(Path path, Exception e);
+    }
+
+    // Watch events are collected for this long so a burst of saves rescans each file once
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private final Path root;
+    private final ErrorHandler errorHandler;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+
+    // The index: results per relative path, with secondary indexes by priority and tag
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, List<Record>> recordsByPath = new HashMap<String, List<Record>>();
+    private final Map<TodoItem.Priority, Set<Record>> byPriority =
+            new EnumMap<TodoItem.Priority, Set<Record>>(TodoItem.Priority.class);
+    private final Map<String, Set<Record>> byTag = new HashMap<String, Set<Record>>();
+    private int recordCount;
+
+    // A thread per connected client, so idle connections cannot starve new ones
+    private final ExecutorService clientExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "todo-daemon-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ServerSocketChannel server;
+    private volatile Path socketPath;
+    private volatile boolean closed;
+
+    /**
+     * Creates a daemon and builds the initial index of a source tree, ignoring files that
+     * cannot be indexed
+     * @param root the source root; paths in answers are relative to it
+     * @throws IOException if the tree cannot be scanned or watched
+     */
+    public TodoDaemon(Path root) throws IOException {
+        this(root, (path, e) -> {
+        });
+    }
+
+    /**
+     * Creates a daemon and builds the initial index of a source tree
+     * @param root the source root; paths in answers are relative to it
+     * @param errorHandler receives files that cannot be indexed, now or later
+     * @throws IOException if the tree cannot be scanned or watched
+     */
+    public TodoDaemon(Path root, ErrorHandler errorHandler) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.errorHandler = errorHandler;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerTree(this.root);
+    }
+
+    /**
+     * Serves queries on a Unix domain socket and applies file changes until closed. Blocks.
+     * @param socketPath the socket file to create; a stale socket there is replaced
+     * @throws FileAlreadyExistsException if something other than a socket exists at the path
+     * @throws IOException if the socket cannot be created
+     */
+    public void run(Path socketPath) throws IOException {
+        deleteStaleSocket(socketPath);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        this.socketPath = socketPath;
+
+        Thread watcher = new Thread(this::watchLoop, "todo-daemon-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        try {
+            while (!closed) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException e) {
+                    if (closed) {
+                        break;
+                    }
+                    throw e;
+                }
+                clientExecutor.execute(() -> serve(client));
+            }
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    /**
+     * Removes a socket left behind by an earlier run, refusing to touch anything else
+     */
+    private static void deleteStaleSocket(Path socketPath) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        // Sockets are neither regular files, directories nor links
+        if (!attributes.isOther()) {
+            throw new FileAlreadyExistsException(socketPath.toString(), null, "not a socket; refusing to replace it");
+        }
+        Files.delete(socketPath);
+    }
+
+    /**
+     * Answers one query
+     * @param query the query line
+     * @return the answer, each line terminated by a newline
+     */
+    public String query(String query) {
+        String trimmed = query.trim();
+        int space = trimmed.indexOf(' ');
+        String command = (space < 0 ? trimmed : trimmed.substring(0, space)).toLowerCase(Locale.ROOT);
+        String argument = space < 0 ? "" : trimmed.substring(space + 1).trim();
+
+        lock.readLock().lock();
+        try {
+            switch (command) {
+                case "count":
+                    return recordCount + "\n";
+                case "files":
+                    return recordsByPath.size() + "\n";
+                case "priority":
+                    try {
+                        return format(byPriority.getOrDefault(
+                                TodoItem.Priority.valueOf(argument.toUpperCase(Locale.ROOT)),
+                                Collections.<Record>emptySet()));
+                    } catch (IllegalArgumentException e) {
+                        return "error: unknown priority '" + argument + "'\n";
+                    }
+                case "tag":
+                    return format(byTag.getOrDefault(argument.toUpperCase(Locale.ROOT), Collections.<Record>emptySet()));
+                case "filter":
+                    return format(filter(argument.toLowerCase(Locale.ROOT)));
+                default:
+                    return "error: unknown command '" + command + "'\n";
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Record> filter(String keyword) {
+        List<Record> matches = new ArrayList<Record>();
+        for (List<Record> records : recordsByPath.values()) {
+            for (Record record : records) {
+                if (record.lowerText.contains(keyword) || record.lowerPath.contains(keyword)) {
+                    matches.add(record);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static String format(Iterable<Record> records) {
+        StringWriter out = new StringWriter();
+        try (TodoExporter exporter = TodoExporter.create(TodoExporter.Format.JSONL, out)) {
+            for (Record record : records) {
+                exporter.write(record.path, record.line, record.tag, record.priority, record.text);
+            }
+        } catch (IOException e) {
+            // Writing to a StringWriter does not fail
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    private void serve(SocketChannel client) {
+        try (SocketChannel channel = client;
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                writer.write(query(line));
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // The client went away
+        }
+    }
+
+    /**
+     * Applies file system changes to the index until the daemon is closed. A file that fails
+     * is reported and skipped; if watching itself fails, the daemon shuts down rather than
+     * serve an index that no longer follows the tree.
+     */
+    private void watchLoop() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                Set<Path> changed = new LinkedHashSet<Path>();
+                boolean overflow = false;
+
+                // Collect the rest of the burst before rescanning
+                do {
+                    Path directory = watchedDirectories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else if (directory != null) {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        watchedDirectories.remove(key);
+                    }
+                } while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+                if (overflow) {
+                    // Events were lost; rebuild from the tree
+                    clearIndex();
+                    changed.clear();
+                    changed.add(root);
+                }
+                for (Path path : changed) {
+                    try {
+                        applyChange(path);
+                    } catch (IOException | RuntimeException e) {
+                        // Typically deleted again before it could be read; keep watching the rest
+                        errorHandler.indexFailed(path, e);
+                        if (Files.notExists(path)) {
+                            removePrefix(KotlinTodoHeadless.relativePath(root, path));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        } catch (RuntimeException e) {
+            errorHandler.indexFailed(root, e);
+            try {
+                close();
+            } catch (IOException closeFailure) {
+                // Shutting down anyway
+            }
+        }
+    }
+
+    private void applyChange(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            // A new (or moved-in) directory: watch it and index its files
+            if (!isExcluded(path)) {
+                registerTree(path);
+            }
+        } else if (Files.isRegularFile(path)) {
+            if (isSourceFile(path) && !isExcluded(path.getParent())) {
+                indexFile(path);
+            }
+        } else {
+            // Deleted: drop the file, or everything below a deleted directory
+            removePrefix(KotlinTodoHeadless.relativePath(root, path));
+        }
+    }
+
+    /**
+     * Watches a directory tree and indexes its source files
+     */
+    private void registerTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isExcluded(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && isSourceFile(file)) {
+                    try {
+                        indexFile(file);
+                    } catch (IOException e) {
+                        return visitFileFailed(file, e);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (file.equals(start)) {
+                    throw e;
+                }
+                // Deleted or unreadable while walking; the rest of the tree is still indexed
+                errorHandler.indexFailed(file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Rescans one file and replaces its records in the index
+     */
+    private void indexFile(Path file) throws IOException {
+        String path = KotlinTodoHeadless.relativePath(root, file);
+        List<Record> records = new ArrayList<Record>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            TodoTextScanner.scan(reader, KotlinTodoHeadless.getSyntax(file), (lineNumber, startOffset, tag, content, priority) ->
+                    records.add(new Record(path, lineNumber, tag, priority, content)));
+        } catch (IOException e) {
+            // Deleted or replaced while being read; a following event brings the index up to date
+            records.clear();
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeRecords(recordsByPath.remove(path));
+            if (!records.isEmpty()) {
+                recordsByPath.put(path, records);
+                for (Record record : records) {
+                    byPriority.computeIfAbsent(record.priority, k -> new LinkedHashSet<Record>()).add(record);
+                    byTag.computeIfAbsent(record.tag, k -> new LinkedHashSet<Record>()).add(record);
+                }
+                recordCount += records.size();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removePrefix(String relativePath) {
+        lock.writeLock().lock();
+        try {
+            List<String> removed = new ArrayList<String>();
+            for (String path : recordsByPath.keySet()) {
+                if (path.equals(relativePath) || path.startsWith(relativePath + "/")) {
+                    removed.add(path);
+                }
+            }
+            for (String path : removed) {
+                removeRecords(recordsByPath.remove(path));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeRecords(List<Record> records) {
+        if (records == null) {
+            return;
+        }
+        for (Record record : records) {
+            Set<Record> samePriority = byPriority.get(record.priority);
+            if (samePriority != null) {
+                samePriority.remove(record);
+            }
+            Set<Record> sameTag = byTag.get(record.tag);
+            if (sameTag != null) {
+                sameTag.remove(record);
+            }
+        }
+        recordCount -= records.size();
+    }
+
+    private void clearIndex() {
+        lock.writeLock().lock();
+        try {
+            recordsByPath.clear();
+            byPriority.clear();
+            byTag.clear();
+            recordCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isExcluded(Path dir) {
+        if (dir.equals(root)) {
+            return false;
+        }
+        Path name = dir.getFileName();
+        return name != null && KotlinTodoHeadless.DEFAULT_EXCLUDED_DIRECTORIES.contains(
+                name.toString().toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isSourceFile(Path file) {
+        return KotlinTodoHeadless.getSyntax(file) != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        clientExecutor.shutdownNow();
+        watchService.close();
+        ServerSocketChannel current = server;
+        if (current != null) {
+            current.close();
+        }
+
+        // Also done here since a shutdown hook may not wait for run() to unwind
+        Path socket = socketPath;
+        if (socket != null) {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * One indexed TODO. Identity-based, so a file's records are removed exactly as they were added.
+     */
+    private static class Record {
+        private final String path;
+        private final int line;
+        private final String tag;
+        private final TodoItem.Priority priority;
+        private final String text;
+        private final String lowerText;
+        private final String lowerPath;
+
+        Record(String path, int line, String tag, TodoItem.Priority priority, String text) {
+            this.path = path;
+            this.line = line;
+            this.tag = tag;
+            this.priority = priority;
+            this.text = text;
+            this.lowerText = text.toLowerCase(Locale.ROOT);
+            this.lowerPath = path.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.abcd.todoplugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes TODOs one at a time in an export format, so exports of any size are streamed
+ * straight to the output instead of being collected first. Does not depend on the
+ * IntelliJ platform, so the headless entry point uses it as well.
+ */
+public abstract class TodoExporter implements Closeable {
+
+    /**
+     * Supported export formats
+     */
+    public enum Format {
+        JSONL("JSON Lines", "jsonl"),
+        CSV("CSV", "csv"),
+        SARIF("SARIF", "sarif");
+
+        private final String displayName;
+        private final String extension;
+
+        Format(String displayName, String extension) {
+            this.displayName = displayName;
+            this.extension = extension;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Finds the format for a file name or extension
+         * @param name e.g. "todos.csv" or "sarif"
+         * @return the format, or null if the extension is not supported
+         */
+        public static Format fromFileName(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                if (lower.equals(format.extension) || lower.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private static final String[] TAGS = {"TODO", "FIXME", "HACK", "NOTE", "BUG"};
+
+    protected final Writer out;
+    private long count;
+
+    protected TodoExporter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Creates an exporter and writes the format's header
+     * @param format the export format
+     * @param out the destination; closed when the exporter is closed
+     * @return the exporter
+     * @throws IOException if the header cannot be written
+     */
+    public static TodoExporter create(Format format, Writer out) throws IOException {
+        TodoExporter exporter;
+        switch (format) {
+            case CSV:
+                exporter = new CsvExporter(out);
+                break;
+            case SARIF:
+                exporter = new SarifExporter(out);
+                break;
+            case JSONL:
+            default:
+                exporter = new JsonLinesExporter(out);
+                break;
+        }
+        exporter.writeHeader();
+        return exporter;
+    }
+
+    /**
+     * Writes one TODO
+     * @param path the file path, relative to the project root where possible
+     * @param line the 1-based line number
+     * @param tag the tag, e.g. FIXME
+     * @param priority the priority
+     * @param text the TODO text without its tag
+     * @throws IOException if the TODO cannot be written
+     */
+    public void write(String path, int line, String tag, TodoItem.Priority priority, String text) throws IOException {
+        writeRecord(path, line, tag, priority, text);
+        count++;
+    }
+
+    /**
+     * Writes one TODO item
+     * @param item the TODO
+     * @param path the file path to record for it
+     * @throws IOException if the TODO cannot be written
+     */
+    public void write(TodoItem item, String path) throws IOException {
+        String text = item.getText();
+        String prefix = item.getTag() + ":";
+        if (text.startsWith(prefix)) {
+            text = text.substring(prefix.length()).trim();
+        }
+        write(path, item.getLineNumber(), item.getTag(), item.getPriority(), text);
+    }
+
+    /**
+     * Gets the number of TODOs written so far
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the format's footer and closes the output
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeFooter();
+        } finally {
+            out.close();
+        }
+    }
+
+    protected void writeHeader() throws IOException {
+    }
+
+    protected void writeFooter() throws IOException {
+    }
+
+    protected abstract void writeRecord(String path, int line, String tag, TodoItem.Priority priority, String text)
+            throws IOException;
+
+    /**
+     * Writes a JSON string literal
+     */
+    static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    private static class JsonLinesExporter extends TodoExporter {
+        JsonLinesExporter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void writeRecord(String path, int line, String tag, TodoItem.Priority priority, String text)
+                throws IOException {
+            out.write("{\"file\":");
+            writeJsonString(out, path);
+            out.write(",\"line\":" + line + ",\"tag\":");
+            writeJsonString(out, tag);
+            out.write(",\"priority\":");
+            writeJsonString(out, priority.name());
+            out.write(",\"text\":");
+            writeJsonString(out, text);
+            out.write("}\n");
+        }
+    }
+
+    private static class CsvExporter extends TodoExporter {
+        CsvExporter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void writeHeader() throws IOException {
+            out.write("file,line,tag,priority,text\r\n");
+        }
+
+        @Override
+        protected void writeRecord(String path, int line, String tag, TodoItem.Priority priority, String text)
+                throws IOException {
+            writeField(path);
+            out.write("," + line + ",");
+            writeField(tag);
+            out.write(',');
+            writeField(priority.name());
+            out.write(',');
+            writeField(text);
+            out.write("\r\n");
+        }
+
+        // RFC 4180: quote fields containing separators, quotes or line breaks
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+    /**
+     * SARIF 2.1.0 with one rule per tag. The results array is written incrementally
+     * between the header and the footer. Relative paths become URI references against
+     * %SRCROOT%, the base consumers such as code scanning resolve to the checkout.
+     */
+    private static class SarifExporter extends TodoExporter {
+        private static final String SOURCE_ROOT_BASE_ID = "%SRCROOT%";
+
+        private boolean first = true;
+
+        SarifExporter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void writeHeader() throws IOException {
+            out.write("{\"version\":\"2.1.0\",\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",");
+            out.write("\"runs\":[{\"tool\":{\"driver\":{\"name\":\"Kotlin TODO\",\"rules\":[");
+            for (int i = 0; i < TAGS.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write("{\"id\":\"" + TAGS[i] + "\",\"shortDescription\":{\"text\":\"" + TAGS[i] + " comment\"}}");
+            }
+            out.write("]}},\"results\":[\n");
+        }
+
+        @Override
+        protected void writeRecord(String path, int line, String tag, TodoItem.Priority priority, String text)
+                throws IOException {
+            if (!first) {
+                out.write(",\n");
+            }
+            first = false;
+
+            out.write("{\"ruleId\":");
+            writeJsonString(out, tag);
+            out.write(",\"level\":\"" + level(priority) + "\",\"message\":{\"text\":");
+            writeJsonString(out, text.isEmpty() ? tag : text);
+            out.write("},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+            String normalized = path.replace('\\', '/');
+            if (isAbsolute(normalized)) {
+                // Outside the source root: an absolute file URI, keeping a drive letter's colon
+                writeJsonString(out, normalized.startsWith("/")
+                        ? "file://" + encodePath(normalized)
+                        : "file:///" + normalized.substring(0, 2) + encodePath(normalized.substring(2)));
+            } else {
+                writeJsonString(out, encodePath(normalized));
+                out.write(",\"uriBaseId\":\"" + SOURCE_ROOT_BASE_ID + "\"");
+            }
+            out.write("},\"region\":{\"startLine\":" + Math.max(1, line) + "}}}]}");
+        }
+
+        @Override
+        protected void writeFooter() throws IOException {
+            out.write("\n]}]}\n");
+        }
+
+        private static boolean isAbsolute(String path) {
+            return path.startsWith("/")
+                    || path.length() >= 3 && Character.isLetter(path.charAt(0)) && path.charAt(1) == ':' && path.charAt(2) == '/';
+        }
+
+        /**
+         * Percent-encodes a '/'-separated path as the path of a URI reference (RFC 3986),
+         * keeping only unreserved characters and separators as they are
+         */
+        static String encodePath(String path) {
+            StringBuilder encoded = new StringBuilder(path.length());
+            byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+            for (byte value : bytes) {
+                int b = value & 0xFF;
+                if (b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9'
+                        || b == '-' || b == '.' || b == '_' || b == '~' || b == '/') {
+                    encoded.append((char) b);
+                } else {
+                    encoded.append('%').append(Character.toUpperCase(Character.forDigit(b >> 4, 16)))
+                            .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+                }
+            }
+            return encoded.toString();
+        }
+
+        private static String level(TodoItem.Priority priority) {
+            switch (priority) {
+                case HIGH:
+                    return "error";
+                case MEDIUM:
+                    return "warning";
+                case LOW:
+                default:
+                    return "note";
+            }
+        }
+    }
+}
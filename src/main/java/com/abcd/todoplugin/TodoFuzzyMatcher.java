@@ -0,0 +1,187 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Ranked fuzzy matching of TODOs against free text.
+ * <p>
+ * Each TODO is scored by how well the query words appear as compact subsequences
+ * of its text and by how many query trigrams it contains, which tolerates typos and
+ * word order. Scores are weighted by priority, and only the best {@code limit}
+ * results are kept in a bounded min-heap, so ranking costs O(n log k) rather than
+ * sorting every match.
+ */
+public final class TodoFuzzyMatcher {
+
+    /**
+     * Matches scoring below this are treated as no match
+     */
+    private static final double MIN_SCORE = 0.35;
+
+    private TodoFuzzyMatcher() {
+    }
+
+    /**
+     * Finds the best fuzzy matches for a query
+     * @param todos the TODOs to search
+     * @param query the free-text query
+     * @param limit the maximum number of results
+     * @return up to {@code limit} TODOs, best match first
+     */
+    public static List<TodoItem> topMatches(List<TodoItem> todos, String query, int limit) {
+        List<TodoItem> result = new ArrayList<TodoItem>();
+        if (todos == null || query == null || query.trim().isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        String normalizedQuery = query.toLowerCase(Locale.ROOT).trim();
+        String[] words = normalizedQuery.split("\\s+");
+        long[] queryTrigrams = trigrams(normalizedQuery);
+        boolean[] seen = new boolean[queryTrigrams.length];
+
+        PriorityQueue<ScoredTodo> heap = new PriorityQueue<ScoredTodo>(limit + 1);
+
+        for (TodoItem todo : todos) {
+            if (todo == null) {
+                continue;
+            }
+
+            String haystack = (todo.getText() + " " + todo.getFileName()).toLowerCase(Locale.ROOT);
+            double score = score(haystack, words, queryTrigrams, seen) * priorityWeight(todo.getPriority());
+            if (score < MIN_SCORE) {
+                continue;
+            }
+
+            if (heap.size() < limit) {
+                heap.offer(new ScoredTodo(todo, score));
+            } else if (score > heap.peek().score) {
+                heap.poll();
+                heap.offer(new ScoredTodo(todo, score));
+            }
+        }
+
+        ScoredTodo[] ranked = heap.toArray(new ScoredTodo[0]);
+        Arrays.sort(ranked, (a, b) -> Double.compare(b.score, a.score));
+        for (ScoredTodo scored : ranked) {
+            result.add(scored.todo);
+        }
+        return result;
+    }
+
+    /**
+     * Scores a lower-cased haystack against the query, in the range [0, 1]
+     */
+    private static double score(String haystack, String[] words, long[] queryTrigrams, boolean[] seen) {
+        double subsequence = 0;
+        for (String word : words) {
+            subsequence += subsequenceScore(haystack, word);
+        }
+        subsequence /= words.length;
+
+        double trigram = 0;
+        if (queryTrigrams.length > 0) {
+            Arrays.fill(seen, false);
+            int matched = 0;
+            for (int i = 0; i + 2 < haystack.length(); i++) {
+                int slot = Arrays.binarySearch(queryTrigrams, pack(haystack, i));
+                if (slot >= 0 && !seen[slot]) {
+                    seen[slot] = true;
+                    matched++;
+                }
+            }
+            trigram = (double) matched / queryTrigrams.length;
+        }
+
+        return 0.5 * subsequence + 0.5 * trigram;
+    }
+
+    /**
+     * Scores how compactly a word occurs as a subsequence: 1 for a contiguous
+     * occurrence, lower as the matched characters spread out, 0 if absent
+     */
+    private static double subsequenceScore(String haystack, String word) {
+        if (word.isEmpty()) {
+            return 0;
+        }
+        if (haystack.contains(word)) {
+            return 1;
+        }
+
+        int first = haystack.indexOf(word.charAt(0));
+        if (first < 0) {
+            return 0;
+        }
+
+        int position = first;
+        for (int i = 1; i < word.length(); i++) {
+            position = haystack.indexOf(word.charAt(i), position + 1);
+            if (position < 0) {
+                return 0;
+            }
+        }
+
+        int span = position - first + 1;
+        return (double) word.length() / span;
+    }
+
+    /**
+     * Gets the sorted distinct trigrams of a string, packed into longs
+     */
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+
+        long[] packed = new long[text.length() - 2];
+        for (int i = 0; i + 2 < text.length(); i++) {
+            packed[i] = pack(text, i);
+        }
+        Arrays.sort(packed);
+
+        int unique = 0;
+        for (int i = 0; i < packed.length; i++) {
+            if (i == 0 || packed[i] != packed[i - 1]) {
+                packed[unique++] = packed[i];
+            }
+        }
+        return Arrays.copyOf(packed, unique);
+    }
+
+    private static long pack(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    private static double priorityWeight(TodoItem.Priority priority) {
+        switch (priority) {
+            case HIGH:
+                return 1.2;
+            case MEDIUM:
+                return 1.1;
+            case LOW:
+            default:
+                return 1.0;
+        }
+    }
+
+    /**
+     * A TODO with its score, ordered lowest score first for the bounded heap
+     */
+    private static class ScoredTodo implements Comparable<ScoredTodo> {
+        private final TodoItem todo;
+        private final double score;
+
+        ScoredTodo(TodoItem todo, double score) {
+            this.todo = todo;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredTodo other) {
+            return Double.compare(score, other.score);
+        }
+    }
+}
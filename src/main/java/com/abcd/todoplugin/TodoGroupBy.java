@@ -0,0 +1,26 @@
+package com.abcd.todoplugin;
+
+/**
+ * How the TODO list is grouped
+ */
+public enum TodoGroupBy {
+    NONE("None"),
+    DUPLICATES("Duplicates"),
+    TICKET("Ticket"),
+    CLOSED_TICKETS("Closed tickets");
+
+    private final String displayName;
+
+    TodoGroupBy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,363 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Gives each TODO a stable identity that survives edits, line shifts and file moves.
+ * <p>
+ * A TODO is described by a fingerprint of its normalized text and a hash of the code around
+ * it. When a file is rescanned, its TODOs are matched against the previous scan in order of
+ * confidence: same fingerprint and context, then same fingerprint, then a fuzzy match on
+ * similar text. Matched TODOs keep their id; the rest get a new id derived from their file,
+ * fingerprint and context, so ids are reproducible. A suffix keeps a new id apart from every
+ * id in use in the project, including those of TODOs that moved here from another file and
+ * persisted ids of files not scanned yet. Anchors of TODOs with persisted metadata can be
+ * seeded, so ids also survive restarts.
+ * <p>
+ * TODOs restored from the scan snapshot have no context hash. They are matched by text only,
+ * in file order, and keep the context of the anchor they matched.
+ */
+public class TodoIdentityTracker {
+
+    /**
+     * What is known about an identified TODO, to match later scans against
+     */
+    public static final class Anchor {
+        private final String id;
+        private final long fingerprint;
+        private final int contextHash;
+        private final String text;
+
+        public Anchor(String id, long fingerprint, int contextHash, String text) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.contextHash = contextHash;
+            this.text = text != null ? text : "";
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public int getContextHash() {
+            return contextHash;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Context hash of TODOs whose context is not known
+     */
+    public static final int UNKNOWN_CONTEXT = 0;
+
+    // Fuzzy matching compares every unmatched pair, so it only runs when few are left
+    private static final int MAX_FUZZY_CANDIDATES = 32;
+
+    // Text similarity needed for a fuzzy match, with and without the same context
+    private static final double SIMILARITY_WITH_CONTEXT = 0.5;
+    private static final double SIMILARITY_WITHOUT_CONTEXT = 0.75;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, List<Anchor>> anchorsByPath = new HashMap<String, List<Anchor>>();
+    // Every id handed out, with the file of its TODO
+    private final Map<String, String> pathsById = new HashMap<String, String>();
+    private final Function<String, List<Anchor>> seeds;
+    private final Predicate<String> persistedIds;
+
+    /**
+     * @param seeds gets the persisted anchors of a file the first time it is scanned; may return an empty list
+     */
+    public TodoIdentityTracker(Function<String, List<Anchor>> seeds) {
+        this(seeds, id -> false);
+    }
+
+    /**
+     * @param seeds gets the persisted anchors of a file the first time it is scanned; may return an empty list
+     * @param persistedIds tells whether an id is persisted for some file, so new TODOs do not take it
+     */
+    public TodoIdentityTracker(Function<String, List<Anchor>> seeds, Predicate<String> persistedIds) {
+        this.seeds = seeds;
+        this.persistedIds = persistedIds;
+    }
+
+    /**
+     * Assigns ids to the TODOs of a freshly scanned file, reusing the ids of TODOs matched
+     * to the previous scan of that file
+     * @param path the file path
+     * @param todos the file's TODOs, in file order
+     * @return the TODOs with ids, in the same order
+     */
+    public synchronized List<TodoItem> assign(String path, List<TodoItem> todos) {
+        List<Anchor> previous = anchorsByPath.get(path);
+        if (previous == null) {
+            previous = seeds.apply(path);
+        } else {
+            release(path, previous);
+        }
+
+        int count = todos.size();
+        long[] fingerprints = new long[count];
+        Anchor[] matches = new Anchor[count];
+        for (int i = 0; i < count; i++) {
+            fingerprints[i] = fingerprint(todos.get(i).getText());
+        }
+
+        if (!previous.isEmpty() && count > 0) {
+            match(todos, fingerprints, previous, matches);
+        }
+
+        Set<String> used = new HashSet<String>();
+        for (int i = 0; i < count; i++) {
+            // A seeded id that another file's TODO already has is not reused
+            if (matches[i] != null && (pathsById.containsKey(matches[i].id) || !used.add(matches[i].id))) {
+                matches[i] = null;
+            }
+        }
+
+        List<TodoItem> identified = new ArrayList<TodoItem>(count);
+        List<Anchor> anchors = new ArrayList<Anchor>(count);
+        for (int i = 0; i < count; i++) {
+            TodoItem todo = todos.get(i);
+            String id = matches[i] != null ? matches[i].id : newId(path, fingerprints[i], todo.getContextHash(), used);
+            pathsById.put(id, path);
+            identified.add(todo.withId(id));
+            int contextHash = todo.getContextHash() == UNKNOWN_CONTEXT && matches[i] != null
+                    ? matches[i].contextHash : todo.getContextHash();
+            anchors.add(new Anchor(id, fingerprints[i], contextHash, todo.getText()));
+        }
+        anchorsByPath.put(path, anchors);
+        return identified;
+    }
+
+    /**
+     * Carries the identities of a moved or renamed file or directory over to its new path
+     * @param oldPath the previous path
+     * @param newPath the new path
+     */
+    public synchronized void move(String oldPath, String newPath) {
+        String oldPrefix = oldPath + '/';
+        Map<String, List<Anchor>> moved = new HashMap<String, List<Anchor>>();
+        anchorsByPath.entrySet().removeIf(entry -> {
+            String path = entry.getKey();
+            if (path.equals(oldPath) || path.startsWith(oldPrefix)) {
+                moved.put(newPath + path.substring(oldPath.length()), entry.getValue());
+                return true;
+            }
+            return false;
+        });
+        for (Map.Entry<String, List<Anchor>> entry : moved.entrySet()) {
+            for (Anchor anchor : entry.getValue()) {
+                pathsById.put(anchor.id, entry.getKey());
+            }
+        }
+        anchorsByPath.putAll(moved);
+    }
+
+    /**
+     * Drops what is known about a deleted file or directory, so its ids can be handed out again
+     * @param path the file or directory path
+     */
+    public synchronized void forget(String path) {
+        String prefix = path + '/';
+        anchorsByPath.entrySet().removeIf(entry -> {
+            if (entry.getKey().equals(path) || entry.getKey().startsWith(prefix)) {
+                release(entry.getKey(), entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Frees the ids of a file's anchors
+     */
+    private void release(String path, List<Anchor> anchors) {
+        for (Anchor anchor : anchors) {
+            pathsById.remove(anchor.id, path);
+        }
+    }
+
+    /**
+     * Gets the fingerprint of a TODO text: its words, lower-cased, ignoring whitespace and punctuation
+     * @param text the TODO text, including the tag
+     * @return the fingerprint
+     */
+    public static long fingerprint(String text) {
+        long hash = FNV_OFFSET;
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space) {
+                    hash = (hash ^ ' ') * FNV_PRIME;
+                    space = false;
+                }
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+            } else if (hash != FNV_OFFSET) {
+                space = true;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Matches TODOs to previous anchors: exactly, then by fingerprint, then fuzzily
+     */
+    private static void match(List<TodoItem> todos, long[] fingerprints, List<Anchor> previous, Anchor[] matches) {
+        Map<Long, ArrayDeque<Anchor>> byExact = new HashMap<Long, ArrayDeque<Anchor>>();
+        Map<Long, ArrayDeque<Anchor>> byFingerprint = new HashMap<Long, ArrayDeque<Anchor>>();
+        for (Anchor anchor : previous) {
+            byExact.computeIfAbsent(exactKey(anchor.fingerprint, anchor.contextHash), k -> new ArrayDeque<Anchor>())
+                    .add(anchor);
+            byFingerprint.computeIfAbsent(anchor.fingerprint, k -> new ArrayDeque<Anchor>()).add(anchor);
+        }
+        Set<Anchor> taken = new HashSet<Anchor>();
+
+        // Same text and context; for repeated TODOs the n-th occurrence keeps the n-th id
+        for (int i = 0; i < todos.size(); i++) {
+            int contextHash = todos.get(i).getContextHash();
+            if (contextHash != UNKNOWN_CONTEXT) {
+                matches[i] = take(byExact.get(exactKey(fingerprints[i], contextHash)), taken);
+            }
+        }
+
+        // Same text, but the code around it changed or is not known
+        for (int i = 0; i < todos.size(); i++) {
+            if (matches[i] == null) {
+                matches[i] = take(byFingerprint.get(fingerprints[i]), taken);
+            }
+        }
+
+        List<Integer> unmatched = new ArrayList<Integer>();
+        for (int i = 0; i < todos.size(); i++) {
+            if (matches[i] == null) {
+                unmatched.add(i);
+            }
+        }
+        List<Anchor> remaining = new ArrayList<Anchor>();
+        for (Anchor anchor : previous) {
+            if (!taken.contains(anchor)) {
+                remaining.add(anchor);
+            }
+        }
+        if (unmatched.isEmpty() || remaining.isEmpty()
+                || unmatched.size() > MAX_FUZZY_CANDIDATES || remaining.size() > MAX_FUZZY_CANDIDATES) {
+            return;
+        }
+
+        List<Set<String>> remainingBigrams = new ArrayList<Set<String>>(remaining.size());
+        for (Anchor anchor : remaining) {
+            remainingBigrams.add(bigrams(anchor.text));
+        }
+
+        // Edited text: the most similar remaining anchor, if similar enough
+        for (int i : unmatched) {
+            TodoItem todo = todos.get(i);
+            Set<String> bigrams = bigrams(todo.getText());
+            Anchor best = null;
+            double bestScore = 0;
+            for (int j = 0; j < remaining.size(); j++) {
+                Anchor anchor = remaining.get(j);
+                if (taken.contains(anchor)) {
+                    continue;
+                }
+                double similarity = similarity(bigrams, remainingBigrams.get(j));
+                boolean sameContext = todo.getContextHash() != UNKNOWN_CONTEXT
+                        && anchor.contextHash == todo.getContextHash();
+                double threshold = sameContext ? SIMILARITY_WITH_CONTEXT : SIMILARITY_WITHOUT_CONTEXT;
+                if (similarity >= threshold && similarity > bestScore) {
+                    best = anchor;
+                    bestScore = similarity;
+                }
+            }
+            if (best != null) {
+                matches[i] = best;
+                taken.add(best);
+            }
+        }
+    }
+
+    /**
+     * Takes the first candidate that is not matched yet; candidates taken through another
+     * lookup are dropped on the way, so each is looked at a bounded number of times
+     */
+    private static Anchor take(ArrayDeque<Anchor> candidates, Set<Anchor> taken) {
+        if (candidates == null) {
+            return null;
+        }
+        Anchor anchor;
+        while ((anchor = candidates.poll()) != null) {
+            if (taken.add(anchor)) {
+                return anchor;
+            }
+        }
+        return null;
+    }
+
+    private static long exactKey(long fingerprint, int contextHash) {
+        return fingerprint * 31 + contextHash;
+    }
+
+    /**
+     * Derives an id from the file, fingerprint and context of a new TODO, adding a suffix
+     * if a TODO of the same file, another file or persisted metadata already has it
+     */
+    private String newId(String path, long fingerprint, int contextHash, Set<String> used) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < path.length(); i++) {
+            hash = (hash ^ path.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ fingerprint) * FNV_PRIME;
+        hash = (hash ^ contextHash) * FNV_PRIME;
+
+        String base = Long.toHexString(hash);
+        String id = base;
+        for (int n = 2; pathsById.containsKey(id) || persistedIds.test(id) || !used.add(id); n++) {
+            id = base + '-' + n;
+        }
+        return id;
+    }
+
+    /**
+     * Dice similarity of two bigram sets
+     */
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String bigram : a) {
+            if (b.contains(bigram)) {
+                common++;
+            }
+        }
+        return 2.0 * common / (a.size() + b.size());
+    }
+
+    private static Set<String> bigrams(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+        Set<String> bigrams = new HashSet<String>();
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            bigrams.add(normalized.substring(i, i + 2));
+        }
+        return bigrams;
+    }
+}
@@ -0,0 +1,169 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only index over a list of TODOs by tag, priority and file name.
+ * Buckets hold ascending positions into the indexed list so that query results
+ * can be produced in the original scan order.
+ */
+public class TodoIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final List<TodoItem> todos;
+    private final Map<String, int[]> byTag = new HashMap<String, int[]>();
+    private final Map<TodoItem.Priority, int[]> byPriority =
+            new EnumMap<TodoItem.Priority, int[]>(TodoItem.Priority.class);
+    private final Map<String, int[]> byFileName = new HashMap<String, int[]>();
+
+    /**
+     * Creates an index over the given TODOs
+     * @param todos the TODOs to index; the list is copied
+     */
+    public TodoIndex(List<TodoItem> todos) {
+        this.todos = todos != null ? new ArrayList<TodoItem>(todos) : new ArrayList<TodoItem>();
+
+        Map<String, Bucket> tags = new HashMap<String, Bucket>();
+        Map<TodoItem.Priority, Bucket> priorities = new EnumMap<TodoItem.Priority, Bucket>(TodoItem.Priority.class);
+        Map<String, Bucket> fileNames = new HashMap<String, Bucket>();
+
+        for (int i = 0; i < this.todos.size(); i++) {
+            TodoItem todo = this.todos.get(i);
+            if (todo == null) {
+                continue;
+            }
+            tags.computeIfAbsent(todo.getTag(), k -> new Bucket()).add(i);
+            priorities.computeIfAbsent(todo.getPriority(), k -> new Bucket()).add(i);
+            fileNames.computeIfAbsent(todo.getFileName().toLowerCase(Locale.ROOT), k -> new Bucket()).add(i);
+        }
+
+        tags.forEach((key, bucket) -> byTag.put(key, bucket.toArray()));
+        priorities.forEach((key, bucket) -> byPriority.put(key, bucket.toArray()));
+        fileNames.forEach((key, bucket) -> byFileName.put(key, bucket.toArray()));
+    }
+
+    /**
+     * Gets the indexed TODOs in their original order
+     * @return unmodifiable view of the indexed TODOs
+     */
+    public List<TodoItem> getTodos() {
+        return Collections.unmodifiableList(todos);
+    }
+
+    /**
+     * Gets the number of indexed TODOs
+     * @return the TODO count
+     */
+    public int size() {
+        return todos.size();
+    }
+
+    /**
+     * Gets the TODO at a position
+     * @param position the position in the indexed list
+     * @return the TODO
+     */
+    public TodoItem get(int position) {
+        return todos.get(position);
+    }
+
+    /**
+     * Gets the positions of TODOs with a tag
+     * @param tag the tag, case-insensitive
+     * @return ascending positions, never null
+     */
+    public int[] positionsForTag(String tag) {
+        int[] positions = byTag.get(tag.toUpperCase(Locale.ROOT));
+        return positions != null ? positions : EMPTY;
+    }
+
+    /**
+     * Gets the positions of TODOs with a priority
+     * @param priority the priority
+     * @return ascending positions, never null
+     */
+    public int[] positionsForPriority(TodoItem.Priority priority) {
+        int[] positions = byPriority.get(priority);
+        return positions != null ? positions : EMPTY;
+    }
+
+    /**
+     * Gets the positions of TODOs in files with exactly this name
+     * @param fileName the file name, case-insensitive
+     * @return ascending positions, never null
+     */
+    public int[] positionsForFileName(String fileName) {
+        int[] positions = byFileName.get(fileName.toLowerCase(Locale.ROOT));
+        return positions != null ? positions : EMPTY;
+    }
+
+    /**
+     * Gets all distinct indexed file names, lower-cased
+     * @return the file names
+     */
+    public Set<String> getFileNames() {
+        return Collections.unmodifiableSet(byFileName.keySet());
+    }
+
+    /**
+     * Merges several ascending position arrays into one ascending array without duplicates
+     * @param arrays the arrays to merge
+     * @return the merged positions
+     */
+    static int[] union(List<int[]> arrays) {
+        if (arrays.isEmpty()) {
+            return EMPTY;
+        }
+        if (arrays.size() == 1) {
+            return arrays.get(0);
+        }
+
+        int total = 0;
+        for (int[] array : arrays) {
+            total += array.length;
+        }
+        int[] merged = new int[total];
+        int offset = 0;
+        for (int[] array : arrays) {
+            System.arraycopy(array, 0, merged, offset, array.length);
+            offset += array.length;
+        }
+        Arrays.sort(merged);
+
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (i == 0 || merged[i] != merged[i - 1]) {
+                merged[unique++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, unique);
+    }
+
+    /**
+     * Growable int array used while building buckets
+     */
+    private static class Bucket {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
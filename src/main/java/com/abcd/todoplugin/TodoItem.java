@@ -1,10 +1,15 @@
 package com.abcd.todoplugin;
 
 import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
- * Represents a TODO item found in a Kotlin file
+ * Represents a TODO item found in a Kotlin file.
+ * <p>
+ * Items given an id by {@link TodoIdentityTracker} are equal when their ids are, so the
+ * same TODO stays the same item when lines shift, its file moves or its text is edited.
+ * Items without an id fall back to comparing file, line, text and priority.
  */
 public class TodoItem {
 
@@ -40,8 +45,12 @@ public class TodoItem {
 
     private final VirtualFile file;
     private final int lineNumber;
+    private final int startOffset;
     private final String text;
+    private final String tag;
     private final Priority priority;
+    private final int contextHash;
+    private final String id;
 
     /**
      * Creates a new TodoItem
@@ -51,10 +60,99 @@ public class TodoItem {
      * @param priority the priority level
      */
     public TodoItem(VirtualFile file, int lineNumber, String text, Priority priority) {
+        this(file, lineNumber, text, null, priority);
+    }
+
+    /**
+     * Creates a new TodoItem with an explicit tag
+     * @param file the file containing the TODO
+     * @param lineNumber the line number (1-based)
+     * @param text the TODO text content
+     * @param tag the TODO tag (TODO, FIXME, ...), or null to derive it from the text
+     * @param priority the priority level
+     */
+    public TodoItem(VirtualFile file, int lineNumber, String text, String tag, Priority priority) {
+        this(file, lineNumber, 0, text, tag, priority);
+    }
+
+    /**
+     * Creates a new TodoItem with a known position in the file
+     * @param file the file containing the TODO
+     * @param lineNumber the line number (1-based)
+     * @param startOffset the offset of the comment in the file text
+     * @param text the TODO text content
+     * @param tag the TODO tag (TODO, FIXME, ...), or null to derive it from the text
+     * @param priority the priority level
+     */
+    public TodoItem(VirtualFile file, int lineNumber, int startOffset, String text, String tag, Priority priority) {
+        this(file, lineNumber, startOffset, text, tag, priority, 0);
+    }
+
+    /**
+     * Creates a new TodoItem with a known position and context in the file
+     * @param file the file containing the TODO
+     * @param lineNumber the line number (1-based)
+     * @param startOffset the offset of the comment in the file text
+     * @param text the TODO text content
+     * @param tag the TODO tag (TODO, FIXME, ...), or null to derive it from the text
+     * @param priority the priority level
+     * @param contextHash hash of the code around the TODO, or 0 if unknown
+     */
+    public TodoItem(VirtualFile file, int lineNumber, int startOffset, String text, String tag, Priority priority,
+                    int contextHash) {
+        this(file, lineNumber, startOffset, text,
+                tag != null ? tag.toUpperCase(Locale.ROOT) : deriveTag(text != null ? text : ""),
+                priority, contextHash, null);
+    }
+
+    private TodoItem(VirtualFile file, int lineNumber, int startOffset, String text, String tag, Priority priority,
+                     int contextHash, String id) {
         this.file = file;
         this.lineNumber = lineNumber;
+        this.startOffset = Math.max(0, startOffset);
         this.text = text != null ? text : "";
+        this.tag = tag;
         this.priority = priority != null ? priority : Priority.LOW;
+        this.contextHash = contextHash;
+        this.id = id;
+    }
+
+    /**
+     * Gets a copy of this TODO with a stable identity
+     * @param id the identity assigned by {@link TodoIdentityTracker}
+     * @return the identified TODO
+     */
+    public TodoItem withId(String id) {
+        return Objects.equals(id, this.id) ? this
+                : new TodoItem(file, lineNumber, startOffset, text, tag, priority, contextHash, id);
+    }
+
+    /**
+     * Gets the stable identity of this TODO
+     * @return the id, or null if none was assigned
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the hash of the code around this TODO
+     * @return the context hash, or 0 if unknown
+     */
+    public int getContextHash() {
+        return contextHash;
+    }
+
+    /**
+     * Checks whether this TODO is the same as another one in every displayed respect,
+     * not only in identity; used to detect TODOs that kept their id but moved or changed
+     * @param other the TODO to compare with
+     * @return true if both are equal and have the same position, text and tag
+     */
+    public boolean isSameAs(TodoItem other) {
+        return equals(other) && lineNumber == other.lineNumber && startOffset == other.startOffset
+                && text.equals(other.text) && tag.equals(other.tag) && priority == other.priority
+                && Objects.equals(file, other.file);
     }
 
     /**
@@ -81,6 +179,14 @@ public class TodoItem {
         return text;
     }
 
+    /**
+     * Gets the tag of this TODO (TODO, FIXME, HACK, NOTE, BUG)
+     * @return the upper-case tag
+     */
+    public String getTag() {
+        return tag;
+    }
+
     /**
      * Gets the priority of this TODO
      * @return the priority level
@@ -120,24 +226,29 @@ public class TodoItem {
 
     /**
      * Gets the start offset of this TODO in the document
-     * Note: This is calculated based on line number
+     * Note: This is the offset of the comment marker at scan time, or 0 if unknown
      * @return the start offset
      */
     public int getStartOffset() {
-        // This would need to be calculated from the document
-        // For now, return 0 - should be set during creation if needed
-        return 0;
+        return startOffset;
     }
 
     /**
      * Gets the end offset of this TODO in the document
-     * Note: This is calculated based on line number and text length
+     * Note: This is approximated from the start offset and text length
      * @return the end offset
      */
     public int getEndOffset() {
-        // This would need to be calculated from the document
-        // For now, return text length - should be set during creation if needed
-        return text.length();
+        return startOffset + text.length();
+    }
+
+    /**
+     * Derives the tag from text of the form "TYPE: content"
+     */
+    private static String deriveTag(String text) {
+        int colon = text.indexOf(':');
+        String candidate = colon > 0 ? text.substring(0, colon).trim() : "";
+        return candidate.isEmpty() ? "TODO" : candidate.toUpperCase(Locale.ROOT);
     }
 
     @Override
@@ -146,7 +257,11 @@ public class TodoItem {
         if (obj == null || getClass() != obj.getClass()) return false;
 
         TodoItem todoItem = (TodoItem) obj;
-        return lineNumber == todoItem.lineNumber &&
+        if (id != null && todoItem.id != null) {
+            return id.equals(todoItem.id);
+        }
+        return id == null && todoItem.id == null &&
+                lineNumber == todoItem.lineNumber &&
                 Objects.equals(file, todoItem.file) &&
                 Objects.equals(text, todoItem.text) &&
                 priority == todoItem.priority;
@@ -154,7 +269,7 @@ public class TodoItem {
 
     @Override
     public int hashCode() {
-        return Objects.hash(file, lineNumber, text, priority);
+        return id != null ? id.hashCode() : Objects.hash(file, lineNumber, text, priority);
     }
 
     @Override
@@ -0,0 +1,49 @@
+package com.abcd.todoplugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of rendered line windows for the preview pane. Entries are keyed by
+ * file path, modification stamp and line, so an edited file never serves stale context.
+ */
+public class TodoLineWindowCache {
+
+    private final Map<String, String> windows;
+
+    /**
+     * Creates a cache
+     * @param capacity the maximum number of windows kept
+     */
+    public TodoLineWindowCache(int capacity) {
+        this.windows = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key of a window
+     * @param path the file path
+     * @param modificationStamp the modification stamp of the content the window was read from
+     * @param lineNumber the 1-based line the window is centered on
+     * @return the key
+     */
+    public static String key(String path, long modificationStamp, int lineNumber) {
+        return path + "\n" + modificationStamp + "\n" + lineNumber;
+    }
+
+    public synchronized String get(String key) {
+        return windows.get(key);
+    }
+
+    public synchronized void put(String key, String window) {
+        windows.put(key, window);
+    }
+
+    public synchronized void clear() {
+        windows.clear();
+    }
+}
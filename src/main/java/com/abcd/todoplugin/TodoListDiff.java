@@ -0,0 +1,182 @@
+package com.abcd.todoplugin;
+
+import javax.swing.DefaultListModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a new list of TODOs to a list model as a keyed diff, so that only
+ * the rows that actually changed fire insert/remove/change events.
+ */
+public final class TodoListDiff {
+
+    // Above this many out-of-place rows, moving rows one by one costs more than replacing the list
+    private static final int MAX_MOVED_ROWS = 64;
+
+    private TodoListDiff() {
+    }
+
+    /**
+     * Updates the model in place so that it contains exactly the target TODOs, in order.
+     * Rows are matched by file and TODO identity; unchanged rows keep their selection and
+     * scroll position because no event is fired for them.
+     * @param model the list model to update
+     * @param target the new contents
+     */
+    public static void apply(DefaultListModel<TodoItem> model, List<TodoItem> target) {
+        List<String> targetKeys = computeKeys(target);
+        Set<String> targetKeySet = new HashSet<String>(targetKeys);
+
+        List<TodoItem> current = new ArrayList<TodoItem>(model.getSize());
+        for (int i = 0; i < model.getSize(); i++) {
+            current.add(model.getElementAt(i));
+        }
+        List<String> modelKeys = computeKeys(current);
+
+        // Remove rows that are gone, from the end so indices stay valid, in contiguous runs
+        int i = modelKeys.size() - 1;
+        while (i >= 0) {
+            if (targetKeySet.contains(modelKeys.get(i))) {
+                i--;
+                continue;
+            }
+            int end = i;
+            while (i >= 0 && !targetKeySet.contains(modelKeys.get(i))) {
+                i--;
+            }
+            model.removeRange(i + 1, end);
+            modelKeys.subList(i + 1, end + 1).clear();
+        }
+
+        // Rows that keep their relative order stay put; the others are taken out and inserted
+        // again at their new position, so moving one row costs one removal and one insertion
+        Set<String> stableKeys = findStableKeys(modelKeys, targetKeys);
+        int moved = 0;
+        for (String key : modelKeys) {
+            if (!stableKeys.contains(key)) {
+                moved++;
+            }
+        }
+
+        // Each moved row costs an event pair, so a large reorder (such as a sort change)
+        // replaces the contents with two events instead
+        if (moved > MAX_MOVED_ROWS) {
+            model.removeAllElements();
+            model.addAll(target);
+            return;
+        }
+
+        i = modelKeys.size() - 1;
+        while (i >= 0) {
+            if (stableKeys.contains(modelKeys.get(i))) {
+                i--;
+                continue;
+            }
+            int end = i;
+            while (i >= 0 && !stableKeys.contains(modelKeys.get(i))) {
+                i--;
+            }
+            model.removeRange(i + 1, end);
+            modelKeys.subList(i + 1, end + 1).clear();
+        }
+
+        // Walk the target list, inserting new and moved rows and updating changed ones
+        int index = 0;
+        while (index < targetKeys.size()) {
+            String key = targetKeys.get(index);
+
+            if (index < modelKeys.size() && modelKeys.get(index).equals(key)) {
+                TodoItem newItem = target.get(index);
+                if (!model.getElementAt(index).isSameAs(newItem)) {
+                    model.set(index, newItem);
+                }
+                index++;
+                continue;
+            }
+
+            // Collect a run of rows not in the model and insert them with a single event
+            int runEnd = index;
+            while (runEnd < targetKeys.size() && !stableKeys.contains(targetKeys.get(runEnd))) {
+                runEnd++;
+            }
+            model.addAll(index, target.subList(index, runEnd));
+            modelKeys.addAll(index, targetKeys.subList(index, runEnd));
+            index = runEnd;
+        }
+    }
+
+    /**
+     * Finds the largest set of model rows that are already in target order: the longest
+     * increasing subsequence of their model positions, taken in target order
+     */
+    private static Set<String> findStableKeys(List<String> modelKeys, List<String> targetKeys) {
+        Map<String, Integer> modelPositions = new HashMap<String, Integer>(modelKeys.size() * 2);
+        for (int i = 0; i < modelKeys.size(); i++) {
+            modelPositions.put(modelKeys.get(i), i);
+        }
+
+        int[] positions = new int[modelKeys.size()];
+        int count = 0;
+        for (String key : targetKeys) {
+            Integer position = modelPositions.get(key);
+            if (position != null) {
+                positions[count++] = position;
+            }
+        }
+
+        // tails[k]: index into positions of the smallest tail of an increasing run of length k + 1
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions[tails[middle]] < positions[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        Set<String> stable = new HashSet<String>(length * 2);
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            stable.add(modelKeys.get(positions[i]));
+        }
+        return stable;
+    }
+
+    /**
+     * Builds identity keys for a list of TODOs. A TODO is identified by its file and its
+     * stable id if it has one, so edits to its text keep the row. Otherwise it is identified
+     * by its text plus its occurrence among identical TODOs in that file, so that shifting
+     * lines does not turn it into a different row.
+     */
+    private static List<String> computeKeys(List<TodoItem> todos) {
+        List<String> keys = new ArrayList<String>(todos.size());
+        Map<String, Integer> occurrences = new HashMap<String, Integer>();
+
+        for (TodoItem todo : todos) {
+            if (todo.getId() != null) {
+                keys.add(todo.getFilePath() + "\nid:" + todo.getId());
+                continue;
+            }
+            String base = todo.getFilePath() + '\n' + todo.getText();
+            int occurrence = occurrences.merge(base, 1, Integer::sum);
+            keys.add(base + '\n' + occurrence);
+        }
+
+        return keys;
+    }
+}
@@ -0,0 +1,195 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Read-only preview of the lines around the selected TODO. Context is read off the EDT from
+ * the open document, or from the file bytes if the file is not loaded, so moving through the
+ * list never opens editors. Only the most recent selection is shown.
+ */
+public class TodoPreviewPane extends JPanel implements Disposable {
+    private static final Logger LOG = Logger.getInstance(TodoPreviewPane.class);
+
+    // Lines shown above and below the TODO
+    private static final int CONTEXT_LINES = 5;
+
+    // Long lines (e.g. minified code) are cut in the preview
+    private static final int MAX_LINE_LENGTH = 300;
+
+    private static final int CACHE_CAPACITY = 512;
+
+    private final Project project;
+    private final JTextArea textArea;
+    private final TodoLineWindowCache cache = new TodoLineWindowCache(CACHE_CAPACITY);
+    private final ExecutorService loader =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Kotlin TODO Preview", 1);
+
+    // Incremented per selection on the EDT; a load is skipped, or its result dropped, once it is no longer the latest
+    private volatile int sequence;
+
+    public TodoPreviewPane(Project project) {
+        super(new BorderLayout());
+        this.project = project;
+        this.textArea = new JTextArea();
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+
+        JBScrollPane scrollPane = new JBScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(300, 150));
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    /**
+     * Shows the context of a TODO; must be called on the EDT
+     * @param todo the TODO to preview, or null to clear the pane
+     */
+    public void showTodo(TodoItem todo) {
+        int current = ++sequence;
+        VirtualFile file = todo != null ? todo.getFile() : null;
+        if (file == null || !file.isValid()) {
+            textArea.setText("");
+            return;
+        }
+
+        int lineNumber = todo.getLineNumber();
+        try {
+            loader.execute(() -> {
+                if (current != sequence) {
+                    return;
+                }
+                String window = loadWindow(file, lineNumber);
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    if (current == sequence) {
+                        showWindow(window);
+                    }
+                }, project.getDisposed());
+            });
+        } catch (RejectedExecutionException e) {
+            // The pane is being disposed
+        }
+    }
+
+    private void showWindow(String window) {
+        textArea.setText(window);
+
+        // Scroll to the TODO line, which is in the middle of the window when there is enough context above it
+        int markerLine = window.indexOf("\n> ");
+        textArea.setCaretPosition(markerLine >= 0 ? markerLine + 1 : 0);
+    }
+
+    /**
+     * Gets the window around a line from the cache, reading it on a miss
+     */
+    private String loadWindow(VirtualFile file, int lineNumber) {
+        try {
+            return ReadAction.compute(() -> {
+                if (!file.isValid()) {
+                    return "";
+                }
+
+                Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+                long stamp = document != null ? document.getModificationStamp() : file.getModificationStamp();
+                String key = TodoLineWindowCache.key(file.getPath(), stamp, lineNumber);
+
+                String window = cache.get(key);
+                if (window == null) {
+                    window = document != null ? readWindow(document, lineNumber) : readWindow(file, lineNumber);
+                    cache.put(key, window);
+                }
+                return window;
+            });
+        } catch (IOException e) {
+            LOG.warn("Could not read preview of " + file.getName(), e);
+            return "";
+        }
+    }
+
+    private static String readWindow(Document document, int lineNumber) {
+        CharSequence text = document.getCharsSequence();
+        int lineCount = document.getLineCount();
+        int first = Math.max(1, lineNumber - CONTEXT_LINES);
+        int last = Math.min(lineCount, lineNumber + CONTEXT_LINES);
+
+        List<String> lines = new ArrayList<String>();
+        for (int line = first; line <= last; line++) {
+            int start = document.getLineStartOffset(line - 1);
+            int end = document.getLineEndOffset(line - 1);
+            lines.add(text.subSequence(start, end).toString());
+        }
+        return format(lines, first, lineNumber);
+    }
+
+    /**
+     * Reads the window from the file contents, stopping after its last line
+     */
+    private static String readWindow(VirtualFile file, int lineNumber) throws IOException {
+        Deque<String> lines = new ArrayDeque<String>();
+        int last = lineNumber + CONTEXT_LINES;
+        int line = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), file.getCharset()))) {
+            String text;
+            while (line < last && (text = reader.readLine()) != null) {
+                line++;
+                lines.addLast(text);
+                if (lines.size() > 2 * CONTEXT_LINES + 1) {
+                    lines.removeFirst();
+                }
+            }
+        }
+
+        // Files ending before the window does have fewer lines after the TODO, not more before it
+        while (!lines.isEmpty() && line - lines.size() + 1 < lineNumber - CONTEXT_LINES) {
+            lines.removeFirst();
+        }
+        int first = line - lines.size() + 1;
+        return format(new ArrayList<String>(lines), first, lineNumber);
+    }
+
+    /**
+     * Renders lines with their numbers, marking the TODO line
+     */
+    private static String format(List<String> lines, int firstLine, int todoLine) {
+        StringBuilder window = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            int line = firstLine + i;
+            String text = lines.get(i);
+            if (text.length() > MAX_LINE_LENGTH) {
+                text = text.substring(0, MAX_LINE_LENGTH) + "...";
+            }
+            window.append(line == todoLine ? "> " : "  ")
+                    .append(String.format("%5d  ", line))
+                    .append(text)
+                    .append('\n');
+        }
+        return window.toString();
+    }
+
+    @Override
+    public void dispose() {
+        sequence++;
+        loader.shutdownNow();
+        cache.clear();
+    }
+}
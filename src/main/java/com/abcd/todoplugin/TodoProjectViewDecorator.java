@@ -0,0 +1,39 @@
+package com.abcd.todoplugin;
+
+import com.intellij.ide.projectView.PresentationData;
+import com.intellij.ide.projectView.ProjectViewNode;
+import com.intellij.ide.projectView.ProjectViewNodeDecorator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Shows the rolled-up TODO count of each directory in the Project view
+ */
+public class TodoProjectViewDecorator implements ProjectViewNodeDecorator {
+
+    @Override
+    public void decorate(@NotNull ProjectViewNode<?> node, @NotNull PresentationData data) {
+        if (!KotlinTodoState.getInstance().isProjectViewDecorations()) {
+            return;
+        }
+
+        Project project = node.getProject();
+        VirtualFile file = node.getVirtualFile();
+        if (project == null || project.isDisposed() || file == null || !file.isDirectory()) {
+            return;
+        }
+
+        KotlinTodoService service = project.getService(KotlinTodoService.class);
+        if (service == null) {
+            return;
+        }
+
+        // Reading a subtree total from the trie is constant time, so this is safe to run per node
+        int total = service.getStatsTrie().getCounts(file.getPath()).getTotal();
+        String location = data.getLocationString();
+        if (total > 0 && (location == null || location.isEmpty())) {
+            data.setLocationString(total + (total == 1 ? " TODO" : " TODOs"));
+        }
+    }
+}
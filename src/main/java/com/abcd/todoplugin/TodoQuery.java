@@ -0,0 +1,353 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Structured filter query over TODOs, for example
+ * {@code tag:FIXME priority:high file:*Repository.kt text:"retry"}.
+ * <p>
+ * Terms within a clause are combined with AND, clauses are separated by {@code OR}
+ * (or {@code |}), and a leading {@code -} negates a term. Terms without a field fall
+ * back to the plain keyword match used by {@link KotlinTodoScanner#filterTodos}.
+ * <p>
+ * Each clause is planned against a {@link TodoIndex}: the most selective positive
+ * indexed term (tag, priority or file name) produces the candidate set, and the
+ * remaining terms are evaluated on those candidates, cheapest first.
+ */
+public class TodoQuery {
+
+    /**
+     * Fields that can be used in a query term
+     */
+    enum Field {
+        TAG("tag", 0),
+        PRIORITY("priority", 0),
+        FILE("file", 1),
+        TEXT("text", 2),
+        ANY(null, 3);
+
+        private final String prefix;
+        private final int cost;
+
+        Field(String prefix, int cost) {
+            this.prefix = prefix;
+            this.cost = cost;
+        }
+
+        static Field fromPrefix(String prefix) {
+            for (Field field : values()) {
+                if (field.prefix != null && field.prefix.equalsIgnoreCase(prefix)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final List<List<Term>> clauses;
+
+    private TodoQuery(List<List<Term>> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Checks whether the input uses query syntax rather than a plain keyword
+     * @param input the filter input
+     * @return true if the input contains a field term or an OR operator
+     */
+    public static boolean isStructured(String input) {
+        if (input == null || input.trim().isEmpty()) {
+            return false;
+        }
+
+        for (String token : tokenize(input)) {
+            if (isOrToken(token)) {
+                return true;
+            }
+            String body = token.startsWith("-") ? token.substring(1) : token;
+            int colon = body.indexOf(':');
+            if (colon > 0 && Field.fromPrefix(body.substring(0, colon)) != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses a query string
+     * @param input the query text
+     * @return the parsed query; an empty query matches everything
+     */
+    public static TodoQuery parse(String input) {
+        List<List<Term>> clauses = new ArrayList<List<Term>>();
+        List<Term> current = new ArrayList<Term>();
+
+        for (String token : tokenize(input != null ? input : "")) {
+            if (isOrToken(token)) {
+                if (!current.isEmpty()) {
+                    clauses.add(current);
+                    current = new ArrayList<Term>();
+                }
+                continue;
+            }
+
+            Term term = parseTerm(token);
+            if (term != null) {
+                current.add(term);
+            }
+        }
+
+        if (!current.isEmpty()) {
+            clauses.add(current);
+        }
+
+        return new TodoQuery(clauses);
+    }
+
+    /**
+     * Runs the query against an index
+     * @param index the index to query
+     * @return matching TODOs in their original order
+     */
+    public List<TodoItem> execute(TodoIndex index) {
+        if (clauses.isEmpty()) {
+            return new ArrayList<TodoItem>(index.getTodos());
+        }
+
+        List<int[]> clauseResults = new ArrayList<int[]>(clauses.size());
+        for (List<Term> clause : clauses) {
+            clauseResults.add(executeClause(clause, index));
+        }
+
+        int[] positions = TodoIndex.union(clauseResults);
+        List<TodoItem> result = new ArrayList<TodoItem>(positions.length);
+        for (int position : positions) {
+            result.add(index.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates one AND clause, driving it from the smallest indexed candidate set
+     */
+    private static int[] executeClause(List<Term> clause, TodoIndex index) {
+        int[] candidates = null;
+        Term driver = null;
+
+        for (Term term : clause) {
+            if (term.negated) {
+                continue;
+            }
+            int[] positions = term.lookup(index);
+            if (positions != null && (candidates == null || positions.length < candidates.length)) {
+                candidates = positions;
+                driver = term;
+            }
+        }
+
+        List<Term> remaining = new ArrayList<Term>(clause);
+        remaining.remove(driver);
+        remaining.sort(Comparator.comparingInt(term -> term.field.cost));
+
+        int[] matched = new int[candidates != null ? candidates.length : index.size()];
+        int count = 0;
+        int total = candidates != null ? candidates.length : index.size();
+
+        for (int i = 0; i < total; i++) {
+            int position = candidates != null ? candidates[i] : i;
+            TodoItem todo = index.get(position);
+            if (todo != null && matchesAll(remaining, todo)) {
+                matched[count++] = position;
+            }
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(matched, 0, result, 0, count);
+        return result;
+    }
+
+    private static boolean matchesAll(List<Term> terms, TodoItem todo) {
+        for (Term term : terms) {
+            if (!term.matches(todo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOrToken(String token) {
+        return "OR".equals(token) || "|".equals(token);
+    }
+
+    private static Term parseTerm(String token) {
+        boolean negated = false;
+        String body = token;
+        if (body.length() > 1 && body.startsWith("-")) {
+            negated = true;
+            body = body.substring(1);
+        }
+
+        Field field = Field.ANY;
+        int colon = body.indexOf(':');
+        if (colon > 0) {
+            Field parsed = Field.fromPrefix(body.substring(0, colon));
+            if (parsed != null) {
+                field = parsed;
+                body = body.substring(colon + 1);
+            }
+        }
+
+        body = unquote(body);
+        if (body.isEmpty()) {
+            return null;
+        }
+
+        return new Term(field, body, negated);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Splits the input on whitespace, keeping double-quoted sections together
+     */
+    private static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                current.append(c);
+            } else if (Character.isWhitespace(c) && !inQuotes) {
+                if (current.length() > 0) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+
+        return tokens;
+    }
+
+    /**
+     * A single, possibly negated, field predicate
+     */
+    private static class Term {
+        private final Field field;
+        private final String value;
+        private final String lowerValue;
+        private final boolean negated;
+        private final TodoItem.Priority priority;
+        private final Pattern fileGlob;
+
+        Term(Field field, String value, boolean negated) {
+            this.field = field;
+            this.value = value;
+            this.lowerValue = value.toLowerCase(Locale.ROOT);
+            this.negated = negated;
+            this.priority = field == Field.PRIORITY ? parsePriority(value) : null;
+            this.fileGlob = field == Field.FILE ? compileGlob(lowerValue) : null;
+        }
+
+        boolean matches(TodoItem todo) {
+            return evaluate(todo) != negated;
+        }
+
+        private boolean evaluate(TodoItem todo) {
+            switch (field) {
+                case TAG:
+                    return todo.getTag().equalsIgnoreCase(value);
+                case PRIORITY:
+                    return todo.getPriority() == priority;
+                case FILE:
+                    return matchesFile(lowerValue.indexOf('/') >= 0
+                            ? todo.getFilePath().toLowerCase(Locale.ROOT)
+                            : todo.getFileName().toLowerCase(Locale.ROOT));
+                case TEXT:
+                    return todo.getText().toLowerCase(Locale.ROOT).contains(lowerValue);
+                case ANY:
+                default:
+                    return KotlinTodoScanner.matchesTodo(todo, lowerValue);
+            }
+        }
+
+        /**
+         * Looks up candidate positions for a positive term
+         * @return ascending positions, or null if the term cannot use the index
+         */
+        int[] lookup(TodoIndex index) {
+            switch (field) {
+                case TAG:
+                    return index.positionsForTag(value);
+                case PRIORITY:
+                    return priority != null ? index.positionsForPriority(priority) : new int[0];
+                case FILE:
+                    if (lowerValue.indexOf('/') >= 0) {
+                        return null;
+                    }
+                    List<int[]> buckets = new ArrayList<int[]>();
+                    for (String fileName : index.getFileNames()) {
+                        if (matchesFile(fileName)) {
+                            buckets.add(index.positionsForFileName(fileName));
+                        }
+                    }
+                    return TodoIndex.union(buckets);
+                default:
+                    return null;
+            }
+        }
+
+        private boolean matchesFile(String candidate) {
+            return fileGlob != null ? fileGlob.matcher(candidate).matches() : candidate.contains(lowerValue);
+        }
+
+        private static TodoItem.Priority parsePriority(String value) {
+            for (TodoItem.Priority candidate : TodoItem.Priority.values()) {
+                if (candidate.name().equalsIgnoreCase(value)
+                        || String.valueOf(candidate.getLevel()).equals(value)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Compiles a file glob with * and ? wildcards, or returns null for a plain substring
+         */
+        private static Pattern compileGlob(String glob) {
+            if (glob.indexOf('*') < 0 && glob.indexOf('?') < 0) {
+                return null;
+            }
+
+            StringBuilder regex = new StringBuilder();
+            for (char c : glob.toCharArray()) {
+                if (c == '*') {
+                    regex.append(".*");
+                } else if (c == '?') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Latest scan results per file, keyed by file path. Listeners receive the old and new
+ * TODOs of a file whenever its results change, so derived data (statistics, indexes)
+ * can be maintained incrementally instead of being recomputed from every TODO.
+ * Results may carry the modification stamp of the content they were computed from, so
+ * other consumers (such as the inspection) can reuse them instead of rescanning.
+ * Changes of one file reach listeners in the order they were made, even when several
+ * threads update it at once: a change made while another thread is delivering the file's
+ * changes is handed to that thread. Changes of different files are delivered concurrently.
+ */
+public class TodoResultStore {
+
+    /**
+     * Receives per-file result changes
+     */
+    public interface Listener {
+        /**
+         * @param path the file path
+         * @param oldTodos the previous TODOs of the file, empty if none
+         * @param newTodos the new TODOs of the file, empty if the file was removed
+         */
+        void fileResultsChanged(String path, List<TodoItem> oldTodos, List<TodoItem> newTodos);
+    }
+
+    private final Map<String, List<TodoItem>> resultsByPath = new HashMap<String, List<TodoItem>>();
+    private final Map<String, Long> stampsByPath = new HashMap<String, Long>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    // Changes not yet delivered, per file; a file has an entry only while a thread is delivering its changes
+    private final Map<String, ArrayDeque<Change>> pendingByPath = new HashMap<String, ArrayDeque<Change>>();
+
+    /**
+     * Registers a listener
+     * @param listener the listener to notify of per-file changes
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener
+     * @param listener the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Replaces the results of one file
+     * @param path the file path
+     * @param todos the file's TODOs
+     */
+    public void update(String path, List<TodoItem> todos) {
+        update(path, todos, -1);
+    }
+
+    /**
+     * Replaces the results of one file and records the content they were computed from
+     * @param path the file path
+     * @param todos the file's TODOs
+     * @param stamp the modification stamp of the scanned content, or -1 if unknown
+     */
+    public void update(String path, List<TodoItem> todos, long stamp) {
+        List<TodoItem> newTodos = Collections.unmodifiableList(new ArrayList<TodoItem>(todos));
+        boolean deliver;
+        synchronized (this) {
+            List<TodoItem> oldTodos = newTodos.isEmpty() ? resultsByPath.remove(path) : resultsByPath.put(path, newTodos);
+            if (stamp >= 0) {
+                stampsByPath.put(path, stamp);
+            } else {
+                stampsByPath.remove(path);
+            }
+
+            if (oldTodos == null) {
+                oldTodos = Collections.emptyList();
+            }
+            if (isSame(oldTodos, newTodos)) {
+                return;
+            }
+            deliver = enqueue(new Change(path, oldTodos, newTodos, null));
+        }
+        if (deliver) {
+            deliverPending(path);
+        }
+    }
+
+    /**
+     * Moves the results of a file to a new path, keeping the TODOs and their identities
+     * @param oldPath the previous file path
+     * @param newPath the new file path
+     */
+    public void move(String oldPath, String newPath) {
+        List<TodoItem> todos;
+        synchronized (this) {
+            todos = resultsByPath.get(oldPath);
+        }
+        if (todos != null) {
+            remove(oldPath);
+            update(newPath, todos);
+        }
+    }
+
+    /**
+     * Gets the paths of every file with results
+     * @return a copy of the paths
+     */
+    public synchronized Set<String> getPaths() {
+        return new HashSet<String>(resultsByPath.keySet());
+    }
+
+    /**
+     * Removes the results of one file
+     * @param path the file path
+     */
+    public void remove(String path) {
+        update(path, Collections.<TodoItem>emptyList());
+    }
+
+    /**
+     * Removes the results of every file that is not in the given set
+     * @param paths the paths to keep
+     */
+    public void retainOnly(Set<String> paths) {
+        List<String> stale = new ArrayList<String>();
+        synchronized (this) {
+            for (String path : resultsByPath.keySet()) {
+                if (!paths.contains(path)) {
+                    stale.add(path);
+                }
+            }
+        }
+        for (String path : stale) {
+            remove(path);
+        }
+    }
+
+    /**
+     * Gets the results of one file
+     * @param path the file path
+     * @return the file's TODOs, empty if none are known
+     */
+    public synchronized List<TodoItem> get(String path) {
+        List<TodoItem> todos = resultsByPath.get(path);
+        return todos != null ? todos : Collections.<TodoItem>emptyList();
+    }
+
+    /**
+     * Gets the results of one file if they were computed from the given content
+     * @param path the file path
+     * @param stamp the modification stamp of the current content
+     * @return the file's TODOs, or null if the file was not scanned at that stamp
+     */
+    public synchronized List<TodoItem> getIfCurrent(String path, long stamp) {
+        Long scanned = stampsByPath.get(path);
+        return scanned != null && scanned == stamp ? get(path) : null;
+    }
+
+    /**
+     * Visits the results of every file without copying them into one list
+     * @param visitor receives each path and its TODOs
+     */
+    public void forEach(BiConsumer<String, List<TodoItem>> visitor) {
+        Map<String, List<TodoItem>> snapshot;
+        synchronized (this) {
+            snapshot = new HashMap<String, List<TodoItem>>(resultsByPath);
+        }
+        snapshot.forEach(visitor);
+    }
+
+    /**
+     * Sends the current results of every file to one listener as if they were new, in order
+     * with any changes still being delivered, e.g. after the listener dropped its data
+     * @param listener the listener to bring up to date
+     */
+    public void replay(Listener listener) {
+        List<String> paths = new ArrayList<String>();
+        synchronized (this) {
+            for (Map.Entry<String, List<TodoItem>> entry : resultsByPath.entrySet()) {
+                if (enqueue(new Change(entry.getKey(), Collections.<TodoItem>emptyList(), entry.getValue(), listener))) {
+                    paths.add(entry.getKey());
+                }
+            }
+        }
+        for (String path : paths) {
+            deliverPending(path);
+        }
+    }
+
+    /**
+     * Gets the number of files with TODOs
+     * @return the file count
+     */
+    public synchronized int getFileCount() {
+        return resultsByPath.size();
+    }
+
+    /**
+     * Compares results item by item, including positions, since identified TODOs are
+     * equal even after they move to another line
+     */
+    private static boolean isSame(List<TodoItem> oldTodos, List<TodoItem> newTodos) {
+        if (oldTodos.size() != newTodos.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldTodos.size(); i++) {
+            if (!oldTodos.get(i).isSameAs(newTodos.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queues a change for its file
+     * @return true if the caller must deliver the file's changes, false if another thread already is
+     */
+    private boolean enqueue(Change change) {
+        ArrayDeque<Change> pending = pendingByPath.get(change.path);
+        boolean deliver = pending == null;
+        if (deliver) {
+            pending = new ArrayDeque<Change>();
+            pendingByPath.put(change.path, pending);
+        }
+        pending.add(change);
+        return deliver;
+    }
+
+    /**
+     * Delivers a file's queued changes until none are left, including ones queued meanwhile
+     */
+    private void deliverPending(String path) {
+        boolean done = false;
+        try {
+            while (true) {
+                Change change;
+                synchronized (this) {
+                    change = pendingByPath.get(path).poll();
+                    if (change == null) {
+                        pendingByPath.remove(path);
+                        done = true;
+                        return;
+                    }
+                }
+                for (Listener listener : change.target != null ? Collections.singletonList(change.target) : listeners) {
+                    listener.fileResultsChanged(path, change.oldTodos, change.newTodos);
+                }
+            }
+        } finally {
+            if (!done) {
+                // A listener failed; let the next change of the file start a new delivery
+                synchronized (this) {
+                    pendingByPath.remove(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * A change of one file's results, for every listener or for one
+     */
+    private static class Change {
+        final String path;
+        final List<TodoItem> oldTodos;
+        final List<TodoItem> newTodos;
+        final Listener target;
+
+        Change(String path, List<TodoItem> oldTodos, List<TodoItem> newTodos, Listener target) {
+            this.path = path;
+            this.oldTodos = oldTodos;
+            this.newTodos = newTodos;
+            this.target = target;
+        }
+    }
+}
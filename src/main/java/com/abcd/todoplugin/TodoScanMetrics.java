@@ -0,0 +1,119 @@
+package com.abcd.todoplugin;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency samples for user-facing TODO operations: scans, filter keystrokes and the
+ * time panel updates occupy the EDT. Read by the load test, which compares them with a baseline.
+ */
+public class TodoScanMetrics {
+
+    public static final String SCAN_FILES = "scanFiles";
+    public static final String SCAN_FILE = "scanFile";
+    public static final String FILTER = "filter";
+    public static final String EDT_UPDATE = "edtUpdate";
+
+    // Recent samples kept per operation for percentiles
+    private static final int WINDOW = 256;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<String, Series>();
+
+    /**
+     * Records one sample
+     * @param operation the operation name
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(String operation, long nanos) {
+        series.computeIfAbsent(operation, k -> new Series()).add(nanos);
+    }
+
+    /**
+     * Gets a snapshot of one operation
+     * @param operation the operation name
+     * @return the snapshot, or null if nothing was recorded
+     */
+    public Snapshot snapshot(String operation) {
+        Series s = series.get(operation);
+        return s != null ? s.snapshot() : null;
+    }
+
+    /**
+     * Gets snapshots of all recorded operations, sorted by name
+     * @return operation name to snapshot
+     */
+    public Map<String, Snapshot> snapshotAll() {
+        Map<String, Snapshot> result = new TreeMap<String, Snapshot>();
+        series.forEach((operation, s) -> result.put(operation, s.snapshot()));
+        return result;
+    }
+
+    /**
+     * Discards all samples
+     */
+    public void reset() {
+        series.clear();
+    }
+
+    /**
+     * Immutable summary of one operation's samples
+     */
+    public static class Snapshot {
+        private final long count;
+        private final double meanMillis;
+        private final double p95Millis;
+        private final double maxMillis;
+
+        Snapshot(long count, double meanMillis, double p95Millis, double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p95Millis = p95Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.1fms p95=%.1fms max=%.1fms", count, meanMillis, p95Millis, maxMillis);
+        }
+    }
+
+    private static class Series {
+        private final long[] window = new long[WINDOW];
+        private long count;
+        private long total;
+        private long max;
+
+        synchronized void add(long nanos) {
+            window[(int) (count % WINDOW)] = nanos;
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        synchronized Snapshot snapshot() {
+            int size = (int) Math.min(count, WINDOW);
+            long[] recent = Arrays.copyOf(window, size);
+            Arrays.sort(recent);
+            double p95 = size > 0 ? recent[Math.min(size - 1, (int) Math.ceil(size * 0.95) - 1)] : 0;
+            return new Snapshot(count, count > 0 ? total / (double) count / 1e6 : 0, p95 / 1e6, max / 1e6);
+        }
+    }
+}
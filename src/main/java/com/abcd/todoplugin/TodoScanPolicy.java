@@ -0,0 +1,142 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.GeneratedSourcesFilter;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Decides how (and whether) each file is scanned, and enforces the per-scan time budget.
+ * Keeps huge, generated or excluded files from dominating scan time and memory.
+ */
+public class TodoScanPolicy {
+
+    /**
+     * How a single file should be handled
+     */
+    public enum Decision {
+        DOCUMENT(null),
+        STREAM(null),
+        SKIP_TOO_LARGE("too large"),
+        SKIP_EXCLUDED("excluded"),
+        SKIP_GENERATED("generated");
+
+        private final String reason;
+
+        Decision(String reason) {
+            this.reason = reason;
+        }
+
+        public boolean isSkipped() {
+            return reason != null;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final long streamingThresholdBytes;
+    private final long maxFileSizeBytes;
+    private final long timeBudgetMillis;
+    private final Set<String> excludedDirectoryNames;
+
+    /**
+     * Creates a policy
+     * @param streamingThresholdBytes files larger than this are streamed instead of loaded as documents
+     * @param maxFileSizeBytes files larger than this are skipped
+     * @param timeBudgetMillis the time budget for one scan, or 0 for no budget
+     * @param excludedDirectoryNames directory names (relative to the content root) whose files are skipped
+     */
+    public TodoScanPolicy(long streamingThresholdBytes, long maxFileSizeBytes, long timeBudgetMillis,
+                          List<String> excludedDirectoryNames) {
+        this.streamingThresholdBytes = streamingThresholdBytes;
+        this.maxFileSizeBytes = maxFileSizeBytes;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.excludedDirectoryNames = new HashSet<String>();
+        if (excludedDirectoryNames != null) {
+            for (String name : excludedDirectoryNames) {
+                if (name != null && !name.trim().isEmpty()) {
+                    this.excludedDirectoryNames.add(name.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a policy from the persisted settings
+     * @param state the plugin state
+     * @return the configured policy
+     */
+    public static TodoScanPolicy fromState(KotlinTodoState state) {
+        return new TodoScanPolicy(
+                state.getStreamingThresholdKb() * 1024L,
+                state.getMaxFileSizeKb() * 1024L,
+                state.getScanTimeBudgetMs(),
+                state.getExcludedDirectoryNames()
+        );
+    }
+
+    /**
+     * Decides how a file found by a scoped scan should be handled
+     * @param file the file to check
+     * @param project the project being scanned
+     * @return the decision for this file
+     */
+    public Decision evaluate(VirtualFile file, Project project) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        if (fileIndex.isExcluded(file) || isInExcludedDirectory(file, fileIndex)) {
+            return Decision.SKIP_EXCLUDED;
+        }
+
+        if (GeneratedSourcesFilter.isGeneratedSourceByAnyFilter(file, project)) {
+            return Decision.SKIP_GENERATED;
+        }
+
+        return evaluateSize(file);
+    }
+
+    /**
+     * Decides how a file should be handled based on its size only; used for files
+     * the user opened explicitly
+     * @param file the file to check
+     * @return the decision for this file
+     */
+    public Decision evaluateSize(VirtualFile file) {
+        long length = file.getLength();
+        if (maxFileSizeBytes > 0 && length > maxFileSizeBytes) {
+            return Decision.SKIP_TOO_LARGE;
+        }
+        if (streamingThresholdBytes > 0 && length > streamingThresholdBytes) {
+            return Decision.STREAM;
+        }
+        return Decision.DOCUMENT;
+    }
+
+    /**
+     * Computes the deadline for a scan starting now
+     * @return the deadline in {@link System#nanoTime()} units, or {@link Long#MAX_VALUE} for no budget
+     */
+    public long deadlineFromNow() {
+        return timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000L : Long.MAX_VALUE;
+    }
+
+    private boolean isInExcludedDirectory(VirtualFile file, ProjectFileIndex fileIndex) {
+        if (excludedDirectoryNames.isEmpty()) {
+            return false;
+        }
+
+        VirtualFile root = fileIndex.getContentRootForFile(file);
+        for (VirtualFile dir = file.getParent(); dir != null && !dir.equals(root); dir = dir.getParent()) {
+            if (excludedDirectoryNames.contains(dir.getName().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
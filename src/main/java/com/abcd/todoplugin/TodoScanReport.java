@@ -0,0 +1,119 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of one scan: how many files were scanned and which were skipped, and why.
+ * Thread-safe, since the panel reads it while a background scan is still recording.
+ * {@link #EMPTY} is shared and cannot record.
+ */
+public class TodoScanReport {
+
+    public static final TodoScanReport EMPTY = new TodoScanReport(true);
+
+    private static final String BUDGET_REASON = "time budget";
+
+    private final Map<String, Integer> skippedByReason = new LinkedHashMap<String, Integer>();
+    private int scannedFiles;
+    private int streamedFiles;
+    private int snapshotFiles;
+    private final boolean readOnly;
+
+    public TodoScanReport() {
+        this(false);
+    }
+
+    private TodoScanReport(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Records a file that was scanned
+     * @param streamed true if the file was streamed rather than loaded as a document
+     */
+    public synchronized void fileScanned(boolean streamed) {
+        checkWritable();
+        scannedFiles++;
+        if (streamed) {
+            streamedFiles++;
+        }
+    }
+
+    /**
+     * Records a file whose TODOs were taken from the warm-start snapshot instead of being scanned
+     */
+    public synchronized void fileFromSnapshot() {
+        checkWritable();
+        snapshotFiles++;
+    }
+
+    /**
+     * Records a file that was skipped
+     * @param reason a short human-readable reason
+     */
+    public synchronized void fileSkipped(String reason) {
+        checkWritable();
+        skippedByReason.merge(reason, 1, Integer::sum);
+    }
+
+    /**
+     * Records files that were not reached because the time budget ran out
+     * @param count the number of files left unscanned
+     */
+    public synchronized void budgetExceeded(int count) {
+        checkWritable();
+        if (count > 0) {
+            skippedByReason.merge(BUDGET_REASON, count, Integer::sum);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The empty scan report cannot record");
+        }
+    }
+
+    public synchronized int getScannedFiles() {
+        return scannedFiles;
+    }
+
+    public synchronized int getStreamedFiles() {
+        return streamedFiles;
+    }
+
+    public synchronized int getSnapshotFiles() {
+        return snapshotFiles;
+    }
+
+    public synchronized int getSkippedFiles() {
+        int total = 0;
+        for (int count : skippedByReason.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public synchronized boolean isBudgetExceeded() {
+        return skippedByReason.containsKey(BUDGET_REASON);
+    }
+
+    /**
+     * Gets a short summary of skipped files for the status bar
+     * @return e.g. "3 files skipped: 2 too large, 1 generated", or an empty string
+     */
+    public synchronized String getSkippedSummary() {
+        int skipped = getSkippedFiles();
+        if (skipped == 0) {
+            return "";
+        }
+
+        List<String> parts = new ArrayList<String>();
+        for (Map.Entry<String, Integer> entry : skippedByReason.entrySet()) {
+            parts.add(entry.getValue() + " " + entry.getKey());
+        }
+        return String.format("%d file%s skipped: %s", skipped, skipped == 1 ? "" : "s", String.join(", ", parts));
+    }
+}
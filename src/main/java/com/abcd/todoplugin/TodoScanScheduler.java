@@ -0,0 +1,115 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Orders the files of a scan so the ones the user is most likely to care about are
+ * scanned, and published, first: open editors, then VCS-changed or recently modified
+ * files, then files near the current file in the directory tree, then the rest.
+ */
+public final class TodoScanScheduler {
+
+    private static final int TIER_OPEN = 0;
+    private static final int TIER_RECENT = 1;
+    private static final int TIER_NEARBY = 2;
+    private static final int TIER_REST = 3;
+
+    // Files modified within this window count as recently modified
+    private static final long RECENT_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Files at most this many directory steps from the current file count as nearby
+    private static final int NEARBY_DISTANCE = 3;
+
+    private TodoScanScheduler() {
+    }
+
+    /**
+     * Orders files by scan priority. Must be called inside a read action.
+     * @param project the project being scanned
+     * @param files the files to order
+     * @return a new list with the files in scan order; ties keep their original order
+     */
+    public static List<VirtualFile> order(Project project, List<VirtualFile> files) {
+        FileEditorManager editorManager = FileEditorManager.getInstance(project);
+        Set<VirtualFile> openFiles = new HashSet<VirtualFile>(Arrays.asList(editorManager.getOpenFiles()));
+        VirtualFile[] selected = editorManager.getSelectedFiles();
+        VirtualFile currentDirectory = selected.length > 0 && selected[0].getParent() != null
+                ? selected[0].getParent()
+                : null;
+        ChangeListManager changeListManager = ChangeListManager.getInstance(project);
+        long recentThreshold = System.currentTimeMillis() - RECENT_MILLIS;
+
+        List<Scheduled> scheduled = new ArrayList<Scheduled>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            VirtualFile file = files.get(i);
+            int tier;
+            long secondary = 0;
+
+            if (openFiles.contains(file)) {
+                tier = TIER_OPEN;
+            } else if (changeListManager.isFileAffected(file) || file.getTimeStamp() >= recentThreshold) {
+                // Most recently modified first
+                tier = TIER_RECENT;
+                secondary = -file.getTimeStamp();
+            } else {
+                int distance = currentDirectory != null ? directoryDistance(currentDirectory.getPath(), file.getPath())
+                        : Integer.MAX_VALUE;
+                if (distance <= NEARBY_DISTANCE) {
+                    tier = TIER_NEARBY;
+                    secondary = distance;
+                } else {
+                    tier = TIER_REST;
+                }
+            }
+
+            scheduled.add(new Scheduled(file, tier, secondary));
+        }
+
+        // List.sort is stable, so files within a tier keep the index order
+        scheduled.sort(Comparator.<Scheduled>comparingInt(s -> s.tier).thenComparingLong(s -> s.secondary));
+
+        List<VirtualFile> ordered = new ArrayList<VirtualFile>(scheduled.size());
+        for (Scheduled s : scheduled) {
+            ordered.add(s.file);
+        }
+        return ordered;
+    }
+
+    /**
+     * Counts the directory steps between a directory and a file's directory
+     */
+    static int directoryDistance(String directoryPath, String filePath) {
+        int lastSlash = filePath.lastIndexOf('/');
+        String fileDirectory = lastSlash >= 0 ? filePath.substring(0, lastSlash) : "";
+
+        String[] a = directoryPath.split("/");
+        String[] b = fileDirectory.split("/");
+        int common = 0;
+        while (common < a.length && common < b.length && a[common].equals(b[common])) {
+            common++;
+        }
+        return (a.length - common) + (b.length - common);
+    }
+
+    private static class Scheduled {
+        private final VirtualFile file;
+        private final int tier;
+        private final long secondary;
+
+        Scheduled(VirtualFile file, int tier, long secondary) {
+            this.file = file;
+            this.tier = tier;
+            this.secondary = secondary;
+        }
+    }
+}
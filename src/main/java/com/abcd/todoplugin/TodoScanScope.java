@@ -0,0 +1,27 @@
+package com.abcd.todoplugin;
+
+/**
+ * The set of files a TODO scan covers
+ */
+public enum TodoScanScope {
+    CURRENT_FILE("Current File"),
+    MODULE("Module"),
+    DIRECTORY("Directory"),
+    CHANGED_FILES("Changed Files"),
+    PROJECT("Project");
+
+    private final String displayName;
+
+    TodoScanScope(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
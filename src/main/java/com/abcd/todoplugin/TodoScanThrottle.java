@@ -0,0 +1,130 @@
+package com.abcd.todoplugin;
+
+import com.intellij.ide.PowerSaveMode;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Decides how hard a background scan may work. The scan runs in rounds; before each round
+ * the throttle caps concurrency by what the IDE is doing (indexing, power-save mode, system
+ * load), and after each round it adjusts concurrency and batch size from the measured
+ * throughput: additive increase while throughput holds, multiplicative decrease when it drops.
+ */
+public class TodoScanThrottle {
+
+    /**
+     * Upper bound on scan workers, whatever the conditions
+     */
+    public static final int MAX_CONCURRENCY = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final int MIN_BATCH = 4;
+    private static final int MAX_BATCH = 128;
+    private static final int INITIAL_BATCH = 16;
+    private static final int BATCH_STEP = 8;
+
+    // Load average per CPU above which the IDE is considered busy
+    private static final double HIGH_LOAD_PER_CPU = 0.85;
+
+    // Pauses between rounds while the IDE is indexing or in power-save mode
+    private static final long DUMB_PAUSE_MILLIS = 200;
+    private static final long POWER_SAVE_PAUSE_MILLIS = 100;
+
+    // A round counts as slower only below this fraction of the smoothed throughput, to ride out noise
+    private static final double SLOWDOWN_TOLERANCE = 0.8;
+
+    private final Project project;
+    private int concurrency = 1;
+    private int batchSize = INITIAL_BATCH;
+    private double smoothedThroughput;
+
+    public TodoScanThrottle(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Plans the next round from the current conditions and what was learned so far
+     * @return the concurrency, batch size and pause for the round
+     */
+    public synchronized Round nextRound() {
+        if (DumbService.isDumb(project)) {
+            return new Round(1, MIN_BATCH, DUMB_PAUSE_MILLIS, false);
+        }
+        if (PowerSaveMode.isEnabled()) {
+            return new Round(1, MIN_BATCH, POWER_SAVE_PAUSE_MILLIS, false);
+        }
+
+        int ceiling = isSystemBusy() ? Math.max(1, MAX_CONCURRENCY / 2) : MAX_CONCURRENCY;
+        return new Round(Math.min(concurrency, ceiling), batchSize, 0, true);
+    }
+
+    /**
+     * Feeds back the measured throughput of a finished round. Rounds held back for indexing or
+     * power-save mode are ignored, since their throughput says nothing about what the scan can do.
+     * @param round the round as planned by {@link #nextRound()}
+     * @param files the number of files the round processed
+     * @param nanos the round's wall-clock duration
+     */
+    public synchronized void roundCompleted(Round round, int files, long nanos) {
+        if (!round.isMeasured() || files <= 0 || nanos <= 0) {
+            return;
+        }
+
+        double throughput = files * 1e9 / nanos;
+        if (smoothedThroughput == 0 || throughput > smoothedThroughput) {
+            // Still scaling: another worker may help
+            batchSize = Math.min(MAX_BATCH, batchSize + BATCH_STEP);
+            concurrency = Math.min(MAX_CONCURRENCY, concurrency + 1);
+        } else if (throughput >= smoothedThroughput * SLOWDOWN_TOLERANCE) {
+            batchSize = Math.min(MAX_BATCH, batchSize + BATCH_STEP);
+        } else {
+            batchSize = Math.max(MIN_BATCH, batchSize / 2);
+            concurrency = Math.max(1, concurrency / 2);
+        }
+        smoothedThroughput = smoothedThroughput == 0 ? throughput : (smoothedThroughput + throughput) / 2;
+    }
+
+    private static boolean isSystemBusy() {
+        // Negative when the platform does not report a load average
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        return load >= 0 && load / Runtime.getRuntime().availableProcessors() > HIGH_LOAD_PER_CPU;
+    }
+
+    /**
+     * Parameters of one scan round
+     */
+    public static class Round {
+        private final int concurrency;
+        private final int batchSize;
+        private final long pauseMillis;
+        private final boolean measured;
+
+        Round(int concurrency, int batchSize, long pauseMillis, boolean measured) {
+            this.concurrency = concurrency;
+            this.batchSize = batchSize;
+            this.pauseMillis = pauseMillis;
+            this.measured = measured;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public long getPauseMillis() {
+            return pauseMillis;
+        }
+
+        /**
+         * @return false if the round was throttled for indexing or power-save mode and its
+         * throughput should not feed the estimate
+         */
+        public boolean isMeasured() {
+            return measured;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.abcd.todoplugin;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of TODO scan results, used to warm-start large projects.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic "TDSN", int version
+ * int    stringCount, int[stringCount] string offsets, int stringDataLength, byte[] UTF-8 string data
+ * int    fileCount
+ * file index, per file: int pathString, long contentHash, int todoCount, int firstTodoOffset
+ * TODO records, per TODO: int line, int startOffset, int tagString, int contentString
+ * </pre>
+ * Paths are relative to the source root with '/' separators, so snapshots built in CI
+ * are portable between machines. Strings are deduplicated. Snapshots are read through a
+ * memory mapping; TODO records and strings are decoded only when a file is looked up.
+ * Every count and offset is checked against the file size before it is used, so a truncated
+ * or corrupt snapshot fails with an {@link IOException}.
+ */
+public final class TodoSnapshot {
+
+    private static final int MAGIC = 0x5444534E; // "TDSN"
+    private static final int VERSION = 1;
+
+    private static final int FILE_ENTRY_SIZE = 4 + 8 + 4 + 4;
+    private static final int TODO_RECORD_SIZE = 4 * 4;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ByteBuffer buffer;
+    private final int[] stringOffsets;
+    private final int stringDataStart;
+    private final int stringDataLength;
+    private final Map<String, Integer> fileEntryOffsets;
+
+    private TodoSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int limit = buffer.limit();
+
+        check(limit >= 12 && buffer.getInt(0) == MAGIC, "not a TODO snapshot");
+        check(buffer.getInt(4) == VERSION, "unsupported version " + buffer.getInt(4));
+
+        int position = 8;
+        int stringCount = buffer.getInt(position);
+        position += 4;
+        check(stringCount >= 0 && position + 4L * stringCount + 4 <= limit, "string table exceeds the file");
+        stringOffsets = new int[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            stringOffsets[i] = buffer.getInt(position);
+            position += 4;
+        }
+        stringDataLength = buffer.getInt(position);
+        position += 4;
+        stringDataStart = position;
+        check(stringDataLength >= 0 && (long) position + stringDataLength + 4 <= limit, "string data exceeds the file");
+        for (int i = 0; i < stringCount; i++) {
+            int previous = i > 0 ? stringOffsets[i - 1] : 0;
+            check(stringOffsets[i] >= previous && stringOffsets[i] <= stringDataLength, "corrupt string offset " + i);
+        }
+        position += stringDataLength;
+
+        int fileCount = buffer.getInt(position);
+        position += 4;
+        check(fileCount >= 0 && position + (long) fileCount * FILE_ENTRY_SIZE <= limit, "file index exceeds the file");
+        int todoStart = position + fileCount * FILE_ENTRY_SIZE;
+        fileEntryOffsets = new HashMap<String, Integer>(fileCount * 2);
+        for (int i = 0; i < fileCount; i++) {
+            int todoCount = buffer.getInt(position + 12);
+            int todoOffset = buffer.getInt(position + 16);
+            check(todoCount >= 0 && todoOffset >= todoStart
+                    && todoOffset + (long) todoCount * TODO_RECORD_SIZE <= limit,
+                    "TODO records of file " + i + " exceed the file");
+            fileEntryOffsets.put(string(buffer.getInt(position)), position);
+            position += FILE_ENTRY_SIZE;
+        }
+    }
+
+    /**
+     * A TODO as stored in a snapshot
+     */
+    public static class Entry {
+        private final int lineNumber;
+        private final int startOffset;
+        private final String tag;
+        private final String content;
+
+        public Entry(int lineNumber, int startOffset, String tag, String content) {
+            this.lineNumber = lineNumber;
+            this.startOffset = startOffset;
+            this.tag = tag;
+            this.content = content;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public int getStartOffset() {
+            return startOffset;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * Maps a snapshot file into memory
+     * @param path the snapshot file
+     * @return the snapshot; only the header and file index are decoded up front
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static TodoSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TodoSnapshot(mapped);
+        }
+    }
+
+    /**
+     * Gets the stored content hash of a file
+     * @param relativePath the path relative to the source root
+     * @return the hash, or null if the file is not in the snapshot
+     */
+    public Long getContentHash(String relativePath) {
+        Integer entry = fileEntryOffsets.get(relativePath);
+        return entry != null ? buffer.getLong(entry + 4) : null;
+    }
+
+    /**
+     * Decodes the TODOs of one file
+     * @param relativePath the path relative to the source root
+     * @return the file's TODOs, empty if the file is not in the snapshot
+     * @throws IOException if the records refer to strings the snapshot does not have
+     */
+    public List<Entry> getTodos(String relativePath) throws IOException {
+        Integer entry = fileEntryOffsets.get(relativePath);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+
+        int count = buffer.getInt(entry + 12);
+        int position = buffer.getInt(entry + 16);
+        List<Entry> todos = new ArrayList<Entry>(count);
+        for (int i = 0; i < count; i++, position += TODO_RECORD_SIZE) {
+            todos.add(new Entry(
+                    buffer.getInt(position),
+                    buffer.getInt(position + 4),
+                    string(buffer.getInt(position + 8)),
+                    string(buffer.getInt(position + 12))
+            ));
+        }
+        return todos;
+    }
+
+    /**
+     * Gets the number of files in the snapshot
+     * @return the file count
+     */
+    public int getFileCount() {
+        return fileEntryOffsets.size();
+    }
+
+    private String string(int index) throws IOException {
+        check(index >= 0 && index < stringOffsets.length, "string index " + index + " out of range");
+        int start = stringDataStart + stringOffsets[index];
+        int end = stringDataStart + (index + 1 < stringOffsets.length ? stringOffsets[index + 1] : stringDataLength);
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void check(boolean valid, String problem) throws IOException {
+        if (!valid) {
+            throw new IOException("Corrupt TODO snapshot: " + problem);
+        }
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash used to detect changed files
+     * @param bytes the file contents
+     * @return the hash
+     */
+    public static long contentHash(byte[] bytes) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the content hash by streaming, for files too large to load at once
+     * @param input the file contents; not closed by this method
+     * @return the hash
+     * @throws IOException if reading fails
+     */
+    public static long contentHash(InputStream input) throws IOException {
+        long hash = FNV_OFFSET_BASIS;
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            for (int i = 0; i < read; i++) {
+                hash ^= chunk[i] & 0xff;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Collects scan results and writes them in snapshot format
+     */
+    public static class Writer {
+        private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+        private final List<byte[]> strings = new ArrayList<byte[]>();
+        private final Map<String, FileData> files = new LinkedHashMap<String, FileData>();
+
+        /**
+         * Adds one file's results
+         * @param relativePath the path relative to the source root, with '/' separators
+         * @param contentHash the {@link #contentHash} of the file contents
+         * @param todos the file's TODOs
+         */
+        public void addFile(String relativePath, long contentHash, List<Entry> todos) {
+            int[] records = new int[todos.size() * 4];
+            for (int i = 0; i < todos.size(); i++) {
+                Entry todo = todos.get(i);
+                records[i * 4] = todo.getLineNumber();
+                records[i * 4 + 1] = todo.getStartOffset();
+                records[i * 4 + 2] = intern(todo.getTag());
+                records[i * 4 + 3] = intern(todo.getContent());
+            }
+            files.put(relativePath, new FileData(intern(relativePath), contentHash, records));
+        }
+
+        /**
+         * Writes the snapshot
+         * @param output the stream to write to; not closed by this method
+         * @throws IOException if writing fails
+         */
+        public void write(OutputStream output) throws IOException {
+            DataOutputStream out = new DataOutputStream(output);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            int stringOffset = 0;
+            for (byte[] string : strings) {
+                out.writeInt(stringOffset);
+                stringOffset += string.length;
+            }
+            out.writeInt(stringOffset);
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+
+            int fileIndexStart = out.size() + 4;
+            int todoOffset = fileIndexStart + files.size() * FILE_ENTRY_SIZE;
+
+            out.writeInt(files.size());
+            for (FileData file : files.values()) {
+                out.writeInt(file.pathIndex);
+                out.writeLong(file.contentHash);
+                out.writeInt(file.records.length / 4);
+                out.writeInt(todoOffset);
+                todoOffset += file.records.length * 4;
+            }
+            for (FileData file : files.values()) {
+                for (int value : file.records) {
+                    out.writeInt(value);
+                }
+            }
+            out.flush();
+        }
+
+        /**
+         * Writes the snapshot to a file
+         * @param path the snapshot file
+         * @throws IOException if writing fails
+         */
+        public void write(Path path) throws IOException {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+                write(output);
+            }
+        }
+
+        private int intern(String value) {
+            Integer index = stringIndexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value.getBytes(StandardCharsets.UTF_8));
+                stringIndexes.put(value, index);
+            }
+            return index;
+        }
+
+        private static class FileData {
+            private final int pathIndex;
+            private final long contentHash;
+            private final int[] records;
+
+            FileData(int pathIndex, long contentHash, int[] records) {
+                this.pathIndex = pathIndex;
+                this.contentHash = contentHash;
+                this.records = records;
+            }
+        }
+    }
+}
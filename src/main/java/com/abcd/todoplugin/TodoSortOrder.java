@@ -0,0 +1,24 @@
+package com.abcd.todoplugin;
+
+/**
+ * The order of the TODO list
+ */
+public enum TodoSortOrder {
+    DEFAULT("Default"),
+    OLDEST_FIRST("Oldest first");
+
+    private final String displayName;
+
+    TodoSortOrder(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,173 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Path trie of TODO counters per tag and priority. Each node holds the totals of its
+ * whole subtree, so any directory total is read in O(1) after the lookup, and a change
+ * to one file's results updates only the nodes on its path, in O(depth).
+ */
+public class TodoStatsTrie implements TodoResultStore.Listener {
+
+    private final Node root = new Node(null, "");
+
+    @Override
+    public void fileResultsChanged(String path, List<TodoItem> oldTodos, List<TodoItem> newTodos) {
+        Counts delta = new Counts();
+        for (TodoItem todo : oldTodos) {
+            delta.add(todo, -1);
+        }
+        for (TodoItem todo : newTodos) {
+            delta.add(todo, 1);
+        }
+        if (!delta.isZero()) {
+            applyDelta(path, delta);
+        }
+    }
+
+    /**
+     * Gets the counts of a directory or file subtree
+     * @param path the absolute path
+     * @return a copy of the subtree counts, empty if nothing is known under the path
+     */
+    public synchronized Counts getCounts(String path) {
+        Node node = root;
+        for (String segment : segments(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return new Counts();
+            }
+        }
+        return node.counts.copy();
+    }
+
+    /**
+     * Gets the counts over every file
+     * @return a copy of the total counts
+     */
+    public synchronized Counts getTotalCounts() {
+        return root.counts.copy();
+    }
+
+    private synchronized void applyDelta(String path, Counts delta) {
+        Node node = root;
+        node.counts.addAll(delta);
+
+        for (String segment : segments(path)) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node(node, segment);
+                node.children.put(segment, child);
+            }
+            child.counts.addAll(delta);
+            node = child;
+        }
+
+        // Prune nodes whose subtree no longer has any TODOs
+        while (node != root && node.counts.getTotal() == 0 && node.children.isEmpty()) {
+            node.parent.children.remove(node.name);
+            node = node.parent;
+        }
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static class Node {
+        private final Node parent;
+        private final String name;
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private final Counts counts = new Counts();
+
+        Node(Node parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+    }
+
+    /**
+     * TODO counts by tag and priority
+     */
+    public static class Counts {
+        private final Map<String, Integer> byTag = new TreeMap<String, Integer>();
+        private final int[] byPriority = new int[TodoItem.Priority.values().length];
+        private int total;
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getTagCount(String tag) {
+            return byTag.getOrDefault(tag, 0);
+        }
+
+        public int getPriorityCount(TodoItem.Priority priority) {
+            return byPriority[priority.ordinal()];
+        }
+
+        /**
+         * Gets a one-line summary, e.g. "12 TODOs: FIXME 3, TODO 9"
+         * @return the summary
+         */
+        public String toSummary() {
+            StringBuilder summary = new StringBuilder();
+            summary.append(total).append(total == 1 ? " TODO" : " TODOs");
+            String separator = ": ";
+            for (Map.Entry<String, Integer> entry : byTag.entrySet()) {
+                summary.append(separator).append(entry.getKey()).append(' ').append(entry.getValue());
+                separator = ", ";
+            }
+            return summary.toString();
+        }
+
+        void add(TodoItem todo, int amount) {
+            byTag.merge(todo.getTag(), amount, Integer::sum);
+            byPriority[todo.getPriority().ordinal()] += amount;
+            total += amount;
+        }
+
+        void addAll(Counts other) {
+            for (Map.Entry<String, Integer> entry : other.byTag.entrySet()) {
+                int value = byTag.getOrDefault(entry.getKey(), 0) + entry.getValue();
+                if (value == 0) {
+                    byTag.remove(entry.getKey());
+                } else {
+                    byTag.put(entry.getKey(), value);
+                }
+            }
+            for (int i = 0; i < byPriority.length; i++) {
+                byPriority[i] += other.byPriority[i];
+            }
+            total += other.total;
+        }
+
+        boolean isZero() {
+            if (total != 0) {
+                return false;
+            }
+            for (int value : byTag.values()) {
+                if (value != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Counts copy() {
+            Counts copy = new Counts();
+            copy.addAll(this);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.abcd.todoplugin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Platform-independent TODO matching over text, shared by document scans and
+ * streamed scans of files that are too large to load as documents.
+ * <p>
+ * Text is lexed line by line according to a {@link TodoCommentSyntax}: only comments are
+ * searched for tags, and block comments and multi-line strings carry over to the next line.
+ * Each TODO also gets a whitespace-insensitive hash of the code around it, which lets
+ * {@link TodoIdentityTracker} tell identical TODOs apart and follow them across edits.
+ */
+public final class TodoTextScanner {
+
+    // Matched against the comment text that follows a comment delimiter; a leading '*' allows
+    // for doc comments and block comment continuation lines. Tags are whole words ("TODOS" is not one).
+    private static final Pattern TODO_PATTERN = Pattern.compile(
+            "\\s*(?:\\*+\\s*)?(TODO|FIXME|HACK|NOTE|BUG)\\b\\s*:?\\s*(.*)",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    // Longest line prefix kept while streaming; the rest of a longer line is ignored
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private TodoTextScanner() {
+    }
+
+    /**
+     * Receives each TODO found by the scanner
+     */
+    public interface MatchConsumer {
+        /**
+         * @param lineNumber the line number (1-based)
+         * @param startOffset the offset of the comment marker in the text
+         * @param tag the upper-case TODO tag
+         * @param content the TODO content after the tag, trimmed
+         * @param priority the priority derived from the tag
+         */
+        void onTodo(int lineNumber, int startOffset, String tag, String content, TodoItem.Priority priority);
+
+        /**
+         * Receives a TODO together with its context; by default the context is ignored
+         * @param contextHash hash of the previous non-blank line and the code before the comment, ignoring whitespace
+         */
+        default void onTodo(int lineNumber, int startOffset, String tag, String content, TodoItem.Priority priority,
+                            int contextHash) {
+            onTodo(lineNumber, startOffset, tag, content, priority);
+        }
+    }
+
+    /**
+     * Scans in-memory Kotlin, Java or Groovy text
+     * @param text the text to scan
+     * @param consumer receives each TODO found
+     */
+    public static void scan(CharSequence text, MatchConsumer consumer) {
+        scan(text, TodoCommentSyntax.C_STYLE, consumer);
+    }
+
+    /**
+     * Scans in-memory text line by line without splitting it into an array
+     * @param text the text to scan
+     * @param syntax the comment syntax of the text
+     * @param consumer receives each TODO found
+     */
+    public static void scan(CharSequence text, TodoCommentSyntax syntax, MatchConsumer consumer) {
+        Lexer lexer = new Lexer(syntax, consumer);
+        int lineStart = 0;
+        int lineNumber = 1;
+        int length = text.length();
+
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            CharSequence line = text.subSequence(lineStart, lineEnd);
+            lexer.lexLine(line, lineNumber, lineStart);
+            if (!isBlank(line)) {
+                lexer.previousLine = line;
+            }
+
+            lineStart = lineEnd + 1;
+            lineNumber++;
+        }
+    }
+
+    /**
+     * Scans Kotlin, Java or Groovy text from a reader
+     * @param reader the reader to scan; not closed by this method
+     * @param consumer receives each TODO found
+     * @throws IOException if reading fails
+     */
+    public static void scan(Reader reader, MatchConsumer consumer) throws IOException {
+        scan(reader, TodoCommentSyntax.C_STYLE, consumer);
+    }
+
+    /**
+     * Scans text from a reader in fixed-size chunks, so memory use stays bounded
+     * regardless of file size
+     * @param reader the reader to scan; not closed by this method
+     * @param syntax the comment syntax of the text
+     * @param consumer receives each TODO found
+     * @throws IOException if reading fails
+     */
+    public static void scan(Reader reader, TodoCommentSyntax syntax, MatchConsumer consumer) throws IOException {
+        Lexer lexer = new Lexer(syntax, consumer);
+        char[] chunk = new char[CHUNK_SIZE];
+        StringBuilder line = new StringBuilder();
+        // Kept for the context of TODOs on the next line; swapped with line instead of copied
+        StringBuilder previous = new StringBuilder();
+        int lineNumber = 1;
+        int lineStart = 0;
+        int offset = 0;
+        int read;
+
+        while ((read = reader.read(chunk)) != -1) {
+            for (int i = 0; i < read; i++, offset++) {
+                char c = chunk[i];
+                if (c == '\n') {
+                    lexer.lexLine(line, lineNumber, lineStart);
+                    if (!isBlank(line)) {
+                        StringBuilder swap = previous;
+                        previous = line;
+                        line = swap;
+                        lexer.previousLine = previous;
+                    }
+                    line.setLength(0);
+                    lineNumber++;
+                    lineStart = offset + 1;
+                } else if (line.length() < MAX_LINE_LENGTH) {
+                    line.append(c);
+                }
+            }
+        }
+
+        lexer.lexLine(line, lineNumber, lineStart);
+    }
+
+    /**
+     * Determines the priority of a TODO based on its type
+     * @param type the TODO type (TODO, FIXME, etc.)
+     * @return the priority level
+     */
+    public static TodoItem.Priority determinePriority(String type) {
+        switch (type.toUpperCase(Locale.ROOT)) {
+            case "FIXME":
+            case "BUG":
+                return TodoItem.Priority.HIGH;
+            case "HACK":
+                return TodoItem.Priority.MEDIUM;
+            case "TODO":
+            case "NOTE":
+            default:
+                return TodoItem.Priority.LOW;
+        }
+    }
+
+    /**
+     * Line-by-line comment lexer. The state (inside a block comment or a multi-line string)
+     * carries over from one line to the next; single-line strings end at the end of their line,
+     * so an unbalanced quote cannot hide the rest of the file.
+     */
+    private static final class Lexer {
+        private final TodoCommentSyntax syntax;
+        private final MatchConsumer consumer;
+        private final Matcher matcher = TODO_PATTERN.matcher("");
+        private final String delimiterStarts;
+
+        // End delimiter of the open block comment or string, or null in code
+        private String openEnd;
+        private boolean inString;
+
+        // Last non-blank line before the current one, for the context hash
+        CharSequence previousLine = "";
+
+        Lexer(TodoCommentSyntax syntax, MatchConsumer consumer) {
+            this.syntax = syntax;
+            this.consumer = consumer;
+
+            StringBuilder starts = new StringBuilder();
+            for (String prefix : syntax.getLineCommentPrefixes()) {
+                starts.append(prefix.charAt(0));
+            }
+            for (String[] block : syntax.getBlockComments()) {
+                starts.append(block[0].charAt(0));
+            }
+            for (String delimiter : syntax.getStringDelimiters()) {
+                starts.append(delimiter.charAt(0));
+            }
+            this.delimiterStarts = starts.toString();
+        }
+
+        void lexLine(CharSequence line, int lineNumber, int lineStart) {
+            int length = line.length();
+            boolean matched = false;
+            int i = 0;
+
+            if (inString && openEnd.length() < 3) {
+                closeString();
+            }
+
+            while (i < length) {
+                if (openEnd != null && inString) {
+                    char c = line.charAt(i);
+                    if (c == syntax.getEscape() && c != 0 && openEnd.length() < 3) {
+                        i += 2;
+                    } else if (startsWith(line, i, openEnd)) {
+                        i += openEnd.length();
+                        closeString();
+                    } else {
+                        i++;
+                    }
+                    continue;
+                }
+
+                if (openEnd != null) {
+                    // Inside a block comment, from its start or from the start of a continuation line
+                    int end = indexOf(line, openEnd, i);
+                    int commentEnd = end >= 0 ? end : length;
+                    if (!matched) {
+                        matched = matchComment(line, i, commentEnd, firstNonWhitespace(line, i, commentEnd),
+                                lineNumber, lineStart);
+                    }
+                    if (end < 0) {
+                        return;
+                    }
+                    i = end + openEnd.length();
+                    openEnd = null;
+                    continue;
+                }
+
+                if (delimiterStarts.indexOf(line.charAt(i)) < 0) {
+                    i++;
+                    continue;
+                }
+
+                String prefix = match(line, i, syntax.getLineCommentPrefixes());
+                if (prefix != null) {
+                    if (!matched) {
+                        matchComment(line, i + prefix.length(), length, i, lineNumber, lineStart);
+                    }
+                    return;
+                }
+
+                String[] block = matchBlock(line, i);
+                if (block != null) {
+                    int end = indexOf(line, block[1], i + block[0].length());
+                    int commentEnd = end >= 0 ? end : length;
+                    if (!matched) {
+                        matched = matchComment(line, i + block[0].length(), commentEnd, i, lineNumber, lineStart);
+                    }
+                    if (end < 0) {
+                        openEnd = block[1];
+                        return;
+                    }
+                    i = end + block[1].length();
+                    continue;
+                }
+
+                String delimiter = match(line, i, syntax.getStringDelimiters());
+                if (delimiter != null) {
+                    openEnd = delimiter;
+                    inString = true;
+                    i += delimiter.length();
+                    continue;
+                }
+
+                i++;
+            }
+        }
+
+        private boolean matchComment(CharSequence line, int start, int end, int markerOffset,
+                                     int lineNumber, int lineStart) {
+            if (start >= end) {
+                return false;
+            }
+
+            matcher.reset(line);
+            matcher.region(start, end);
+            if (!matcher.lookingAt()) {
+                return false;
+            }
+
+            String type = matcher.group(1).toUpperCase(Locale.ROOT);
+            String content = matcher.group(2).trim();
+            int contextHash = 31 * hashIgnoringWhitespace(previousLine, 0, previousLine.length())
+                    + hashIgnoringWhitespace(line, 0, markerOffset);
+            consumer.onTodo(lineNumber, lineStart + markerOffset, type, content, determinePriority(type), contextHash);
+            return true;
+        }
+
+        private void closeString() {
+            openEnd = null;
+            inString = false;
+        }
+
+        private String[] matchBlock(CharSequence line, int offset) {
+            for (String[] block : syntax.getBlockComments()) {
+                if (startsWith(line, offset, block[0])) {
+                    return block;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static String match(CharSequence line, int offset, String[] candidates) {
+        for (String candidate : candidates) {
+            if (startsWith(line, offset, candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(CharSequence line, int offset, String prefix) {
+        if (offset + prefix.length() > line.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence line, String target, int from) {
+        for (int i = from; i + target.length() <= line.length(); i++) {
+            if (startsWith(line, i, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        return firstNonWhitespace(line, 0, line.length()) == line.length();
+    }
+
+    /**
+     * Hashes the non-whitespace characters of a range, so reindenting or reformatting code
+     * does not change the context of a TODO
+     */
+    private static int hashIgnoringWhitespace(CharSequence line, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                hash = 31 * hash + c;
+            }
+        }
+        return hash;
+    }
+
+    private static int firstNonWhitespace(CharSequence line, int start, int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
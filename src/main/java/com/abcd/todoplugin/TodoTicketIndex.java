@@ -0,0 +1,198 @@
+package com.abcd.todoplugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from tracker ticket IDs (e.g. "ABC-1234") to the TODOs that mention them.
+ * Ticket IDs are extracted when a file's results change and the index is updated for that
+ * file only, so finding every TODO of a ticket is a map lookup rather than a text search.
+ */
+public class TodoTicketIndex implements TodoResultStore.Listener {
+
+    /**
+     * Jira-style keys: an upper-case project key, a dash and a number. Names of encodings and
+     * standards that share the shape, such as UTF-8, SHA-256 or ISO-8601, are not tickets;
+     * projects whose key is one of these prefixes need a custom pattern.
+     */
+    public static final String DEFAULT_PATTERN = "\\b(?!(?:UTF|UCS|SHA|ISO|IEC|RFC|CVE)-)[A-Z][A-Z0-9]+-\\d+\\b";
+
+    // Ticket to file path to the file's TODOs mentioning the ticket
+    private final Map<String, Map<String, List<TodoItem>>> todosByTicket = new HashMap<String, Map<String, List<TodoItem>>>();
+    private final Map<String, Set<String>> ticketsByPath = new HashMap<String, Set<String>>();
+    private Pattern pattern;
+
+    /**
+     * Creates an index
+     * @param pattern the ticket ID pattern; group 1 is the ID if present, otherwise the whole match
+     */
+    public TodoTicketIndex(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compiles a ticket pattern from settings, falling back to {@link #DEFAULT_PATTERN}
+     * @param regex the configured pattern
+     * @return the compiled pattern
+     * @throws java.util.regex.PatternSyntaxException if the pattern is invalid
+     */
+    public static Pattern compile(String regex) {
+        return Pattern.compile(regex == null || regex.trim().isEmpty() ? DEFAULT_PATTERN : regex);
+    }
+
+    @Override
+    public void fileResultsChanged(String path, List<TodoItem> oldTodos, List<TodoItem> newTodos) {
+        Pattern current;
+        synchronized (this) {
+            current = pattern;
+        }
+
+        // Extracted outside the lock; scan workers report files concurrently
+        Map<String, List<TodoItem>> added = new LinkedHashMap<String, List<TodoItem>>();
+        for (TodoItem todo : newTodos) {
+            for (String ticket : extractTickets(current, todo.getText())) {
+                added.computeIfAbsent(ticket, k -> new ArrayList<TodoItem>()).add(todo);
+            }
+        }
+
+        synchronized (this) {
+            if (current != pattern) {
+                // The pattern changed meanwhile; the rebuild has indexed the file's latest results
+                return;
+            }
+            index(path, added);
+        }
+    }
+
+    /**
+     * Switches to a new pattern and re-indexes the current results with it
+     * @param newPattern the ticket ID pattern
+     * @param store the results to re-index
+     */
+    public void setPattern(Pattern newPattern, TodoResultStore store) {
+        synchronized (this) {
+            if (pattern.pattern().equals(newPattern.pattern())) {
+                return;
+            }
+            pattern = newPattern;
+            todosByTicket.clear();
+            ticketsByPath.clear();
+        }
+        store.replay(this);
+    }
+
+    /**
+     * Gets the TODOs that mention a ticket
+     * @param ticket the ticket ID, in any case
+     * @return the TODOs, grouped by file
+     */
+    public synchronized List<TodoItem> getTodos(String ticket) {
+        Map<String, List<TodoItem>> byPath = todosByTicket.get(ticket.toUpperCase(Locale.ROOT));
+        if (byPath == null) {
+            return Collections.emptyList();
+        }
+        List<TodoItem> todos = new ArrayList<TodoItem>();
+        for (List<TodoItem> fileTodos : byPath.values()) {
+            todos.addAll(fileTodos);
+        }
+        return todos;
+    }
+
+    /**
+     * Gets every ticket mentioned by at least one TODO
+     * @return the ticket IDs in natural order
+     */
+    public synchronized Set<String> getTickets() {
+        return new TreeSet<String>(todosByTicket.keySet());
+    }
+
+    /**
+     * Gets the tickets a TODO mentions, using the current pattern
+     * @param todo the TODO
+     * @return the ticket IDs in order of appearance
+     */
+    public List<String> getTickets(TodoItem todo) {
+        Pattern current;
+        synchronized (this) {
+            current = pattern;
+        }
+        return extractTickets(current, todo.getText());
+    }
+
+    /**
+     * Finds the TODOs whose tickets have a given status, e.g. the TODOs of closed tickets.
+     * The resolver may be slow, so this should not be called on the EDT.
+     * @param resolver looks up ticket statuses
+     * @param status the status to look for
+     * @return the matching TODOs by ticket
+     */
+    public Map<String, List<TodoItem>> findByStatus(TodoTicketResolver resolver, TodoTicketResolver.Status status) {
+        Map<String, List<TodoItem>> result = new LinkedHashMap<String, List<TodoItem>>();
+        for (String ticket : getTickets()) {
+            if (resolver.getStatus(ticket) == status) {
+                List<TodoItem> todos = getTodos(ticket);
+                if (!todos.isEmpty()) {
+                    result.put(ticket, todos);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Extracts the distinct ticket IDs from a TODO text
+     * @param pattern the ticket ID pattern
+     * @param text the text to search
+     * @return upper-case ticket IDs in order of appearance
+     */
+    static List<String> extractTickets(Pattern pattern, String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Matcher matcher = pattern.matcher(text);
+        Set<String> tickets = null;
+        while (matcher.find()) {
+            String ticket = matcher.groupCount() >= 1 && matcher.group(1) != null ? matcher.group(1) : matcher.group();
+            if (!ticket.isEmpty()) {
+                if (tickets == null) {
+                    tickets = new LinkedHashSet<String>();
+                }
+                tickets.add(ticket.toUpperCase(Locale.ROOT));
+            }
+        }
+        return tickets != null ? new ArrayList<String>(tickets) : Collections.<String>emptyList();
+    }
+
+    private void index(String path, Map<String, List<TodoItem>> added) {
+        Set<String> oldTickets = ticketsByPath.remove(path);
+        if (oldTickets != null) {
+            for (String ticket : oldTickets) {
+                Map<String, List<TodoItem>> byPath = todosByTicket.get(ticket);
+                if (byPath != null) {
+                    byPath.remove(path);
+                    if (byPath.isEmpty()) {
+                        todosByTicket.remove(ticket);
+                    }
+                }
+            }
+        }
+
+        if (!added.isEmpty()) {
+            for (Map.Entry<String, List<TodoItem>> entry : added.entrySet()) {
+                todosByTicket.computeIfAbsent(entry.getKey(), k -> new LinkedHashMap<String, List<TodoItem>>())
+                        .put(path, entry.getValue());
+            }
+            ticketsByPath.put(path, new LinkedHashSet<String>(added.keySet()));
+        }
+    }
+}
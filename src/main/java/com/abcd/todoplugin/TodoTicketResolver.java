@@ -0,0 +1,25 @@
+package com.abcd.todoplugin;
+
+/**
+ * Looks up the status of tracker tickets. Registered through the
+ * {@code com.abcd.TODOPlugin.ticketResolver} extension point; tests and offline setups
+ * can supply a local implementation backed by a map.
+ */
+public interface TodoTicketResolver {
+
+    /**
+     * Ticket status as far as TODOs are concerned
+     */
+    enum Status {
+        OPEN,
+        CLOSED,
+        UNKNOWN
+    }
+
+    /**
+     * Gets the status of a ticket. May block on I/O; never called on the EDT.
+     * @param ticket the upper-case ticket ID
+     * @return the status, UNKNOWN if the ticket cannot be resolved
+     */
+    Status getStatus(String ticket);
+}
@@ -0,0 +1,622 @@
+package com.abcd.todoplugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Append-only history of TODO counts, from which trends per module (or any other grouping
+ * of files) are charted without rescanning old revisions.
+ * <p>
+ * Each flush appends one batch of per-file, per-tag count deltas; files whose counts did
+ * not change cost nothing. A checkpoint with the absolute counts is appended every
+ * {@link #CHECKPOINT_INTERVAL_BYTES} (or four checkpoint sizes, for large projects), so a
+ * query decodes one checkpoint and replays only the batches after it, skipping later ones.
+ * When the log outgrows its cap, the older half is dropped by rewriting the log from a
+ * checkpoint onwards, keeping only the strings that the rest still uses.
+ * <p>
+ * Layout (big-endian, var = unsigned LEB128 varint, zig = zigzag varint):
+ * <pre>
+ * int    magic "TDTL", int version
+ * 'S'    var id, var length, byte[length] UTF-8      string (path or tag) definition
+ * 'B'    long time, var n, n * (var path, var tag, zig delta)
+ * 'C'    long time, var length, var n, n * (var path, var tag, var count)
+ * </pre>
+ * A record cut short by a crash is dropped when the log is opened.
+ */
+public class TodoTrendLog {
+
+    private static final int MAGIC = 0x5444544C; // "TDTL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte STRING = 'S';
+    private static final byte BATCH = 'B';
+    private static final byte CHECKPOINT = 'C';
+
+    static final int CHECKPOINT_INTERVAL_BYTES = 256 * 1024;
+    static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    private final Path file;
+    private final long maxBytes;
+
+    // Loaded from the log on first use
+    private boolean open;
+    private long size;
+    private final List<String> strings = new ArrayList<String>();
+    private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+    private final Map<Integer, Map<Integer, Integer>> counts = new HashMap<Integer, Map<Integer, Integer>>();
+    private final List<long[]> checkpoints = new ArrayList<long[]>();
+    private long lastCheckpointEnd;
+    private int lastCheckpointSize;
+
+    // Latest tag counts per file path since the last flush. Guarded by its own lock, so
+    // recording never waits for log I/O
+    private final Map<String, Map<String, Integer>> pending = new LinkedHashMap<String, Map<String, Integer>>();
+
+    /**
+     * Creates a log; the file is read and created lazily
+     * @param file the log file
+     * @param maxBytes the size above which the log is compacted
+     */
+    public TodoTrendLog(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    public TodoTrendLog(Path file) {
+        this(file, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Records the current TODOs of a file; nothing is written until {@link #flush}
+     * @param path the file path, stable across sessions (e.g. relative to the project)
+     * @param todos the file's TODOs, empty if it has none or was removed
+     */
+    public void record(String path, List<TodoItem> todos) {
+        Map<String, Integer> tagCounts = new TreeMap<String, Integer>();
+        for (TodoItem todo : todos) {
+            tagCounts.merge(todo.getTag(), 1, Integer::sum);
+        }
+        synchronized (pending) {
+            pending.put(path, tagCounts);
+        }
+    }
+
+    /**
+     * Records every file known to the log but missing from the given set as having no TODOs,
+     * e.g. files deleted while the IDE was closed
+     * @param paths the paths that still exist
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized void retainOnly(Set<String> paths) throws IOException {
+        ensureOpen();
+        List<String> removed = new ArrayList<String>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : counts.entrySet()) {
+            String path = strings.get(entry.getKey());
+            if (!paths.contains(path) && !entry.getValue().isEmpty()) {
+                removed.add(path);
+            }
+        }
+        synchronized (pending) {
+            for (String path : removed) {
+                pending.putIfAbsent(path, new TreeMap<String, Integer>());
+            }
+        }
+    }
+
+    /**
+     * Appends the net changes recorded since the last flush as one batch
+     * @param timeMillis the time of the batch
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void flush(long timeMillis) throws IOException {
+        Map<String, Map<String, Integer>> changed;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changed = new LinkedHashMap<String, Map<String, Integer>>(pending);
+            pending.clear();
+        }
+        ensureOpen();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream triples = new ByteArrayOutputStream();
+        int changes = 0;
+
+        for (Map.Entry<String, Map<String, Integer>> entry : changed.entrySet()) {
+            int pathId = intern(entry.getKey(), out);
+            Map<Integer, Integer> current = counts.computeIfAbsent(pathId, k -> new HashMap<Integer, Integer>());
+
+            Map<Integer, Integer> target = new HashMap<Integer, Integer>();
+            for (Map.Entry<String, Integer> tagCount : entry.getValue().entrySet()) {
+                target.put(intern(tagCount.getKey(), out), tagCount.getValue());
+            }
+
+            List<Integer> tagIds = new ArrayList<Integer>(current.keySet());
+            for (Integer tagId : target.keySet()) {
+                if (!current.containsKey(tagId)) {
+                    tagIds.add(tagId);
+                }
+            }
+            for (Integer tagId : tagIds) {
+                int delta = target.getOrDefault(tagId, 0) - current.getOrDefault(tagId, 0);
+                if (delta != 0) {
+                    writeVarint(triples, pathId);
+                    writeVarint(triples, tagId);
+                    writeVarint(triples, zigzag(delta));
+                    apply(counts, pathId, tagId, delta);
+                    changes++;
+                }
+            }
+        }
+
+        if (changes > 0) {
+            out.write(BATCH);
+            writeLong(out, timeMillis);
+            writeVarint(out, changes);
+            triples.writeTo(out);
+        }
+        if (out.size() > 0) {
+            append(out.toByteArray());
+        }
+
+        if (size - lastCheckpointEnd >= Math.max(CHECKPOINT_INTERVAL_BYTES, 4L * lastCheckpointSize)) {
+            appendCheckpoint(timeMillis);
+        }
+        if (size > maxBytes) {
+            compact(timeMillis);
+        }
+    }
+
+    /**
+     * Gets TODO counts over time, summed per group of files
+     * @param fromMillis the start of the first bucket
+     * @param toMillis the end of the last bucket
+     * @param buckets the number of equal-width buckets
+     * @param tag only count this tag, or null for all tags
+     * @param grouping maps a file path to its group (e.g. module name); called once per path, without
+     *                 holding the log's lock, so it may wait for a read action
+     * @return per group, the count at the end of each bucket; groups that are empty throughout are left out
+     * @throws IOException if the log cannot be read
+     */
+    public Map<String, int[]> trend(long fromMillis, long toMillis, int buckets, String tag,
+                                    Function<String, String> grouping) throws IOException {
+        if (buckets <= 0 || toMillis <= fromMillis) {
+            return new TreeMap<String, int[]>();
+        }
+
+        // Copy what the query needs, then decode and group without the lock: grouping may
+        // wait for a read action while a write action is recording results
+        int tagFilter;
+        List<String> definitions;
+        ByteBuffer buffer;
+        synchronized (this) {
+            ensureOpen();
+            tagFilter = tag != null ? stringIds.getOrDefault(tag.toUpperCase(Locale.ROOT), -1) : -1;
+            if (tag != null && tagFilter < 0) {
+                return new TreeMap<String, int[]>();
+            }
+
+            // Start from the last checkpoint at or before the range, or from the beginning
+            long start = HEADER_SIZE;
+            for (long[] checkpoint : checkpoints) {
+                if (checkpoint[0] > fromMillis) {
+                    break;
+                }
+                start = checkpoint[1];
+            }
+            definitions = new ArrayList<String>(strings);
+            buffer = read(start);
+        }
+
+        List<String> groups = new ArrayList<String>();
+        Map<String, Integer> groupIds = new HashMap<String, Integer>();
+        int[] groupByPath = new int[definitions.size()];
+        Arrays.fill(groupByPath, -1);
+        List<int[]> series = new ArrayList<int[]>();
+        int[] totals = new int[16];
+
+        double width = (double) (toMillis - fromMillis) / buckets;
+        int bucket = 0;
+        boolean based = false;
+
+        while (buffer.hasRemaining() && bucket < buckets) {
+            byte type = buffer.get();
+            if (type == STRING) {
+                readVarint(buffer);
+                int length = readVarint(buffer);
+                buffer.position(buffer.position() + length);
+                continue;
+            }
+
+            long time = buffer.getLong();
+            while (bucket < buckets && time > fromMillis + (long) ((bucket + 1) * width)) {
+                series.add(Arrays.copyOf(totals, groups.size()));
+                bucket++;
+            }
+            if (bucket >= buckets) {
+                break;
+            }
+
+            if (type == CHECKPOINT) {
+                int length = readVarint(buffer);
+                if (based) {
+                    // Same counts as the replay so far
+                    buffer.position(buffer.position() + length);
+                    continue;
+                }
+            }
+            based = true;
+
+            int n = readVarint(buffer);
+            for (int i = 0; i < n; i++) {
+                int pathId = readVarint(buffer);
+                int tagId = readVarint(buffer);
+                int value = type == CHECKPOINT ? readVarint(buffer) : unzigzag(readVarint(buffer));
+                if (tagFilter < 0 || tagId == tagFilter) {
+                    int groupId = groupByPath[pathId];
+                    if (groupId < 0) {
+                        String group = grouping.apply(definitions.get(pathId));
+                        groupId = groupIds.computeIfAbsent(group, k -> {
+                            groups.add(k);
+                            return groups.size() - 1;
+                        });
+                        groupByPath[pathId] = groupId;
+                        if (groupId >= totals.length) {
+                            totals = Arrays.copyOf(totals, totals.length * 2);
+                        }
+                    }
+                    totals[groupId] += value;
+                }
+            }
+        }
+        while (bucket < buckets) {
+            series.add(Arrays.copyOf(totals, groups.size()));
+            bucket++;
+        }
+
+        Map<String, int[]> result = new TreeMap<String, int[]>();
+        for (int groupId = 0; groupId < groups.size(); groupId++) {
+            int[] values = new int[buckets];
+            boolean empty = true;
+            for (int i = 0; i < buckets; i++) {
+                int[] bucketTotals = series.get(i);
+                values[i] = groupId < bucketTotals.length ? bucketTotals[groupId] : 0;
+                empty &= values[i] == 0;
+            }
+            if (!empty) {
+                result.put(groups.get(groupId), values);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the size of the log file
+     * @return the size in bytes
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized long getSize() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (open) {
+            return;
+        }
+
+        strings.clear();
+        stringIds.clear();
+        counts.clear();
+        checkpoints.clear();
+
+        if (!Files.exists(file)) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            writeInt(header, MAGIC);
+            writeInt(header, VERSION);
+            Files.write(file, header.toByteArray());
+            size = HEADER_SIZE;
+            lastCheckpointEnd = HEADER_SIZE;
+            lastCheckpointSize = 0;
+            open = true;
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a TODO trend log, or unsupported version: " + file);
+        }
+
+        long valid = HEADER_SIZE;
+        lastCheckpointEnd = HEADER_SIZE;
+        lastCheckpointSize = 0;
+        boolean based = false;
+        try {
+            while (buffer.hasRemaining()) {
+                int recordStart = buffer.position();
+                byte type = buffer.get();
+                if (type == STRING) {
+                    int id = readVarint(buffer);
+                    byte[] bytes = new byte[readVarint(buffer)];
+                    buffer.get(bytes);
+                    define(id, new String(bytes, StandardCharsets.UTF_8));
+                } else if (type == BATCH) {
+                    buffer.getLong();
+                    // Decoded completely before any of it is applied, in case the batch is cut short
+                    int n = readVarint(buffer);
+                    if (n < 0 || n > buffer.remaining() / 3) {
+                        // Each change takes at least three bytes
+                        throw new BufferUnderflowException();
+                    }
+                    int[] triples = new int[n * 3];
+                    for (int i = 0; i < n; i++) {
+                        triples[i * 3] = readVarint(buffer);
+                        triples[i * 3 + 1] = readVarint(buffer);
+                        triples[i * 3 + 2] = unzigzag(readVarint(buffer));
+                    }
+                    for (int i = 0; i < n; i++) {
+                        apply(counts, triples[i * 3], triples[i * 3 + 1], triples[i * 3 + 2]);
+                    }
+                    based = true;
+                } else if (type == CHECKPOINT) {
+                    long time = buffer.getLong();
+                    int length = readVarint(buffer);
+                    if (length > buffer.remaining()) {
+                        throw new BufferUnderflowException();
+                    }
+                    int end = buffer.position() + length;
+                    if (!based) {
+                        // The base of the log; later checkpoints repeat what the batches already give
+                        int n = readVarint(buffer);
+                        for (int i = 0; i < n; i++) {
+                            int pathId = readVarint(buffer);
+                            int tagId = readVarint(buffer);
+                            apply(counts, pathId, tagId, readVarint(buffer));
+                        }
+                        based = true;
+                    }
+                    buffer.position(end);
+                    checkpoints.add(new long[]{time, recordStart});
+                    lastCheckpointEnd = end;
+                    lastCheckpointSize = end - recordStart;
+                } else {
+                    break;
+                }
+                valid = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // A record cut short by a crash; dropped below
+        }
+
+        if (valid < buffer.limit()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        size = valid;
+        open = true;
+    }
+
+    private ByteBuffer read(long start) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // Keep reading until the known end of the log
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+            out.write(bytes);
+        }
+        size += bytes.length;
+    }
+
+    private void appendCheckpoint(long timeMillis) throws IOException {
+        long offset = size;
+        byte[] record = checkpointRecord(timeMillis);
+        append(record);
+        checkpoints.add(new long[]{timeMillis, offset});
+        lastCheckpointEnd = size;
+        lastCheckpointSize = record.length;
+    }
+
+    private byte[] checkpointRecord(long timeMillis) {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        int n = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> path : counts.entrySet()) {
+            for (Map.Entry<Integer, Integer> tag : path.getValue().entrySet()) {
+                writeVarint(entries, path.getKey());
+                writeVarint(entries, tag.getKey());
+                writeVarint(entries, tag.getValue());
+                n++;
+            }
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeVarint(body, n);
+        body.writeBytes(entries.toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(CHECKPOINT);
+        writeLong(out, timeMillis);
+        writeVarint(out, body.size());
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * Drops the older half of the history: the log is rewritten from the first checkpoint in
+     * its newer half, preceded by the definitions of the strings those records use. Strings
+     * only the dropped half used (paths of long-deleted files, say) are not carried over.
+     */
+    private void compact(long timeMillis) throws IOException {
+        long keepFrom = -1;
+        for (long[] checkpoint : checkpoints) {
+            if (checkpoint[1] >= size / 2) {
+                keepFrom = checkpoint[1];
+                break;
+            }
+        }
+        if (keepFrom < 0) {
+            appendCheckpoint(timeMillis);
+            keepFrom = checkpoints.get(checkpoints.size() - 1)[1];
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeInt(out, MAGIC);
+        writeInt(out, VERSION);
+        ByteBuffer tail = read(keepFrom);
+        for (int id : usedBeforeDefinition(tail.duplicate())) {
+            writeString(out, id, strings.get(id));
+        }
+        out.write(tail.array(), tail.arrayOffset() + tail.position(), tail.remaining());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, out.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        open = false;
+        ensureOpen();
+    }
+
+    /**
+     * Collects the string ids that records use without defining them first
+     * @param buffer well-formed records
+     * @return the ids in ascending order
+     */
+    private static Set<Integer> usedBeforeDefinition(ByteBuffer buffer) {
+        Set<Integer> defined = new HashSet<Integer>();
+        Set<Integer> used = new TreeSet<Integer>();
+        while (buffer.hasRemaining()) {
+            byte type = buffer.get();
+            if (type == STRING) {
+                defined.add(readVarint(buffer));
+                int length = readVarint(buffer);
+                buffer.position(buffer.position() + length);
+                continue;
+            }
+
+            buffer.getLong();
+            if (type == CHECKPOINT) {
+                readVarint(buffer);
+            }
+            int n = readVarint(buffer);
+            for (int i = 0; i < n; i++) {
+                int pathId = readVarint(buffer);
+                int tagId = readVarint(buffer);
+                readVarint(buffer);
+                if (!defined.contains(pathId)) {
+                    used.add(pathId);
+                }
+                if (!defined.contains(tagId)) {
+                    used.add(tagId);
+                }
+            }
+        }
+        return used;
+    }
+
+    private int intern(String value, ByteArrayOutputStream out) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            define(id, value);
+            writeString(out, id, value);
+        }
+        return id;
+    }
+
+    private void define(int id, String value) {
+        while (strings.size() <= id) {
+            strings.add(null);
+        }
+        strings.set(id, value);
+        stringIds.put(value, id);
+    }
+
+    private static void apply(Map<Integer, Map<Integer, Integer>> target, int pathId, int tagId, int delta) {
+        Map<Integer, Integer> tags = target.computeIfAbsent(pathId, k -> new HashMap<Integer, Integer>());
+        int value = tags.getOrDefault(tagId, 0) + delta;
+        if (value == 0) {
+            tags.remove(tagId);
+        } else {
+            tags.put(tagId, value);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, int id, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(STRING);
+        writeVarint(out, id);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write(value >>> shift);
+        }
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
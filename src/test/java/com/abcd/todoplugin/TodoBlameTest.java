@@ -0,0 +1,144 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blames TODOs in a throwaway local git repository, both directly and through the enricher
+ * the panel uses
+ */
+public class TodoBlameTest extends BasePlatformTestCase {
+
+    private static final String AUTHOR = "Jane Doe";
+    private static final long AGE_DAYS = 100;
+
+    private static final String SOURCE = "fun main() {\n"
+            + "    // TODO: handle errors\n"
+            + "    println(\"caf\u00e9\")\n"
+            + "    // FIXME: retry\n"
+            + "}\n";
+
+    private Path repository;
+    private Path source;
+    private long commitTimeSeconds;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        repository = Files.createTempDirectory("kotlin-todo-blame");
+        source = repository.resolve("Sample.kt");
+        Files.write(source, SOURCE.getBytes(StandardCharsets.ISO_8859_1));
+
+        commitTimeSeconds = System.currentTimeMillis() / 1000 - TimeUnit.DAYS.toSeconds(AGE_DAYS);
+        git("init", "-q");
+        git("config", "user.name", AUTHOR);
+        git("config", "user.email", "jane@example.com");
+        git("add", "Sample.kt");
+        git("commit", "-q", "-m", "Add sample", "--date=@" + commitTimeSeconds);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            FileUtil.delete(repository.toFile());
+        }
+    }
+
+    public void testBlameReportsAuthorAndAgeOfCommittedLines() throws Exception {
+        Map<Integer, TodoBlame.Line> lines = TodoBlame.blame(source);
+
+        assertEquals(5, lines.size());
+        TodoBlame.Line todo = lines.get(2);
+        assertTrue(todo.isCommitted());
+        assertEquals(AUTHOR, todo.getAuthor());
+        assertEquals(commitTimeSeconds, todo.getAuthorTimeSeconds());
+        assertEquals("3 months", todo.formatAge(System.currentTimeMillis()));
+        assertEquals(todo.getCommit(), TodoBlame.headRevision(repository));
+    }
+
+    public void testUnsavedLinesAreUncommitted() throws Exception {
+        String edited = SOURCE.replace("    // FIXME: retry\n", "    // TODO: new\n    // FIXME: retry\n");
+
+        Map<Integer, TodoBlame.Line> lines = TodoBlame.blame(source, edited, StandardCharsets.ISO_8859_1);
+
+        assertTrue(lines.get(2).isCommitted());
+        assertTrue(lines.get(3).isCommitted());
+        assertFalse(lines.get(4).isCommitted());
+        assertEquals("uncommitted", lines.get(4).formatAge(System.currentTimeMillis()));
+        assertTrue(lines.get(5).isCommitted());
+    }
+
+    public void testContentsAreEncodedWithTheFileCharset() throws Exception {
+        // Written as UTF-8, the non-ASCII line no longer matches the committed ISO-8859-1 bytes
+        assertFalse(TodoBlame.blame(source, SOURCE, StandardCharsets.UTF_8).get(3).isCommitted());
+        assertTrue(TodoBlame.blame(source, SOURCE, StandardCharsets.ISO_8859_1).get(3).isCommitted());
+    }
+
+    public void testEnricherAnnotatesTodosWithAuthorAndAge() throws Exception {
+        VirtualFile file = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(source);
+        assertNotNull(file);
+        file.setCharset(StandardCharsets.ISO_8859_1);
+        VirtualFile root = file.getParent();
+
+        TodoBlameEnricher enricher = new TodoBlameEnricher(getProject()) {
+            @Override
+            VirtualFile findGitRoot(VirtualFile candidate) {
+                // The test project has no VCS mapping for the temporary repository
+                return root;
+            }
+        };
+        Disposer.register(getTestRootDisposable(), enricher);
+
+        TodoItem todo = new TodoItem(file, 2, "TODO: handle errors", TodoItem.Priority.MEDIUM);
+        TodoItem fixme = new TodoItem(file, 4, "FIXME: retry", TodoItem.Priority.HIGH);
+        List<TodoItem> todos = Arrays.asList(todo, fixme);
+
+        CountDownLatch blamed = new CountDownLatch(1);
+        enricher.enrich(todos, blamed::countDown);
+        assertTrue(blamed.await(30, TimeUnit.SECONDS));
+
+        for (TodoItem item : todos) {
+            TodoBlame.Line line = enricher.getBlame(item);
+            assertNotNull(line);
+            assertEquals(AUTHOR, line.getAuthor());
+            assertEquals("3 months", line.formatAge(System.currentTimeMillis()));
+        }
+
+        // Nothing changed, so a second request does not blame the file again
+        CountDownLatch again = new CountDownLatch(1);
+        enricher.enrich(todos, again::countDown);
+        assertFalse(again.await(500, TimeUnit.MILLISECONDS));
+    }
+
+    private void git(String... args) throws IOException, InterruptedException {
+        String[] command = new String[args.length + 1];
+        command[0] = "git";
+        System.arraycopy(args, 0, command, 1, args.length);
+
+        Process process = new ProcessBuilder(command).directory(repository.toFile()).redirectErrorStream(true).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            in.transferTo(output);
+        }
+        assertTrue("git timed out", process.waitFor(30, TimeUnit.SECONDS));
+        assertEquals("git " + String.join(" ", args) + ": " + output.toString(StandardCharsets.UTF_8),
+                0, process.exitValue());
+    }
+}
@@ -0,0 +1,79 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Groups TODOs fed through a result store and checks which ones end up together
+ */
+public class TodoClusterIndexTest extends TestCase {
+
+    private TodoResultStore store;
+    private TodoClusterIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        store = new TodoResultStore();
+        index = new TodoClusterIndex();
+        store.addListener(index);
+    }
+
+    public void testNearDuplicatesAcrossFilesAreGrouped() {
+        TodoItem handle = todo("TODO: handle error properly");
+        TodoItem handleAgain = todo("FIXME: Handle error, properly!");
+        TodoItem retry = todo("TODO: retry the request when the connection times out");
+        TodoItem retryAgain = todo("TODO: retry the request when the connection timed out");
+        TodoItem unrelated = todo("TODO: move constants to the companion object");
+        store.update("a.kt", Arrays.asList(handle, retry, unrelated));
+        store.update("b.kt", Arrays.asList(handleAgain, retryAgain));
+
+        assertEquals(5, index.size());
+        assertEquals(groups(Arrays.asList(handle, handleAgain), Arrays.asList(retry, retryAgain)),
+                groups(index.getClusters()));
+    }
+
+    public void testFileUpdatesReplaceThatFilesMembers() {
+        TodoItem handle = todo("TODO: handle error properly");
+        TodoItem handleAgain = todo("TODO: handle error properly");
+        store.update("a.kt", Collections.singletonList(handle));
+        store.update("b.kt", Collections.singletonList(handleAgain));
+        assertEquals(1, index.getClusters().size());
+
+        store.update("b.kt", Collections.singletonList(todo("TODO: document the cache eviction policy")));
+        assertTrue(index.getClusters().isEmpty());
+        assertEquals(2, index.size());
+
+        store.remove("a.kt");
+        store.remove("b.kt");
+        assertEquals(0, index.size());
+    }
+
+    public void testTextTooShortToCompareIsNotIndexed() {
+        store.update("a.kt", Arrays.asList(todo("TODO:"), todo("TODO: ... ok")));
+
+        assertEquals(0, index.size());
+    }
+
+    @SafeVarargs
+    private static Set<Set<TodoItem>> groups(List<TodoItem>... clusters) {
+        return groups(Arrays.asList(clusters));
+    }
+
+    private static Set<Set<TodoItem>> groups(List<List<TodoItem>> clusters) {
+        Set<Set<TodoItem>> groups = new HashSet<>();
+        for (List<TodoItem> cluster : clusters) {
+            groups.add(new HashSet<>(cluster));
+        }
+        return groups;
+    }
+
+    private static TodoItem todo(String text) {
+        return new TodoItem(null, 1, text, TodoItem.Priority.MEDIUM);
+    }
+}
@@ -0,0 +1,34 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Checks how exported paths are written in SARIF
+ */
+public class TodoExporterTest extends TestCase {
+
+    public void testRelativePathsAreEncodedAgainstTheSourceRoot() throws IOException {
+        String sarif = export("src/my dir/caf\u00e9#1.kt");
+
+        assertTrue(sarif, sarif.contains(
+                "\"artifactLocation\":{\"uri\":\"src/my%20dir/caf%C3%A9%231.kt\",\"uriBaseId\":\"%SRCROOT%\"}"));
+    }
+
+    public void testAbsolutePathsBecomeFileUris() throws IOException {
+        assertTrue(export("/tmp/other project/a.kt").contains(
+                "\"artifactLocation\":{\"uri\":\"file:///tmp/other%20project/a.kt\"}"));
+        assertTrue(export("C:\\work\\a b.kt").contains(
+                "\"artifactLocation\":{\"uri\":\"file:///C:/work/a%20b.kt\"}"));
+    }
+
+    private static String export(String path) throws IOException {
+        StringWriter out = new StringWriter();
+        try (TodoExporter exporter = TodoExporter.create(TodoExporter.Format.SARIF, out)) {
+            exporter.write(path, 3, "TODO", TodoItem.Priority.LOW, "handle errors");
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rescans edited sources and checks which TODOs keep their ids
+ */
+public class TodoIdentityTrackerTest extends TestCase {
+
+    private static final String SOURCE = "fun load() {\n"
+            + "    // TODO: handle errors\n"
+            + "    read()\n"
+            + "}\n"
+            + "\n"
+            + "fun save() {\n"
+            + "    // FIXME: retry on timeout\n"
+            + "    write()\n"
+            + "}\n";
+
+    private final TodoIdentityTracker tracker = new TodoIdentityTracker(path -> Collections.emptyList());
+
+    public void testLineShiftsKeepIds() {
+        List<String> ids = ids(tracker.assign("a.kt", scan(SOURCE)));
+
+        List<TodoItem> shifted = tracker.assign("a.kt", scan("import a.b\n\n// Loads and saves\n" + SOURCE));
+
+        assertEquals(ids, ids(shifted));
+        assertEquals(5, shifted.get(0).getLineNumber());
+    }
+
+    public void testEditedTextAndCodeKeepIds() {
+        List<String> ids = ids(tracker.assign("a.kt", scan(SOURCE)));
+
+        String edited = SOURCE.replace("TODO: handle errors", "TODO: handle I/O errors")
+                .replace("    write()\n", "    write(retries = 3)\n")
+                .replace("fun save() {", "fun save(path: String) {");
+
+        assertEquals(ids, ids(tracker.assign("a.kt", scan(edited))));
+    }
+
+    public void testNewTodosGetNewIds() {
+        List<String> ids = ids(tracker.assign("a.kt", scan(SOURCE)));
+
+        List<String> updated = ids(tracker.assign("a.kt",
+                scan(SOURCE.replace("    read()\n", "    read()\n    // TODO: validate the result\n"))));
+
+        assertEquals(3, updated.size());
+        assertEquals(ids.get(0), updated.get(0));
+        assertEquals(ids.get(1), updated.get(2));
+        assertFalse(ids.contains(updated.get(1)));
+    }
+
+    public void testRepeatedTodosKeepTheirOwnIds() {
+        String source = "fun a() {\n    // TODO: same\n}\n"
+                + "fun b() {\n    // TODO: same\n}\n"
+                + "fun c() {\n    // TODO: same\n}\n";
+        List<String> ids = ids(tracker.assign("a.kt", scan(source)));
+        assertEquals(3, new HashSet<>(ids).size());
+
+        // Another copy above the others
+        String added = "fun z() {\n    // TODO: same\n}\n" + source;
+        List<String> addedIds = ids(tracker.assign("a.kt", scan(added)));
+        assertEquals(4, new HashSet<>(addedIds).size());
+        assertFalse(ids.contains(addedIds.get(0)));
+        assertEquals(ids, addedIds.subList(1, 4));
+
+        // The middle one removed
+        String removed = added.replace("fun b() {\n    // TODO: same\n}\n", "");
+        assertEquals(Arrays.asList(addedIds.get(0), ids.get(0), ids.get(2)), ids(tracker.assign("a.kt", scan(removed))));
+    }
+
+    public void testSnapshotTodosWithoutContextKeepIds() {
+        List<TodoItem> scanned = tracker.assign("a.kt", scan(SOURCE));
+
+        // Restored from the snapshot: same TODOs, no context
+        List<TodoItem> restored = new ArrayList<>();
+        for (TodoItem todo : scan(SOURCE)) {
+            restored.add(new TodoItem(null, todo.getLineNumber(), todo.getStartOffset(), todo.getText(), todo.getTag(),
+                    todo.getPriority(), TodoIdentityTracker.UNKNOWN_CONTEXT));
+        }
+        assertEquals(ids(scanned), ids(tracker.assign("a.kt", restored)));
+
+        // The context is not lost: a later real scan still matches exactly
+        assertEquals(ids(scanned), ids(tracker.assign("a.kt", scan(SOURCE))));
+    }
+
+    public void testMovedTodosKeepIdsAndStayUniqueInTheProject() {
+        List<String> ids = ids(tracker.assign("src/a.kt", scan(SOURCE)));
+
+        tracker.move("src", "lib");
+        assertEquals(ids, ids(tracker.assign("lib/a.kt", scan(SOURCE))));
+
+        // The same TODOs at the old path would derive the same ids; they must get others
+        List<String> copyIds = ids(tracker.assign("src/a.kt", scan(SOURCE)));
+        assertEquals(2, copyIds.size());
+        assertTrue(Collections.disjoint(ids, copyIds));
+    }
+
+    public void testForgetReleasesIdsOfDeletedFiles() {
+        List<String> ids = ids(tracker.assign("src/a.kt", scan(SOURCE)));
+        tracker.move("src/a.kt", "src/b.kt");
+
+        // While the moved TODOs exist, the same TODOs at the old path get other ids
+        assertTrue(Collections.disjoint(ids, ids(tracker.assign("src/a.kt", scan(SOURCE)))));
+
+        // Deleting the directory frees the ids, so the file derives them again
+        tracker.forget("src");
+        assertEquals(ids, ids(tracker.assign("src/a.kt", scan(SOURCE))));
+    }
+
+    public void testSeededAndPersistedIdsAreRespected() {
+        List<TodoItem> first = tracker.assign("a.kt", scan(SOURCE));
+
+        // A new session: a.kt's first TODO has metadata, b.kt is a copy scanned before a.kt
+        Set<String> persisted = Collections.singleton(first.get(0).getId());
+        TodoIdentityTracker restarted = new TodoIdentityTracker(path -> path.equals("a.kt")
+                ? Collections.singletonList(new TodoIdentityTracker.Anchor(first.get(0).getId(),
+                TodoIdentityTracker.fingerprint(first.get(0).getText()), first.get(0).getContextHash(),
+                first.get(0).getText()))
+                : Collections.<TodoIdentityTracker.Anchor>emptyList(), persisted::contains);
+
+        List<String> copyIds = ids(restarted.assign("b.kt", scan(SOURCE)));
+        assertFalse(copyIds.contains(first.get(0).getId()));
+
+        List<String> ids = ids(restarted.assign("a.kt", scan(SOURCE)));
+        assertEquals(first.get(0).getId(), ids.get(0));
+        assertEquals(first.get(1).getId(), ids.get(1));
+        assertTrue(Collections.disjoint(ids, copyIds));
+    }
+
+    private static List<String> ids(List<TodoItem> todos) {
+        List<String> ids = new ArrayList<>();
+        for (TodoItem todo : todos) {
+            assertNotNull(todo.getId());
+            ids.add(todo.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Scans a Kotlin source the way the service does, with context hashes
+     */
+    private static List<TodoItem> scan(String source) {
+        List<TodoItem> todos = new ArrayList<>();
+        TodoTextScanner.scan(source, new TodoTextScanner.MatchConsumer() {
+            @Override
+            public void onTodo(int lineNumber, int startOffset, String tag, String content, TodoItem.Priority priority) {
+                onTodo(lineNumber, startOffset, tag, content, priority, TodoIdentityTracker.UNKNOWN_CONTEXT);
+            }
+
+            @Override
+            public void onTodo(int lineNumber, int startOffset, String tag, String content, TodoItem.Priority priority,
+                               int contextHash) {
+                todos.add(new TodoItem(null, lineNumber, startOffset, tag + ": " + content, tag, priority, contextHash));
+            }
+        });
+        return todos;
+    }
+}
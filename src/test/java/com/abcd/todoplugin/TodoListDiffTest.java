@@ -0,0 +1,112 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import javax.swing.DefaultListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that list updates touch only the rows that changed
+ */
+public class TodoListDiffTest extends TestCase {
+
+    private final DefaultListModel<TodoItem> model = new DefaultListModel<>();
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events.add("add " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events.add("remove " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events.add("change " + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+    }
+
+    public void testMovingOneRowOfManyMovesOnlyThatRow() {
+        List<TodoItem> todos = todos(200);
+        TodoListDiff.apply(model, todos);
+        events.clear();
+
+        List<TodoItem> reordered = new ArrayList<>(todos);
+        reordered.add(0, reordered.remove(150));
+        TodoListDiff.apply(model, reordered);
+
+        assertEquals(List.of("remove 150-150", "add 0-0"), events);
+        assertContents(reordered);
+    }
+
+    public void testMovingTheFirstRowToTheEndMovesOnlyThatRow() {
+        List<TodoItem> todos = todos(200);
+        TodoListDiff.apply(model, todos);
+        events.clear();
+
+        List<TodoItem> reordered = new ArrayList<>(todos);
+        reordered.add(reordered.remove(0));
+        TodoListDiff.apply(model, reordered);
+
+        assertEquals(List.of("remove 0-0", "add 199-199"), events);
+        assertContents(reordered);
+    }
+
+    public void testLargeReorderReplacesTheList() {
+        List<TodoItem> todos = todos(200);
+        TodoListDiff.apply(model, todos);
+        events.clear();
+
+        List<TodoItem> reversed = new ArrayList<>(todos);
+        Collections.reverse(reversed);
+        TodoListDiff.apply(model, reversed);
+
+        assertEquals(List.of("remove 0-199", "add 0-199"), events);
+        assertContents(reversed);
+    }
+
+    public void testInsertsRemovalsAndEditsInOnePass() {
+        List<TodoItem> todos = todos(10);
+        TodoListDiff.apply(model, todos);
+        events.clear();
+
+        List<TodoItem> updated = new ArrayList<>(todos);
+        updated.remove(7);
+        updated.remove(2);
+        updated.add(4, todo(100));
+        updated.add(todo(101));
+        updated.set(0, new TodoItem(null, 50, "TODO: item 0", TodoItem.Priority.MEDIUM));
+        TodoListDiff.apply(model, updated);
+
+        assertEquals(List.of("remove 7-7", "remove 2-2", "change 0-0", "add 4-4", "add 9-9"), events);
+        assertContents(updated);
+    }
+
+    private void assertContents(List<TodoItem> expected) {
+        assertEquals(expected, Collections.list(model.elements()));
+    }
+
+    private static List<TodoItem> todos(int count) {
+        List<TodoItem> todos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            todos.add(todo(i));
+        }
+        return todos;
+    }
+
+    private static TodoItem todo(int n) {
+        return new TodoItem(null, n + 1, "TODO: item " + n, TodoItem.Priority.MEDIUM);
+    }
+}
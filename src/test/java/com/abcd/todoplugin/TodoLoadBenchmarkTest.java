@@ -0,0 +1,135 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency of project scans, tab-switch scans and filter keystrokes on a synthetic
+ * project, compared against a stored baseline. Fails when any operation's p95 regresses past
+ * the threshold.
+ * <p>
+ * The baseline is {@code src/test/resources/todo-load-baseline.properties}, or the file named
+ * by the {@code todo.loadBaseline} system property; the test fails without one. To record a
+ * baseline, run on a quiet machine with {@code -Ptodo.recordLoadBaseline=true}: the run is
+ * written to {@code build/todo-load-baseline.properties} instead of being compared, and can
+ * then be copied over the committed baseline.
+ */
+public class TodoLoadBenchmarkTest extends BasePlatformTestCase {
+    private static final Logger LOG = Logger.getInstance(TodoLoadBenchmarkTest.class);
+
+    private static final int FILE_COUNT = 300;
+    private static final int TODOS_PER_FILE = 5;
+    private static final long SEED = 42L;
+
+    private static final int SCAN_ITERATIONS = 5;
+    private static final int TAB_SWITCHES = 20;
+    private static final String TYPED_FILTER = "retry handle error";
+
+    // Allowed p95 slowdown before the test fails
+    private static final double REGRESSION_THRESHOLD = 0.2;
+
+    private static final String DEFAULT_BASELINE = "src/test/resources/todo-load-baseline.properties";
+    private static final String RECORDED_BASELINE = "build/todo-load-baseline.properties";
+
+    private Path generatedRoot;
+    private int generatedTodos;
+
+    @Override
+    protected void setUp() throws Exception {
+        generatedRoot = Files.createTempDirectory("kotlin-todo-load");
+        generatedTodos = TodoSyntheticProjectGenerator.generate(generatedRoot, FILE_COUNT, TODOS_PER_FILE, SEED);
+        super.setUp();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            FileUtil.delete(generatedRoot.toFile());
+        }
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return generatedRoot.toString();
+    }
+
+    public void testLatencyStaysWithinBaseline() throws Exception {
+        myFixture.copyDirectoryToProject("src", "src");
+
+        KotlinTodoService service = getProject().getService(KotlinTodoService.class);
+        KotlinTodoPanel panel = new KotlinTodoPanel(getProject());
+        Disposer.register(getTestRootDisposable(), panel);
+        service.setTodoPanel(panel);
+        service.getMetrics().reset();
+
+        for (int i = 0; i < SCAN_ITERATIONS; i++) {
+            service.scanAllFiles();
+            waitForScan(service);
+        }
+        assertEquals(generatedTodos, service.getTodoCount());
+
+        List<VirtualFile> files = KotlinTodoScanner.findAllSourceFilesInProject(getProject());
+        for (int i = 0; i < TAB_SWITCHES; i++) {
+            VirtualFile file = files.get(i % files.size());
+            myFixture.openFileInEditor(file);
+            service.scanFile(file);
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+        }
+
+        for (int i = 0; i <= TYPED_FILTER.length(); i++) {
+            panel.setFilterText(TYPED_FILTER.substring(0, i));
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+        }
+        panel.setFilterText("");
+        PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+
+        Map<String, TodoScanMetrics.Snapshot> run = service.getMetrics().snapshotAll();
+        run.forEach((operation, snapshot) -> LOG.info(operation + ": " + snapshot));
+        assertNotNull(run.get(TodoScanMetrics.SCAN_FILES));
+        assertNotNull(run.get(TodoScanMetrics.SCAN_FILE));
+        assertNotNull(run.get(TodoScanMetrics.FILTER));
+
+        if (Boolean.getBoolean("todo.recordLoadBaseline")) {
+            Path recorded = Paths.get(RECORDED_BASELINE);
+            TodoPerformanceBaseline.save(recorded, run);
+            LOG.warn("Recorded this run in " + recorded.toAbsolutePath() + "; copy it to " + DEFAULT_BASELINE
+                    + " to make it the baseline");
+            return;
+        }
+
+        Path baselinePath = Paths.get(System.getProperty("todo.loadBaseline", DEFAULT_BASELINE));
+        TodoPerformanceBaseline baseline = TodoPerformanceBaseline.load(baselinePath);
+        assertNotNull("No load baseline at " + baselinePath.toAbsolutePath()
+                + "; record one on a quiet machine with -Ptodo.recordLoadBaseline=true", baseline);
+
+        List<String> regressions = baseline.findRegressions(run, REGRESSION_THRESHOLD);
+        assertTrue("Latency regressed past the baseline:\n" + String.join("\n", regressions), regressions.isEmpty());
+    }
+
+    /**
+     * Waits for the running scan while dispatching the EDT events it posts
+     */
+    private static void waitForScan(KotlinTodoService service) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (!service.waitForScan(10)) {
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+            if (System.nanoTime() > deadline) {
+                fail("Scan did not finish in time");
+            }
+        }
+        PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+    }
+}
@@ -0,0 +1,71 @@
+package com.abcd.todoplugin;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.testFramework.HeavyPlatformTestCase;
+import com.intellij.testFramework.LeakHunter;
+import com.intellij.testFramework.PlatformTestUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Opens and closes projects with a TODO panel attached, and checks that nothing reachable
+ * from the application keeps the closed projects, their panels or their services alive.
+ */
+public class TodoPanelLeakTest extends HeavyPlatformTestCase {
+
+    private static final int CYCLES = 3;
+
+    public void testPanelsAndListenersAreReleasedWhenProjectsClose() throws Exception {
+        Set<String> closedProjects = new HashSet<>();
+
+        for (int i = 0; i < CYCLES; i++) {
+            closedProjects.add(openUseAndClose(i));
+        }
+
+        LeakHunter.checkLeak(LeakHunter.allRoots(), KotlinTodoPanel.class, null);
+        LeakHunter.checkLeak(LeakHunter.allRoots(), KotlinTodoService.class,
+                service -> closedProjects.contains(service.getProject().getLocationHash()));
+        LeakHunter.checkLeak(LeakHunter.allRoots(), Project.class,
+                project -> closedProjects.contains(project.getLocationHash()));
+    }
+
+    /**
+     * Opens a project, attaches a panel the way the tool window does, scans and changes the
+     * filter state, then closes it
+     * @return the location hash of the closed project
+     */
+    private String openUseAndClose(int index) throws Exception {
+        Path root = Files.createTempDirectory("kotlin-todo-leak" + index);
+        Files.createDirectories(root.resolve(".idea"));
+        Path source = Files.createDirectories(root.resolve("src"));
+        Files.write(source.resolve("Sample.kt"),
+                "fun main() {\n    // TODO: leak check\n}\n".getBytes(StandardCharsets.UTF_8));
+
+        Project project = PlatformTestUtil.loadAndOpenProject(root, getTestRootDisposable());
+        String locationHash = project.getLocationHash();
+        try {
+            KotlinTodoPanel panel = new KotlinTodoPanel(project);
+            // The tool window disposes its content, and with it the panel, when the project closes
+            Disposer.register(project, panel);
+
+            KotlinTodoService service = project.getService(KotlinTodoService.class);
+            service.setTodoPanel(panel);
+            service.scanAllFiles();
+            while (!service.waitForScan(10)) {
+                PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+            }
+
+            KotlinTodoProjectState.getInstance(project).setLastFilterKeyword("leak");
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+        } finally {
+            PlatformTestUtil.forceCloseProjectWithoutSaving(project);
+        }
+        PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+        return locationHash;
+    }
+}
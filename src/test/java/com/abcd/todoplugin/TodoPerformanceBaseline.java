@@ -0,0 +1,87 @@
+package com.abcd.todoplugin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Stored p95 latencies per operation, and comparison of a new run against them
+ */
+public class TodoPerformanceBaseline {
+
+    // Differences below this are treated as noise regardless of the relative threshold
+    private static final double NOISE_FLOOR_MILLIS = 5.0;
+
+    private final Properties values;
+
+    private TodoPerformanceBaseline(Properties values) {
+        this.values = values;
+    }
+
+    /**
+     * Loads a baseline file
+     * @param path the baseline file
+     * @return the baseline, or null if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public static TodoPerformanceBaseline load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new TodoPerformanceBaseline(properties);
+    }
+
+    /**
+     * Stores the p95 latencies of a run as the new baseline
+     * @param path the baseline file
+     * @param run the measured snapshots
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Path path, Map<String, TodoScanMetrics.Snapshot> run) throws IOException {
+        Properties properties = new Properties();
+        run.forEach((operation, snapshot) ->
+                properties.setProperty(operation, String.valueOf(snapshot.getP95Millis())));
+
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Kotlin TODO load benchmark baseline (p95 ms)");
+        }
+    }
+
+    /**
+     * Compares a run against this baseline
+     * @param run the measured snapshots
+     * @param threshold allowed relative slowdown, e.g. 0.2 for 20%
+     * @return a description of each regression; empty if the run is within the threshold
+     */
+    public List<String> findRegressions(Map<String, TodoScanMetrics.Snapshot> run, double threshold) {
+        List<String> regressions = new ArrayList<String>();
+
+        for (Map.Entry<String, TodoScanMetrics.Snapshot> entry : run.entrySet()) {
+            String stored = values.getProperty(entry.getKey());
+            if (stored == null) {
+                continue;
+            }
+
+            double baseline = Double.parseDouble(stored);
+            double current = entry.getValue().getP95Millis();
+            if (current > baseline * (1 + threshold) && current - baseline > NOISE_FLOOR_MILLIS) {
+                regressions.add(String.format("%s: p95 %.1fms vs baseline %.1fms (+%.0f%%)",
+                        entry.getKey(), current, baseline, (current / baseline - 1) * 100));
+            }
+        }
+
+        return regressions;
+    }
+}
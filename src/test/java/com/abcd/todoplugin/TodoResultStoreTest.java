@@ -0,0 +1,82 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that listeners see every file's changes in order, even under concurrent updates
+ */
+public class TodoResultStoreTest extends TestCase {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES = 2000;
+
+    public void testConcurrentUpdatesOfOneFileReachListenersInOrder() throws Exception {
+        TodoResultStore store = new TodoResultStore();
+        // What each listener last saw per file; every change must start from it
+        Map<String, List<TodoItem>> seen = new HashMap<>();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        store.addListener((path, oldTodos, newTodos) -> {
+            synchronized (seen) {
+                List<TodoItem> previous = seen.getOrDefault(path, Collections.<TodoItem>emptyList());
+                if (!previous.equals(oldTodos)) {
+                    errors.add(path + ": expected " + previous + " but got " + oldTodos);
+                }
+                seen.put(path, newTodos);
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < UPDATES; i++) {
+                        String path = i % 2 == 0 ? "a.kt" : "b.kt";
+                        store.update(path, i % 7 == 0
+                                ? Collections.<TodoItem>emptyList()
+                                : Collections.singletonList(todo(thread, i)));
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        }
+
+        assertEquals(Collections.<String>emptyList(), errors);
+        assertEquals(store.get("a.kt"), seen.getOrDefault("a.kt", Collections.<TodoItem>emptyList()));
+        assertEquals(store.get("b.kt"), seen.getOrDefault("b.kt", Collections.<TodoItem>emptyList()));
+    }
+
+    public void testReplayReachesOnlyTheGivenListener() {
+        TodoResultStore store = new TodoResultStore();
+        List<String> all = new ArrayList<>();
+        List<String> replayed = new ArrayList<>();
+        store.addListener((path, oldTodos, newTodos) -> all.add(path + " " + newTodos.size()));
+        store.update("a.kt", Collections.singletonList(todo(0, 1)));
+        all.clear();
+
+        store.replay((path, oldTodos, newTodos) -> replayed.add(path + " " + oldTodos.size() + "->" + newTodos.size()));
+
+        assertEquals(Collections.singletonList("a.kt 0->1"), replayed);
+        assertTrue(all.isEmpty());
+    }
+
+    private static TodoItem todo(int thread, int n) {
+        return new TodoItem(null, n + 1, "TODO: from thread " + thread, TodoItem.Priority.MEDIUM);
+    }
+}
@@ -0,0 +1,113 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes and reads back snapshots, and checks that damaged ones fail with an IOException
+ * rather than a runtime exception that would end the scan
+ */
+public class TodoSnapshotTest extends TestCase {
+
+    private static final List<String> PATHS = Arrays.asList("src/Main.kt", "src/util/Strings.java", "empty.kt");
+
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = Files.createTempFile("todo-snapshot", ".bin");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            Files.deleteIfExists(file);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testRoundTrip() throws Exception {
+        Files.write(file, snapshotBytes());
+
+        TodoSnapshot snapshot = TodoSnapshot.open(file);
+        assertEquals(3, snapshot.getFileCount());
+        assertEquals(Long.valueOf(TodoSnapshot.contentHash("main".getBytes(StandardCharsets.UTF_8))),
+                snapshot.getContentHash("src/Main.kt"));
+        assertNull(snapshot.getContentHash("missing.kt"));
+
+        List<TodoSnapshot.Entry> todos = snapshot.getTodos("src/Main.kt");
+        assertEquals(2, todos.size());
+        assertEquals(3, todos.get(0).getLineNumber());
+        assertEquals(40, todos.get(0).getStartOffset());
+        assertEquals("TODO", todos.get(0).getTag());
+        assertEquals("handle errors", todos.get(0).getContent());
+        assertEquals("FIXME", todos.get(1).getTag());
+        assertEquals("caf\u00e9 \u2603", todos.get(1).getContent());
+
+        assertEquals("TODO", snapshot.getTodos("src/util/Strings.java").get(0).getTag());
+        assertTrue(snapshot.getTodos("empty.kt").isEmpty());
+        assertTrue(snapshot.getTodos("missing.kt").isEmpty());
+    }
+
+    public void testTruncatedSnapshotsFailWithIOException() throws Exception {
+        byte[] bytes = snapshotBytes();
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertFalse("Truncated to " + length + " bytes", readsCleanly());
+        }
+    }
+
+    public void testCorruptBytesFailWithIOException() throws Exception {
+        byte[] bytes = snapshotBytes();
+        for (int i = 0; i < bytes.length; i++) {
+            for (byte value : new byte[]{(byte) 0xFF, (byte) 0x7F, 0}) {
+                byte[] corrupt = bytes.clone();
+                corrupt[i] = value;
+                Files.write(file, corrupt);
+                // Damaged strings or hashes may still read; what matters is that nothing else is thrown
+                readsCleanly();
+            }
+        }
+    }
+
+    /**
+     * Opens the snapshot and decodes every file
+     * @return true if that worked, false if it failed with an IOException
+     */
+    private boolean readsCleanly() {
+        try {
+            TodoSnapshot snapshot = TodoSnapshot.open(file);
+            for (String path : PATHS) {
+                snapshot.getContentHash(path);
+                snapshot.getTodos(path);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] snapshotBytes() throws IOException {
+        TodoSnapshot.Writer writer = new TodoSnapshot.Writer();
+        writer.addFile(PATHS.get(0), TodoSnapshot.contentHash("main".getBytes(StandardCharsets.UTF_8)), Arrays.asList(
+                new TodoSnapshot.Entry(3, 40, "TODO", "handle errors"),
+                new TodoSnapshot.Entry(9, 120, "FIXME", "caf\u00e9 \u2603")));
+        writer.addFile(PATHS.get(1), 42L, Collections.singletonList(
+                new TodoSnapshot.Entry(1, 0, "TODO", "handle errors")));
+        writer.addFile(PATHS.get(2), 7L, Collections.<TodoSnapshot.Entry>emptyList());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output);
+        return output.toByteArray();
+    }
+}
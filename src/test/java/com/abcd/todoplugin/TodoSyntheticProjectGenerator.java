@@ -0,0 +1,82 @@
+package com.abcd.todoplugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates synthetic Kotlin sources with a known number of TODOs, for the load test.
+ * File sizes are mixed: most files are small, some are padded to a few thousand lines.
+ */
+public final class TodoSyntheticProjectGenerator {
+
+    private static final String[] TAGS = {"TODO", "FIXME", "HACK", "NOTE", "BUG"};
+    private static final String[] WORDS = {
+            "retry", "handle", "error", "cache", "parse", "timeout", "cleanup", "refactor",
+            "repository", "network", "migrate", "validate", "logging", "properly", "later"
+    };
+
+    private static final int FILES_PER_PACKAGE = 50;
+
+    private TodoSyntheticProjectGenerator() {
+    }
+
+    /**
+     * Writes synthetic sources under {@code root/src/main/kotlin}
+     * @param root the project root directory
+     * @param fileCount the number of Kotlin files to generate
+     * @param todosPerFile the number of TODO comments per file
+     * @param seed the random seed, so runs are reproducible
+     * @return the total number of TODOs written
+     * @throws IOException if a file cannot be written
+     */
+    public static int generate(Path root, int fileCount, int todosPerFile, long seed) throws IOException {
+        Random random = new Random(seed);
+        Path sourceRoot = root.resolve("src/main/kotlin");
+        int total = 0;
+
+        for (int i = 0; i < fileCount; i++) {
+            String packageName = "synthetic.p" + (i / FILES_PER_PACKAGE);
+            Path dir = sourceRoot.resolve(packageName.replace('.', '/'));
+            Files.createDirectories(dir);
+
+            // One in ten files is large
+            int fillerLines = random.nextInt(10) == 0 ? 2000 + random.nextInt(3000) : 20 + random.nextInt(200);
+
+            try (Writer writer = Files.newBufferedWriter(dir.resolve("File" + i + ".kt"), StandardCharsets.UTF_8)) {
+                writer.write("package " + packageName + "\n\n");
+                writer.write("class File" + i + " {\n");
+
+                int todoEvery = Math.max(1, fillerLines / Math.max(1, todosPerFile));
+                int written = 0;
+                for (int line = 0; line < fillerLines || written < todosPerFile; line++) {
+                    if (written < todosPerFile && line % todoEvery == 0) {
+                        writer.write("    // " + TAGS[random.nextInt(TAGS.length)] + ": " + sentence(random) + "\n");
+                        written++;
+                    }
+                    writer.write("    val value" + line + " = \"" + WORDS[random.nextInt(WORDS.length)] + "\"\n");
+                }
+
+                writer.write("}\n");
+                total += written;
+            }
+        }
+
+        return total;
+    }
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder();
+        int words = 3 + random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
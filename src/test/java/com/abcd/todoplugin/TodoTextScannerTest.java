@@ -0,0 +1,147 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the comment lexer over small sources and checks which TODOs it reports
+ */
+public class TodoTextScannerTest extends TestCase {
+
+    private static final Case[] C_STYLE_CASES = {
+            new Case("line comment",
+                    "val x = 1 // TODO: handle errors",
+                    "1 TODO LOW handle errors"),
+            new Case("tags and priorities",
+                    "// FIXME broken\n// HACK: works around KT-1\n// BUG: crash\n// note: see above\n// TODOS are not tags",
+                    "1 FIXME HIGH broken", "2 HACK MEDIUM works around KT-1", "3 BUG HIGH crash", "4 NOTE LOW see above"),
+            new Case("tag inside a string",
+                    "val s = \"// TODO: not a comment\"\nval t = \"/* FIXME: nor this */\"",
+                    new String[0]),
+            new Case("comment after a string",
+                    "val s = \"/* not a comment\" // TODO: real",
+                    "1 TODO LOW real"),
+            new Case("escaped quotes",
+                    "val s = \"quote \\\" // TODO: still in the string\"\nval t = \"backslash \\\\\" // TODO: after",
+                    "2 TODO LOW after"),
+            new Case("char literals",
+                    "val q = '\"' // TODO: after a quote char\nval a = '\\'' // FIXME: after an escaped apostrophe",
+                    "1 TODO LOW after a quote char", "2 FIXME HIGH after an escaped apostrophe"),
+            new Case("unterminated string ends with its line",
+                    "val s = \"unterminated\n// TODO: next line",
+                    "2 TODO LOW next line"),
+            new Case("block comment closed on the TODO line",
+                    "/* TODO: fix */ val s = \"// TODO: not this\"\n/* FIXME: first */ // TODO: one per line",
+                    "1 TODO LOW fix", "2 FIXME HIGH first"),
+            new Case("block comment continuation lines",
+                    "/**\n * Loads the file.\n * TODO: cache it\n */\nfun load() {}",
+                    "3 TODO LOW cache it"),
+            new Case("TODO on a block comment's last line",
+                    "/*\n  TODO: tidy up */ val x = 1 // FIXME: ignored, one per line",
+                    "2 TODO LOW tidy up"),
+            new Case("only the first line of a block comment starts a TODO",
+                    "/* TODO: first\n   and more detail\n */",
+                    "1 TODO LOW first"),
+            new Case("triple-quoted strings span lines",
+                    "val s = \"\"\"\n  // TODO: inside a raw string\n  \\\"\"\"\n// TODO: after",
+                    "4 TODO LOW after"),
+            new Case("no escapes in triple-quoted strings",
+                    "val s = \"\"\"ends with \\\"\"\" // TODO: after the raw string",
+                    "1 TODO LOW after the raw string"),
+    };
+
+    private static final Case[] XML_CASES = {
+            new Case("inline comment",
+                    "<item/> <!-- FIXME: inline --> <other/>",
+                    "1 FIXME HIGH inline"),
+            new Case("comment over several lines",
+                    "<!--\n  TODO: in markup\n-->\n<a>TODO: text is not a comment</a>",
+                    "2 TODO LOW in markup"),
+            new Case("line comment markers are plain text",
+                    "<a>// TODO: not a comment</a>\n<b># TODO: nor this</b>",
+                    new String[0]),
+    };
+
+    private static final Case[] HASH_CASES = {
+            new Case("comment after a value",
+                    "name: it's fine # TODO: rename",
+                    "1 TODO LOW rename"),
+            new Case("hash inside a double-quoted value",
+                    "key: \"value # TODO: not a comment\"\nother: \"a \\\" # FIXME: still quoted\"",
+                    new String[0]),
+            new Case("full-line comments",
+                    "# todo: lower case\n  # HACK: indented\nurl: http://example.com/#anchor",
+                    "1 TODO LOW lower case", "2 HACK MEDIUM indented"),
+            new Case("block and slash comments are plain text",
+                    "path: /* TODO: not a comment */\nurl: //host # BUG: real",
+                    "2 BUG HIGH real"),
+    };
+
+    public void testCStyleSyntax() throws IOException {
+        assertCases(TodoCommentSyntax.C_STYLE, C_STYLE_CASES);
+    }
+
+    public void testXmlSyntax() throws IOException {
+        assertCases(TodoCommentSyntax.XML, XML_CASES);
+    }
+
+    public void testHashSyntax() throws IOException {
+        assertCases(TodoCommentSyntax.HASH, HASH_CASES);
+    }
+
+    public void testTagsAreUpperCasedIndependentlyOfTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            List<String> found = scan("// fixme: dotted i\n// todo: lower case\n", TodoCommentSyntax.C_STYLE);
+
+            assertEquals(List.of("1 FIXME HIGH dotted i", "2 TODO LOW lower case"), found);
+            assertEquals("FIXME", new TodoItem(null, 1, 0, "fixme: x", "fixme", TodoItem.Priority.HIGH, 0).getTag());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    /**
+     * Checks each case both in memory and streamed, since the two share the lexer but not the line splitting
+     */
+    private static void assertCases(TodoCommentSyntax syntax, Case[] cases) throws IOException {
+        for (Case c : cases) {
+            assertEquals(syntax.getName() + ": " + c.description, c.expected, scan(c.source, syntax));
+
+            List<String> streamed = new ArrayList<>();
+            TodoTextScanner.scan(new StringReader(c.source), syntax, (lineNumber, startOffset, tag, content, priority) ->
+                    streamed.add(lineNumber + " " + tag + " " + priority.name() + " " + content));
+            assertEquals(syntax.getName() + ": " + c.description + " (streamed)", c.expected, streamed);
+        }
+    }
+
+    /**
+     * Scans a source and describes each TODO as "line TAG PRIORITY content"
+     */
+    static List<String> scan(String source, TodoCommentSyntax syntax) {
+        List<String> found = new ArrayList<>();
+        TodoTextScanner.scan(source, syntax, (lineNumber, startOffset, tag, content, priority) ->
+                found.add(lineNumber + " " + tag + " " + priority.name() + " " + content));
+        return found;
+    }
+
+    private static final class Case {
+        final String description;
+        final String source;
+        final List<String> expected;
+
+        Case(String description, String source, String... expected) {
+            this.description = description;
+            this.source = source;
+            this.expected = Collections.unmodifiableList(Arrays.asList(expected));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a ticket index in sync with a result store and resolves statuses through a
+ * map-backed resolver, the way offline setups would
+ */
+public class TodoTicketIndexTest extends TestCase {
+
+    private TodoResultStore store;
+    private TodoTicketIndex index;
+    private final Map<String, TodoTicketResolver.Status> statuses = new HashMap<>();
+    private final TodoTicketResolver resolver =
+            ticket -> statuses.getOrDefault(ticket, TodoTicketResolver.Status.UNKNOWN);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        store = new TodoResultStore();
+        index = new TodoTicketIndex(TodoTicketIndex.compile(null));
+        store.addListener(index);
+    }
+
+    public void testFileUpdatesReplaceOnlyThatFilesTickets() {
+        TodoItem login = todo("TODO: fix login, see AUTH-12");
+        TodoItem cache = todo("TODO: cache results (PERF-7, AUTH-12)");
+        TodoItem retry = todo("FIXME: retry on timeout PERF-7");
+        store.update("a.kt", Arrays.asList(login, cache));
+        store.update("b.kt", Collections.singletonList(retry));
+
+        assertEquals(Arrays.asList("AUTH-12", "PERF-7"), Arrays.asList(index.getTickets().toArray()));
+        assertEquals(Arrays.asList(login, cache), index.getTodos("auth-12"));
+        assertEquals(Arrays.asList(cache, retry), index.getTodos("PERF-7"));
+
+        // Rescanning a.kt drops its old mentions and keeps b.kt's
+        TodoItem logout = todo("TODO: logout too, AUTH-13");
+        store.update("a.kt", Collections.singletonList(logout));
+        assertEquals(Arrays.asList("AUTH-13", "PERF-7"), Arrays.asList(index.getTickets().toArray()));
+        assertTrue(index.getTodos("AUTH-12").isEmpty());
+        assertEquals(Collections.singletonList(retry), index.getTodos("PERF-7"));
+
+        store.remove("b.kt");
+        assertEquals(Collections.singletonList("AUTH-13"), Arrays.asList(index.getTickets().toArray()));
+    }
+
+    public void testFindByStatusUsesTheResolver() {
+        TodoItem open = todo("TODO: finish import, DATA-1");
+        TodoItem closed = todo("TODO: remove workaround once DATA-2 ships");
+        TodoItem alsoClosed = todo("FIXME: DATA-2 and UI-9 are done");
+        TodoItem unknown = todo("TODO: ask about OPS-5");
+        store.update("a.kt", Arrays.asList(open, closed));
+        store.update("b.kt", Arrays.asList(alsoClosed, unknown));
+
+        statuses.put("DATA-1", TodoTicketResolver.Status.OPEN);
+        statuses.put("DATA-2", TodoTicketResolver.Status.CLOSED);
+        statuses.put("UI-9", TodoTicketResolver.Status.CLOSED);
+
+        Map<String, List<TodoItem>> closedTickets = index.findByStatus(resolver, TodoTicketResolver.Status.CLOSED);
+        assertEquals(Arrays.asList("DATA-2", "UI-9"), Arrays.asList(closedTickets.keySet().toArray()));
+        assertEquals(Arrays.asList(closed, alsoClosed), closedTickets.get("DATA-2"));
+        assertEquals(Collections.singletonList(alsoClosed), closedTickets.get("UI-9"));
+
+        assertEquals(Collections.singletonList(open),
+                index.findByStatus(resolver, TodoTicketResolver.Status.OPEN).get("DATA-1"));
+        assertEquals(Collections.singletonList(unknown),
+                index.findByStatus(resolver, TodoTicketResolver.Status.UNKNOWN).get("OPS-5"));
+
+        // Closing the last open ticket is picked up on the next lookup
+        statuses.put("DATA-1", TodoTicketResolver.Status.CLOSED);
+        assertEquals(3, index.findByStatus(resolver, TodoTicketResolver.Status.CLOSED).size());
+    }
+
+    public void testDefaultPatternSkipsEncodingsAndStandards() {
+        store.update("a.kt", Collections.singletonList(
+                todo("TODO: read as UTF-8, hash with SHA-256, dates in ISO-8601 (see CORE-42)")));
+
+        assertEquals(Collections.singletonList("CORE-42"), Arrays.asList(index.getTickets().toArray()));
+    }
+
+    public void testPatternChangeReindexesCurrentResults() {
+        store.update("a.kt", Collections.singletonList(todo("TODO: #123 and CORE-1")));
+
+        index.setPattern(TodoTicketIndex.compile("#(\\d+)"), store);
+        assertEquals(Collections.singletonList("123"), Arrays.asList(index.getTickets().toArray()));
+
+        store.update("a.kt", Collections.singletonList(todo("TODO: #456")));
+        assertEquals(Collections.singletonList("456"), Arrays.asList(index.getTickets().toArray()));
+    }
+
+    private static TodoItem todo(String text) {
+        return new TodoItem(null, 1, text, TodoItem.Priority.MEDIUM);
+    }
+}
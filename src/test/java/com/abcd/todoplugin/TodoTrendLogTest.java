@@ -0,0 +1,142 @@
+package com.abcd.todoplugin;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes trend logs to a temporary file and reads them back, also after a crash and after compaction
+ */
+public class TodoTrendLogTest extends TestCase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    // Groups paths by their top-level directory, the way modules group them in the IDE
+    private static final Function<String, String> BY_DIRECTORY = path -> path.substring(0, path.indexOf('/'));
+
+    private Path directory;
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = Files.createTempDirectory("todo-trends");
+        file = directory.resolve("trends.bin");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            Files.deleteIfExists(directory.resolve("trends.bin.tmp"));
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testRoundTrip() throws Exception {
+        TodoTrendLog log = new TodoTrendLog(file);
+        log.record("app/Main.kt", todos("TODO", "TODO", "FIXME"));
+        log.record("lib/Util.kt", todos("TODO"));
+        log.flush(HOUR + HOUR / 2);
+        log.record("app/Main.kt", todos("TODO"));
+        log.record("lib/Util.kt", todos());
+        log.flush(2 * HOUR + HOUR / 2);
+
+        TodoTrendLog reopened = new TodoTrendLog(file);
+        assertEquals(log.getSize(), reopened.getSize());
+
+        List<String> grouped = new ArrayList<>();
+        Map<String, int[]> trend = reopened.trend(0, 3 * HOUR, 3, null, path -> {
+            // Grouping may wait for a read action, so the log must not be locked meanwhile
+            assertFalse(Thread.holdsLock(reopened));
+            grouped.add(path);
+            return BY_DIRECTORY.apply(path);
+        });
+        assertEquals(Arrays.asList("app", "lib"), new ArrayList<>(trend.keySet()));
+        assertEquals("[0, 3, 1]", Arrays.toString(trend.get("app")));
+        assertEquals("[0, 1, 0]", Arrays.toString(trend.get("lib")));
+        assertEquals(2, grouped.size());
+
+        Map<String, int[]> fixmes = reopened.trend(0, 3 * HOUR, 3, "fixme", BY_DIRECTORY);
+        assertEquals(Collections.singleton("app"), fixmes.keySet());
+        assertEquals("[0, 1, 0]", Arrays.toString(fixmes.get("app")));
+        assertTrue(reopened.trend(0, 3 * HOUR, 3, "HACK", BY_DIRECTORY).isEmpty());
+    }
+
+    public void testTornRecordIsTruncatedOnOpen() throws Exception {
+        TodoTrendLog log = new TodoTrendLog(file);
+        log.record("app/Main.kt", todos("TODO", "TODO"));
+        log.flush(HOUR);
+        long intact = log.getSize();
+        log.record("app/Main.kt", todos("TODO"));
+        log.record("app/New.kt", todos("FIXME"));
+        log.flush(2 * HOUR);
+        byte[] complete = Files.readAllBytes(file);
+
+        // Every cut inside the last flush loses its batch, and nothing before it; string
+        // definitions that were written completely may stay
+        for (int length = (int) intact; length < complete.length; length++) {
+            Files.write(file, Arrays.copyOf(complete, length));
+
+            TodoTrendLog reopened = new TodoTrendLog(file);
+            long size = reopened.getSize();
+            assertTrue("Cut at " + length + " kept " + size + " bytes", size >= intact && size <= length);
+            assertEquals(size, Files.size(file));
+            assertEquals("[2, 2]", Arrays.toString(reopened.trend(0, 4 * HOUR, 2, null, BY_DIRECTORY).get("app")));
+
+            // The log takes appends again after the dropped record
+            reopened.record("app/Main.kt", todos("TODO", "TODO", "TODO"));
+            reopened.flush(3 * HOUR);
+            assertEquals("Cut at " + length, "[2, 3]", Arrays.toString(
+                    new TodoTrendLog(file).trend(0, 4 * HOUR, 2, null, BY_DIRECTORY).get("app")));
+        }
+    }
+
+    public void testCompactionKeepsCountsAndDropsUnusedStrings() throws Exception {
+        long maxBytes = 4096;
+        TodoTrendLog log = new TodoTrendLog(file, maxBytes);
+        log.record("app/Main.kt", todos("TODO", "FIXME"));
+
+        // Short-lived files with long paths: each one's name is only needed while it has TODOs
+        for (int i = 0; i < 2000; i++) {
+            String path = "gen/generated/sources/kapt/main/com/example/Generated" + i + ".kt";
+            log.record(path, todos("TODO"));
+            log.flush(HOUR + i * 2L);
+            log.record(path, todos());
+            log.flush(HOUR + i * 2L + 1);
+
+            assertTrue("Log grew to " + log.getSize() + " bytes after " + i + " files", log.getSize() <= maxBytes);
+        }
+
+        TodoTrendLog reopened = new TodoTrendLog(file, maxBytes);
+        Map<String, int[]> trend = reopened.trend(0, 2 * HOUR, 1, null, BY_DIRECTORY);
+        assertEquals(Collections.singleton("app"), trend.keySet());
+        assertEquals("[2]", Arrays.toString(trend.get("app")));
+
+        // Counts and interned strings survive: a later change is a delta on the kept base
+        reopened.record("app/Main.kt", todos("FIXME"));
+        reopened.flush(3 * HOUR);
+        assertEquals("[1]", Arrays.toString(new TodoTrendLog(file, maxBytes)
+                .trend(2 * HOUR, 4 * HOUR, 1, null, BY_DIRECTORY).get("app")));
+        assertEquals(new HashSet<>(Collections.singletonList("app")),
+                new TodoTrendLog(file, maxBytes).trend(2 * HOUR, 4 * HOUR, 1, "FIXME", BY_DIRECTORY).keySet());
+    }
+
+    private static List<TodoItem> todos(String... tags) {
+        List<TodoItem> todos = new ArrayList<>();
+        for (String tag : tags) {
+            todos.add(new TodoItem(null, todos.size() + 1, tag + ": item " + todos.size(), TodoItem.Priority.MEDIUM));
+        }
+        return todos;
+    }
+}